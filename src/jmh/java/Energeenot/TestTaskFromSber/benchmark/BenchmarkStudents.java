@@ -0,0 +1,35 @@
+package Energeenot.TestTaskFromSber.benchmark;
+
+import Energeenot.TestTaskFromSber.model.Student;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Тестовые данные для бенчмарков.
+ */
+final class BenchmarkStudents {
+
+    private BenchmarkStudents() {
+    }
+
+    /**
+     * Создаёт студентов без идентификаторов с повторяющимися, но различными значениями полей.
+     *
+     * @param count число студентов.
+     * @return список новых студентов.
+     */
+    static List<Student> create(int count) {
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            students.add(Student.builder()
+                    .surname("Иванов" + i)
+                    .name("Иван")
+                    .patronymic(i % 3 == 0 ? null : "Иванович")
+                    .age(18 + i % 10)
+                    .averageMark(1.0 + (i % 400) / 100.0)
+                    .build());
+        }
+        return students;
+    }
+}
@@ -0,0 +1,92 @@
+package Energeenot.TestTaskFromSber.benchmark;
+
+import Energeenot.TestTaskFromSber.model.Student;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сериализация списка студентов в JSON, Smile и CBOR, без сжатия и со сжатием gzip.
+ * <p>
+ *     Размеры тел в байтах для каждого формата печатаются при подготовке, время — результат бенчмарка.
+ *     {@code serializeGzip} показывает цену сжатия ответа, которое выполняет Tomcat
+ *     при {@code server.compression.enabled=true}.
+ * </p>
+ * <p>
+ *     Запуск только этого бенчмарка: {@code mvn -Pjmh verify -Djmh.args="StudentFormat"}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentFormatBenchmark {
+
+    @Param({"10000", "100000"})
+    private int size;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<Student> students;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        JsonFactory factory = switch (format) {
+            case "json" -> new JsonFactory();
+            case "smile" -> new SmileFactory();
+            case "cbor" -> new CBORFactory();
+            default -> throw new IllegalArgumentException("Неизвестный формат " + format);
+        };
+        ObjectMapper objectMapper = new ObjectMapper(factory).findAndRegisterModules();
+        TypeReference<List<Student>> listType = new TypeReference<>() {
+        };
+        writer = objectMapper.writerFor(listType);
+        reader = objectMapper.readerFor(listType);
+        students = BenchmarkStudents.create(size);
+        for (int i = 0; i < students.size(); i++) {
+            students.get(i).setId(i + 1);
+        }
+        payload = writer.writeValueAsBytes(students);
+        System.out.printf("%s, %d студентов: %d байт, gzip %d байт%n", format, size, payload.length, gzip().length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(students);
+    }
+
+    @Benchmark
+    public byte[] serializeGzip() throws IOException {
+        return gzip();
+    }
+
+    @Benchmark
+    public List<Student> deserialize() throws IOException {
+        return reader.readValue(payload);
+    }
+
+    private byte[] gzip() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload.length / 8);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            writer.writeValue(gzip, students);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,75 @@
+package Energeenot.TestTaskFromSber.benchmark;
+
+import Energeenot.TestTaskFromSber.model.Student;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация и десериализация {@link Student} и {@code List<Student>} через Jackson.
+ * <p>
+ *     Запуск только этого бенчмарка: {@code mvn -Pjmh verify -Djmh.args="StudentJson"}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentJsonBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private ObjectWriter studentWriter;
+    private ObjectReader studentReader;
+    private ObjectWriter listWriter;
+    private ObjectReader listReader;
+    private Student student;
+    private List<Student> students;
+    private byte[] studentJson;
+    private byte[] studentsJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+        TypeReference<List<Student>> listType = new TypeReference<>() {
+        };
+        studentWriter = objectMapper.writerFor(Student.class);
+        studentReader = objectMapper.readerFor(Student.class);
+        listWriter = objectMapper.writerFor(listType);
+        listReader = objectMapper.readerFor(listType);
+        students = BenchmarkStudents.create(size);
+        student = students.get(0);
+        studentJson = studentWriter.writeValueAsBytes(student);
+        studentsJson = listWriter.writeValueAsBytes(students);
+    }
+
+    @Benchmark
+    public byte[] serializeStudent() throws IOException {
+        return studentWriter.writeValueAsBytes(student);
+    }
+
+    @Benchmark
+    public Student deserializeStudent() throws IOException {
+        return studentReader.readValue(studentJson);
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws IOException {
+        return listWriter.writeValueAsBytes(students);
+    }
+
+    @Benchmark
+    public List<Student> deserializeList() throws IOException {
+        return listReader.readValue(studentsJson);
+    }
+}
@@ -0,0 +1,81 @@
+package Energeenot.TestTaskFromSber.benchmark;
+
+import Energeenot.TestTaskFromSber.model.Student;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена журналирования запросов на добавление студентов.
+ * <p>
+ *     Сравниваются запись всего списка через {@code students.toString()}, как было до {@code StudentRequestLog},
+ *     и запись только числа студентов.
+ *     Журнал пишется в Logback с шаблоном приложения, но в поток без вывода, поэтому измеряется форматирование,
+ *     а не скорость консоли. Параметр {@code level} показывает, что {@code toString()} вычисляется,
+ *     даже если уровень {@code INFO} выключен.
+ * </p>
+ * <p>
+ *     Запуск только этого бенчмарка: {@code mvn -Pjmh verify -Djmh.args="StudentLogging"}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentLoggingBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    @Param({"INFO", "WARN"})
+    private String level;
+
+    private LoggerContext loggerContext;
+    private Logger log;
+    private List<Student> students;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() {
+        loggerContext = new LoggerContext();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p %t %logger{39} : %m%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(loggerContext);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+
+        log = loggerContext.getLogger(StudentLoggingBenchmark.class);
+        log.setAdditive(false);
+        log.addAppender(appender);
+        log.setLevel(Level.toLevel(level));
+        students = BenchmarkStudents.create(size);
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() {
+        loggerContext.stop();
+    }
+
+    @Benchmark
+    public void logToString() {
+        log.info("log: Попытка добавления нового студента {}", students.toString());
+    }
+
+    @Benchmark
+    public void logSize() {
+        log.info("log: Попытка добавления {} студентов", students.size());
+    }
+}
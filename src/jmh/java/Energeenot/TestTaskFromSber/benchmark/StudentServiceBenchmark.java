@@ -0,0 +1,92 @@
+package Energeenot.TestTaskFromSber.benchmark;
+
+import Energeenot.TestTaskFromSber.TestTaskFromSberApplication;
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import Energeenot.TestTaskFromSber.service.StudentService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Методы {@link StudentService} на встроенной базе H2 в полном контексте Spring без веб-сервера.
+ * <p>
+ *     Перед каждой итерацией таблица заполняется заново {@code rows} студентами, поэтому
+ *     {@code getAllStudents} читает одинаковый объём данных, а {@code addStudent} добавляет столько же студентов
+ *     за вызов. Журнал приложения ограничен уровнем {@code WARN}, цена журналирования измеряется отдельно
+ *     в {@link StudentLoggingBenchmark}.
+ * </p>
+ * <p>
+ *     Запуск только этого бенчмарка: {@code mvn -Pjmh verify -Djmh.args="StudentService"}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentServiceBenchmark {
+
+    private static final String[] EMBEDDED_DATABASE = {
+            "spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1",
+            "spring.datasource.driver-class-name=org.h2.Driver",
+            "spring.datasource.username=sa",
+            "spring.flyway.enabled=false",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "spring.jpa.properties.hibernate.generate_statistics=false",
+            "logging.level.Energeenot.TestTaskFromSber=WARN"
+    };
+
+    @Param({"1", "100", "1000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private StudentService studentService;
+    private StudentRepository studentRepository;
+    private List<Integer> ids;
+    private int nextId;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(TestTaskFromSberApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(EMBEDDED_DATABASE)
+                .run();
+        studentService = context.getBean(StudentService.class);
+        studentRepository = context.getBean(StudentRepository.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void fillTable() {
+        studentRepository.deleteAllInBatch();
+        ids = studentService.addStudent(BenchmarkStudents.create(rows)).stream().map(Student::getId).toList();
+        nextId = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Student> addStudent() {
+        return studentService.addStudent(BenchmarkStudents.create(rows));
+    }
+
+    @Benchmark
+    public List<Student> getAllStudents() {
+        return studentService.getAllStudents();
+    }
+
+    @Benchmark
+    public void updateStudent() {
+        int id = ids.get(nextId++ % ids.size());
+        studentService.updateStudent(id, StudentPatch.builder().age(18 + nextId % 10).build());
+    }
+}
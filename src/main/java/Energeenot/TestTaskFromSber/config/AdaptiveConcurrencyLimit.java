@@ -0,0 +1,111 @@
+package Energeenot.TestTaskFromSber.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Лимит одновременных запросов, который подстраивается под время ответа по схеме AIMD.
+ * <p>
+ *     Если запрос выполнялся дольше {@code latencyTarget}, лимит умножается на отношение {@code latencyTarget}
+ *     к времени ответа, но не меньше чем на {@value #MIN_BACKOFF_RATIO} и не больше чем на {@value #BACKOFF_RATIO}:
+ *     чем сильнее превышено время, тем быстрее уменьшается лимит. Ошибка сервера уменьшает лимит
+ *     в {@value #BACKOFF_RATIO} раза. Уменьшение происходит не чаще одного раза за время ответа: запросы, начатые
+ *     до предыдущего уменьшения, отражают прежний лимит и его больше не уменьшают.
+ * </p>
+ * <p>
+ *     Быстрый ответ при загрузке хотя бы половины лимита увеличивает лимит на {@code 1 / limit}, то есть примерно
+ *     на единицу за каждые {@code limit} запросов. Так лимит держится около числа запросов, которое база обслуживает
+ *     за {@code latencyTarget}, а не около размера очереди.
+ * </p>
+ */
+public class AdaptiveConcurrencyLimit {
+
+    static final double BACKOFF_RATIO = 0.9;
+    static final double MIN_BACKOFF_RATIO = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Текущий лимит. Изменяется под монитором {@code this}.
+     */
+    private volatile double limit;
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimit(StudentProperties.Admission.Limit settings) {
+        this.minLimit = Math.max(1, settings.getMinLimit());
+        this.maxLimit = Math.max(minLimit, settings.getMaxLimit());
+        this.latencyTargetNanos = settings.getLatencyTarget().toNanos();
+        this.limit = Math.clamp(settings.getInitialLimit(), minLimit, maxLimit);
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * Занимает место под запрос, если лимит не исчерпан.
+     *
+     * @return {@code true}, если запрос допущен; тогда его нужно завершить вызовом {@link #release(long, boolean)}.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Освобождает место допущенного запроса и пересчитывает лимит по времени его выполнения.
+     *
+     * @param startNanos значение {@link System#nanoTime()} в начале запроса.
+     * @param failed     завершился ли запрос ошибкой сервера.
+     */
+    public void release(long startNanos, boolean failed) {
+        long now = System.nanoTime();
+        int current = inFlight.getAndDecrement();
+        long latency = now - startNanos;
+        synchronized (this) {
+            if (failed || latency > latencyTargetNanos) {
+                if (startNanos - lastDecreaseNanos > 0) {
+                    double ratio = failed ? BACKOFF_RATIO
+                            : Math.max(MIN_BACKOFF_RATIO, Math.min(BACKOFF_RATIO, (double) latencyTargetNanos / latency));
+                    limit = Math.max(minLimit, limit * ratio);
+                    lastDecreaseNanos = now;
+                }
+            } else if (current * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    /**
+     * Возвращает текущий лимит.
+     *
+     * @return максимальное число одновременных запросов.
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Возвращает число выполняющихся запросов.
+     *
+     * @return число допущенных и ещё не завершённых запросов.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Возвращает загрузку лимита.
+     *
+     * @return отношение числа выполняющихся запросов к лимиту.
+     */
+    public double getUtilization() {
+        return inFlight.get() / limit;
+    }
+}
@@ -0,0 +1,27 @@
+package Energeenot.TestTaskFromSber.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Ограничение одновременных запросов к {@code /students} ({@code students.admission.enabled=true},
+ * по умолчанию включено), см. {@link AdmissionControlFilter}.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "students.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(StudentProperties studentProperties,
+                                                                                 MeterRegistry meterRegistry) {
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter(studentProperties.getAdmission(), meterRegistry));
+        registration.addUrlPatterns("/students", "/students/*");
+        return registration;
+    }
+}
@@ -0,0 +1,147 @@
+package Energeenot.TestTaskFromSber.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ограничение одновременных запросов к {@code /students} с отказом вместо очереди.
+ * <p>
+ *     Когда база замедляется, запросы без ограничения занимают потоки Tomcat в очереди пула соединений,
+ *     пока не истекут таймауты у всех сразу. Здесь для каждого вида запросов ({@link Endpoint}) действует свой
+ *     {@link AdaptiveConcurrencyLimit}, который уменьшается, когда время ответа превышает
+ *     {@code students.admission.<вид>.latency-target}. Запрос сверх лимита сразу получает ответ 503
+ *     (SERVICE_UNAVAILABLE) с заголовком {@code Retry-After}, а допущенные запросы отвечают за предсказуемое время.
+ * </p>
+ * <p>
+ *     Чтения приоритетнее массовых запросов: массовый запрос отклоняется и при свободном собственном лимите,
+ *     если чтения заняли больше {@code students.admission.bulk-max-read-utilization} своего лимита.
+ *     Поток изменений {@code /students/changes} и выгрузка {@code /students/export} не ограничиваются:
+ *     их соединения держатся долго, и время ответа не говорит о загрузке базы.
+ * </p>
+ * <p>
+ *     Метрики: {@code students.admission.limit} и {@code students.admission.in.flight} — текущий лимит и число
+ *     выполняющихся запросов, {@code students.admission.rejected} — число отклонённых; тег {@code endpoint}.
+ * </p>
+ */
+@Slf4j
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Set<String> UNLIMITED_PATHS = Set.of("/students/changes", "/students/export");
+    private static final UrlPathHelper PATH_HELPER = new UrlPathHelper();
+
+    private final Map<Endpoint, AdaptiveConcurrencyLimit> limits = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Counter> rejected = new EnumMap<>(Endpoint.class);
+    private final double bulkMaxReadUtilization;
+    private final String retryAfter;
+
+    public AdmissionControlFilter(StudentProperties.Admission settings, MeterRegistry meterRegistry) {
+        limits.put(Endpoint.READ, new AdaptiveConcurrencyLimit(settings.getRead()));
+        limits.put(Endpoint.WRITE, new AdaptiveConcurrencyLimit(settings.getWrite()));
+        limits.put(Endpoint.BULK, new AdaptiveConcurrencyLimit(settings.getBulk()));
+        this.bulkMaxReadUtilization = settings.getBulkMaxReadUtilization();
+        this.retryAfter = String.valueOf(Math.max(1, (settings.getRetryAfter().toMillis() + 999) / 1000));
+        limits.forEach((endpoint, limit) -> {
+            String tag = endpoint.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("students.admission.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .description("Текущий лимит одновременных запросов")
+                    .tag("endpoint", tag)
+                    .register(meterRegistry);
+            Gauge.builder("students.admission.in.flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .description("Число выполняющихся запросов")
+                    .tag("endpoint", tag)
+                    .register(meterRegistry);
+            rejected.put(endpoint, Counter.builder("students.admission.rejected")
+                    .description("Число запросов, отклонённых ответом 503 из-за лимита")
+                    .tag("endpoint", tag)
+                    .register(meterRegistry));
+        });
+    }
+
+    /**
+     * Вид запроса, для которого действует отдельный лимит.
+     */
+    public enum Endpoint {
+        /**
+         * {@code GET} и {@code HEAD}.
+         */
+        READ,
+        /**
+         * Изменение или удаление одного студента.
+         */
+        WRITE,
+        /**
+         * {@code POST /students}, {@code POST /students/import} и {@code DELETE /students}.
+         */
+        BULK
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Endpoint endpoint = classify(request);
+        if (endpoint == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        AdaptiveConcurrencyLimit limit = limits.get(endpoint);
+        boolean readsBusy = endpoint == Endpoint.BULK
+                && limits.get(Endpoint.READ).getUtilization() > bulkMaxReadUtilization;
+        if (readsBusy || !limit.tryAcquire()) {
+            rejected.get(endpoint).increment();
+            log.debug("log: Запрос {} {} отклонён: лимит {}, выполняется {}", request.getMethod(),
+                    request.getRequestURI(), limit.getLimit(), limit.getInFlight());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Сервер перегружен, повторите запрос позже");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        } finally {
+            limit.release(start, failed);
+        }
+    }
+
+    /**
+     * Возвращает лимит запросов указанного вида.
+     *
+     * @param endpoint вид запроса.
+     * @return лимит.
+     */
+    public AdaptiveConcurrencyLimit getLimit(Endpoint endpoint) {
+        return limits.get(endpoint);
+    }
+
+    /**
+     * Определяет вид запроса или возвращает {@code null}, если запрос не ограничивается.
+     */
+    static Endpoint classify(HttpServletRequest request) {
+        String path = PATH_HELPER.getPathWithinApplication(request);
+        if (UNLIMITED_PATHS.contains(path)) {
+            return null;
+        }
+        return switch (request.getMethod()) {
+            case "GET", "HEAD" -> Endpoint.READ;
+            case "POST" -> Endpoint.BULK;
+            case "DELETE" -> "/students".equals(path) ? Endpoint.BULK : Endpoint.WRITE;
+            default -> Endpoint.WRITE;
+        };
+    }
+}
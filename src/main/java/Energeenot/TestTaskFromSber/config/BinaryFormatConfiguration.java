@@ -0,0 +1,40 @@
+package Energeenot.TestTaskFromSber.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Двоичные форматы Smile ({@code application/x-jackson-smile}) и CBOR ({@code application/cbor}) для ответов
+ * и тел запросов наряду с JSON.
+ * <p>
+ *     Формат ответа выбирается по заголовку {@code Accept}, формат тела запроса — по {@code Content-Type};
+ *     без заголовка по-прежнему используется JSON. В двоичных форматах имена полей и числа не записываются текстом:
+ *     Smile к тому же записывает повторяющиеся имена полей ссылкой на первое вхождение, поэтому список студентов
+ *     вдвое меньше JSON и сериализуется быстрее.
+ * </p>
+ * <p>
+ *     Spring MVC добавляет такие конвертеры и сам, если библиотеки есть в classpath, но с отдельным
+ *     {@code ObjectMapper}. Здесь они строятся из {@link Jackson2ObjectMapperBuilder} Spring Boot, поэтому
+ *     настройки {@code spring.jackson.*} и модули Jackson действуют во всех форматах одинаково.
+ * </p>
+ */
+@Configuration
+@Profile("!reactive")
+public class BinaryFormatConfiguration {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,125 @@
+package Energeenot.TestTaskFromSber.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Источник данных, ограничивающий число одновременно открытых соединений.
+ * <p>
+ *     Перед обращением к пулу поток получает разрешение семафора и возвращает его при закрытии соединения.
+ *     Потоки сверх лимита ждут в очереди семафора в порядке прихода, не занимая потоки-носители,
+ *     а не в очереди пула соединений. Если разрешение не получено за {@code acquireTimeout},
+ *     выбрасывается {@link SQLTransientConnectionException} — то же исключение, что и у HikariCP при таймауте.
+ * </p>
+ */
+public class BoundedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long acquireTimeoutNanos;
+
+    public BoundedDataSource(DataSource dataSource, int maxConcurrency, Duration acquireTimeout) {
+        super(dataSource);
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return bounded(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        return bounded(() -> super.getConnection(username, password));
+    }
+
+    /**
+     * Возвращает максимальное число одновременно открытых соединений.
+     *
+     * @return лимит соединений.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Возвращает число соединений, которые можно открыть без ожидания.
+     *
+     * @return число свободных разрешений.
+     */
+    public int getAvailable() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Возвращает оценку числа потоков, ожидающих соединения.
+     *
+     * @return длина очереди семафора.
+     */
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("Не удалось получить соединение с базой за "
+                        + Duration.ofNanos(acquireTimeoutNanos) + ": открыто " + maxConcurrency + " соединений");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Ожидание соединения с базой прервано", e);
+        }
+    }
+
+    /**
+     * Открывает соединение и оборачивает его так, чтобы первый вызов {@link Connection#close()} вернул разрешение.
+     */
+    private Connection bounded(ConnectionSupplier supplier) throws SQLException {
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+
+        Connection get() throws SQLException;
+    }
+}
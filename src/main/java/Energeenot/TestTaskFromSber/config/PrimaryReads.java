@@ -0,0 +1,68 @@
+package Energeenot.TestTaskFromSber.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Закрепление чтений текущего потока за основной базой.
+ * <p>
+ *     Пока чтения закреплены, {@link ReadReplicaRoutingDataSource} открывает соединения только в основной базе,
+ *     в том числе для транзакций {@code @Transactional(readOnly = true)}. Так читаются данные, которые не должны
+ *     отставать от последних изменений: запросы клиента сразу после его изменений и значения, сохраняемые в кэш.
+ *     Если реплики не настроены, закрепление ни на что не влияет.
+ * </p>
+ */
+public final class PrimaryReads {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private PrimaryReads() {
+    }
+
+    /**
+     * Проверяет, закреплены ли чтения текущего потока за основной базой.
+     *
+     * @return {@code true}, если чтения закреплены.
+     */
+    public static boolean isPinned() {
+        return Boolean.TRUE.equals(PINNED.get());
+    }
+
+    /**
+     * Закрепляет чтения текущего потока за основной базой до закрытия возвращённой области.
+     *
+     * @return область закрепления; при закрытии восстанавливается прежнее состояние.
+     */
+    public static Scope pin() {
+        Boolean previous = PINNED.get();
+        PINNED.set(Boolean.TRUE);
+        return () -> {
+            if (previous == null) {
+                PINNED.remove();
+            } else {
+                PINNED.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Выполняет действие, читая данные из основной базы.
+     *
+     * @param action действие.
+     * @return результат действия.
+     */
+    public static <T> T call(Supplier<T> action) {
+        try (Scope ignored = pin()) {
+            return action.get();
+        }
+    }
+
+    /**
+     * Область закрепления чтений, см. {@link #pin()}.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,143 @@
+package Energeenot.TestTaskFromSber.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Чтение с реплик базы ({@code students.replica.enabled=true}).
+ * <p>
+ *     Источник данных, созданный Spring Boot по настройкам {@code spring.datasource.*}, становится основной базой
+ *     внутри {@link ReadReplicaRoutingDataSource}, а для каждого адреса из {@code students.replica.urls} создаётся
+ *     отдельный пул HikariCP только для чтения. Транзакции {@code @Transactional(readOnly = true)} выполняются
+ *     на репликах, изменения и миграции Flyway — в основной базе.
+ * </p>
+ * <p>
+ *     Изменяющие HTTP-запросы целиком выполняются в основной базе ({@link ReadYourWritesFilter}): при включённом
+ *     {@code spring.jpa.open-in-view} соединение удерживается до конца запроса, и чтение в начале запроса
+ *     иначе оставило бы последующие изменения на реплике.
+ * </p>
+ * <p>
+ *     Для проверки без кластера PostgreSQL реплики можно задать адресами второй базы H2, например
+ *     {@code students.replica.urls=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1}.
+ * </p>
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "students.replica", name = "enabled", havingValue = "true")
+@Slf4j
+public class ReadReplicaConfiguration {
+
+    @Bean
+    public static ReadReplicaPostProcessor readReplicaPostProcessor(ObjectProvider<StudentProperties> studentProperties,
+                                                                    ObjectProvider<DataSourceProperties> dataSourceProperties) {
+        return new ReadReplicaPostProcessor(studentProperties, dataSourceProperties);
+    }
+
+    @Bean
+    public MeterBinder readReplicaMetrics(DataSource dataSource) throws SQLException {
+        ReadReplicaRoutingDataSource routing = dataSource.unwrap(ReadReplicaRoutingDataSource.class);
+        return registry -> Gauge.builder("students.db.replicas.available", routing,
+                        ReadReplicaRoutingDataSource::getAvailableReplicas)
+                .description("Число реплик, на которые направляются чтения")
+                .register(registry);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(StudentProperties studentProperties) {
+        return new ReadYourWritesFilter(studentProperties.getReplica().getReadYourWritesWindow());
+    }
+
+    /**
+     * Оборачивает источник данных в {@link ReadReplicaRoutingDataSource} и закрывает пулы реплик при остановке.
+     * <p>
+     *     Выполняется раньше обработчиков без порядка, поэтому {@link BoundedDataSource} в режиме виртуальных потоков
+     *     ограничивает соединения со всеми базами вместе.
+     * </p>
+     */
+    public static class ReadReplicaPostProcessor implements DestructionAwareBeanPostProcessor, Ordered {
+
+        private final ObjectProvider<StudentProperties> studentProperties;
+        private final ObjectProvider<DataSourceProperties> dataSourceProperties;
+
+        ReadReplicaPostProcessor(ObjectProvider<StudentProperties> studentProperties,
+                                 ObjectProvider<DataSourceProperties> dataSourceProperties) {
+            this.studentProperties = studentProperties;
+            this.dataSourceProperties = dataSourceProperties;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource) || routing(bean) != null) {
+                return bean;
+            }
+            StudentProperties.Replica settings = studentProperties.getObject().getReplica();
+            DataSourceProperties primary = dataSourceProperties.getObject();
+            List<HikariDataSource> replicas = new ArrayList<>();
+            for (String url : settings.getUrls()) {
+                replicas.add(replica(replicas.size(), url, settings, primary));
+            }
+            log.info("log: Чтения направляются на {} реплик", replicas.size());
+            return new LazyConnectionDataSourceProxy(
+                    new ReadReplicaRoutingDataSource(dataSource, replicas, settings.getRetryInterval()));
+        }
+
+        @Override
+        public void postProcessBeforeDestruction(Object bean, String beanName) {
+            ReadReplicaRoutingDataSource routing = routing(bean);
+            if (routing != null) {
+                routing.close();
+            }
+        }
+
+        @Override
+        public boolean requiresDestruction(Object bean) {
+            return routing(bean) != null;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+
+        private static HikariDataSource replica(int index, String url, StudentProperties.Replica settings,
+                                                DataSourceProperties primary) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .username(settings.getUsername() != null ? settings.getUsername() : primary.determineUsername())
+                    .password(settings.getPassword() != null ? settings.getPassword() : primary.determinePassword())
+                    .build();
+            replica.setPoolName("students-replica-" + index);
+            replica.setMaximumPoolSize(settings.getMaximumPoolSize());
+            replica.setConnectionTimeout(settings.getConnectionTimeout().toMillis());
+            replica.setReadOnly(true);
+            return replica;
+        }
+
+        private static ReadReplicaRoutingDataSource routing(Object bean) {
+            try {
+                return bean instanceof DataSource dataSource && dataSource.isWrapperFor(ReadReplicaRoutingDataSource.class)
+                        ? dataSource.unwrap(ReadReplicaRoutingDataSource.class) : null;
+            } catch (SQLException e) {
+                return null;
+            }
+        }
+    }
+}
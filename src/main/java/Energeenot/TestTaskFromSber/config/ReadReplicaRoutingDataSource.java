@@ -0,0 +1,160 @@
+package Energeenot.TestTaskFromSber.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Источник данных, направляющий транзакции только для чтения на реплики, а остальные обращения — в основную базу.
+ * <p>
+ *     Источник выбирается при открытии соединения: для транзакции {@code @Transactional(readOnly = true)} —
+ *     следующая по кругу доступная реплика, в остальных случаях и при закреплении чтений ({@link PrimaryReads}) —
+ *     основная база. Признак транзакции только для чтения устанавливается уже после её начала, поэтому источник
+ *     используется через {@link LazyConnectionDataSourceProxy}, который откладывает открытие соединения
+ *     до первого запроса.
+ * </p>
+ * <p>
+ *     Если соединение с репликой открыть не удалось, реплика исключается из выбора на {@code retryInterval},
+ *     а соединение открывается на следующей реплике или, если доступных реплик не осталось, в основной базе.
+ * </p>
+ */
+@Slf4j
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final long retryIntervalNanos;
+    /**
+     * Момент {@link System#nanoTime()}, до которого реплика не выбирается; {@code 0} — реплика доступна.
+     */
+    private final AtomicLongArray unavailableUntil;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas, Duration retryInterval) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.retryIntervalNanos = retryInterval.toNanos();
+        this.unavailableUntil = new AtomicLongArray(this.replicas.size());
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int replica = 0; replica < this.replicas.size(); replica++) {
+            targets.put(replica, this.replicas.get(replica));
+        }
+        setTargetDataSources(targets);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || PrimaryReads.isPinned()) {
+            return PRIMARY;
+        }
+        int replica = nextAvailableReplica();
+        return replica < 0 ? PRIMARY : replica;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connect(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    /**
+     * Возвращает число реплик, на которые сейчас направляются чтения.
+     *
+     * @return число доступных реплик.
+     */
+    public int getAvailableReplicas() {
+        long now = System.nanoTime();
+        int available = 0;
+        for (int replica = 0; replica < replicas.size(); replica++) {
+            if (isAvailable(replica, now)) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Закрывает пулы соединений реплик и основной базы.
+     */
+    @Override
+    public void close() {
+        replicas.forEach(ReadReplicaRoutingDataSource::closeQuietly);
+        closeQuietly(primary);
+    }
+
+    /**
+     * Открывает соединение в выбранном источнике, переходя к следующему, если реплика недоступна.
+     * Каждая реплика пробуется не больше одного раза.
+     */
+    private Connection connect(ConnectionOpener opener) throws SQLException {
+        Object key = determineCurrentLookupKey();
+        for (int attempt = 0; attempt < replicas.size() && key instanceof Integer replica; attempt++) {
+            try {
+                return opener.open(replicas.get(replica));
+            } catch (SQLException e) {
+                unavailableUntil.set(replica, System.nanoTime() + retryIntervalNanos);
+                log.warn("log: Реплика {} недоступна, чтения переданы другим источникам на {}: {}",
+                        replica, Duration.ofNanos(retryIntervalNanos), e.getMessage());
+            }
+            key = determineCurrentLookupKey();
+        }
+        return opener.open(primary);
+    }
+
+    private int nextAvailableReplica() {
+        if (replicas.isEmpty()) {
+            return -1;
+        }
+        long now = System.nanoTime();
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int offset = 0; offset < replicas.size(); offset++) {
+            int replica = (start + offset) % replicas.size();
+            if (isAvailable(replica, now)) {
+                return replica;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isAvailable(int replica, long now) {
+        long until = unavailableUntil.get(replica);
+        return until == 0 || until - now <= 0;
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.error("log: Не удалось закрыть пул соединений {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionOpener {
+
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+}
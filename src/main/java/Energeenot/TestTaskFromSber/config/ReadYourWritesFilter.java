@@ -0,0 +1,72 @@
+package Energeenot.TestTaskFromSber.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Закрепляет чтения клиента за основной базой на короткое время после его изменений.
+ * <p>
+ *     Изменяющий запрос ({@code POST}, {@code PUT}, {@code PATCH}, {@code DELETE}) целиком выполняется в основной базе
+ *     и получает cookie {@value #COOKIE} со сроком {@code students.replica.read-your-writes-window}. Пока cookie
+ *     действует, запросы клиента тоже читают из основной базы, поэтому клиент видит свои изменения, даже если
+ *     реплика отстаёт. Остальные запросы читают с реплик.
+ * </p>
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "students-primary-until";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        if (write && !window.isZero()) {
+            Cookie cookie = new Cookie(COOKIE, String.valueOf(now + window.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (window.toMillis() + 999) / 1000));
+            response.addCookie(cookie);
+        }
+        if (!write && !recentlyWrote(request, now)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try (PrimaryReads.Scope ignored = PrimaryReads.pin()) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private static boolean recentlyWrote(HttpServletRequest request, long now) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > now;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
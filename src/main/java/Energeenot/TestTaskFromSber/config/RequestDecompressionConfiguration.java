@@ -0,0 +1,26 @@
+package Energeenot.TestTaskFromSber.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Распаковка сжатых тел запросов к {@code /students} ({@code students.request-decompression.enabled=true},
+ * по умолчанию включено), см. {@link RequestDecompressionFilter}.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "students.request-decompression", name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+public class RequestDecompressionConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<RequestDecompressionFilter> requestDecompressionFilter(StudentProperties studentProperties) {
+        FilterRegistrationBean<RequestDecompressionFilter> registration = new FilterRegistrationBean<>(
+                new RequestDecompressionFilter(studentProperties.getRequestDecompression().getMaxSize().toBytes()));
+        registration.addUrlPatterns("/students", "/students/*");
+        return registration;
+    }
+}
@@ -0,0 +1,213 @@
+package Energeenot.TestTaskFromSber.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Распаковывает тела запросов с заголовком {@code Content-Encoding: gzip}.
+ * <p>
+ *     Массовые {@code POST /students} и {@code POST /students/import} передают мегабайты JSON, CSV или NDJSON,
+ *     которые сжимаются в 10–15 раз. Тело распаковывается по мере чтения, поэтому контроллер и потоковая загрузка
+ *     получают обычный {@link InputStream}, а в памяти не оказывается ни сжатое, ни распакованное тело целиком.
+ *     Заголовки {@code Content-Encoding} и {@code Content-Length} скрываются: они относятся к сжатому телу.
+ * </p>
+ * <p>
+ *     Распакованное тело ограничено {@code students.request-decompression.max-size}: небольшой сжатый запрос
+ *     может распаковаться в гигабайты, и при превышении чтение прерывается ответом 413 (PAYLOAD_TOO_LARGE).
+ *     На другие значения {@code Content-Encoding} возвращается 415 (UNSUPPORTED_MEDIA_TYPE) с заголовком
+ *     {@code Accept-Encoding: gzip}.
+ * </p>
+ * <p>
+ *     Распакованное тело читается только блокирующим чтением: контроллеры {@code /students} читают тело
+ *     синхронно в потоке запроса (конвертеры сообщений Spring MVC и потоковая загрузка), а неблокирующее чтение
+ *     через {@link ReadListener} в приложении не используется. Поэтому поток всегда «готов», а регистрация
+ *     {@link ReadListener} отклоняется.
+ * </p>
+ */
+public class RequestDecompressionFilter extends OncePerRequestFilter {
+
+    private static final Set<String> GZIP_ENCODINGS = Set.of("gzip", "x-gzip");
+    private static final String IDENTITY_ENCODING = "identity";
+    private static final Set<String> HIDDEN_HEADERS = Set.of(
+            HttpHeaders.CONTENT_ENCODING.toLowerCase(Locale.ROOT), HttpHeaders.CONTENT_LENGTH.toLowerCase(Locale.ROOT));
+
+    private final long maxSize;
+
+    public RequestDecompressionFilter(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (encoding == null || encoding.isBlank() || IDENTITY_ENCODING.equalsIgnoreCase(encoding.trim())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!GZIP_ENCODINGS.contains(encoding.trim().toLowerCase(Locale.ROOT))) {
+            response.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+                    "Поддерживается только Content-Encoding: gzip");
+            return;
+        }
+        filterChain.doFilter(new DecompressedRequest(request, maxSize), response);
+    }
+
+    /**
+     * Запрос с распакованным телом.
+     */
+    private static class DecompressedRequest extends HttpServletRequestWrapper {
+
+        private final long maxSize;
+        private ServletInputStream inputStream;
+        private BufferedReader reader;
+
+        DecompressedRequest(HttpServletRequest request, long maxSize) {
+            super(request);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new InflatingInputStream(new GZIPInputStream(super.getInputStream()), maxSize);
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if (reader == null) {
+                String encoding = getCharacterEncoding();
+                Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+                reader = new BufferedReader(new InputStreamReader(getInputStream(), charset));
+            }
+            return reader;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isHidden(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isHidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                    .filter(name -> !isHidden(name))
+                    .toList());
+        }
+
+        private static boolean isHidden(String name) {
+            return name != null && HIDDEN_HEADERS.contains(name.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Поток распакованного тела, который прерывает чтение после {@code maxSize} байт.
+     */
+    private static class InflatingInputStream extends ServletInputStream {
+
+        private final InputStream delegate;
+        private final long maxSize;
+        private long read;
+        private boolean finished;
+
+        InflatingInputStream(InputStream delegate, long maxSize) {
+            this.delegate = delegate;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            count(b < 0 ? -1 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = delegate.read(buffer, offset, length);
+            count(n);
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return delegate.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        /**
+         * Неблокирующее чтение не поддерживается: готовность исходного потока не означает готовности распакованного —
+         * {@link GZIPInputStream} может блокироваться, дочитывая заголовок или неполный блок deflate. Тело до фильтра
+         * никто не читает асинхронно, см. описание класса.
+         */
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("Асинхронное чтение сжатого тела не поддерживается");
+        }
+
+        private void count(int n) {
+            if (n < 0) {
+                finished = true;
+                return;
+            }
+            read += n;
+            if (read > maxSize) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Распакованное тело запроса больше " + maxSize + " байт");
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package Energeenot.TestTaskFromSber.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Счётчик SQL-запросов, подготовленных Hibernate в текущем потоке.
+ * <p>
+ *     Регистрируется как {@link StatementInspector}, поэтому видит каждый запрос, который Hibernate отправляет
+ *     в базу, и не меняет его текст. Счётчик сбрасывается в начале обработки HTTP-запроса и записывается
+ *     в метрику в конце (см. {@link StudentMetricsConfiguration}), что позволяет заметить проблему N+1
+ *     или построчную обработку по росту числа запросов на один HTTP-запрос.
+ * </p>
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private final ThreadLocal<int[]> statements = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        statements.get()[0]++;
+        return sql;
+    }
+
+    /**
+     * Обнуляет счётчик текущего потока.
+     */
+    public void reset() {
+        statements.get()[0] = 0;
+    }
+
+    /**
+     * Возвращает число запросов, подготовленных в текущем потоке после последнего сброса.
+     *
+     * @return число SQL-запросов.
+     */
+    public int current() {
+        return statements.get()[0];
+    }
+}
@@ -0,0 +1,94 @@
+package Energeenot.TestTaskFromSber.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Метрики, которые не регистрируются Spring Boot автоматически.
+ * <p>
+ *     Время ответа эндпоинтов ({@code http.server.requests}), ожидание соединения HikariCP
+ *     ({@code hikaricp.connections.acquire}) и статистика Hibernate ({@code hibernate.*}) публикуются
+ *     автоконфигурацией Actuator, их гистограммы включаются в {@code application.properties}.
+ *     Здесь добавляется распределение числа SQL-запросов на один HTTP-запрос — {@code students.http.sql.statements}
+ *     с теми же тегами {@code method} и {@code uri}, что и у {@code http.server.requests}.
+ * </p>
+ */
+@Configuration
+@Profile("!reactive")
+public class StudentMetricsConfiguration {
+
+    /**
+     * Имя метрики числа SQL-запросов на один HTTP-запрос.
+     */
+    public static final String SQL_STATEMENTS_METRIC = "students.http.sql.statements";
+
+    @Bean
+    public SqlStatementCounter sqlStatementCounter() {
+        return new SqlStatementCounter();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer(SqlStatementCounter sqlStatementCounter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlStatementCounter);
+    }
+
+    @Bean
+    public WebMvcConfigurer sqlStatementMetricsConfigurer(SqlStatementCounter sqlStatementCounter,
+                                                          MeterRegistry meterRegistry) {
+        HandlerInterceptor interceptor = new SqlStatementMetricsInterceptor(sqlStatementCounter, meterRegistry);
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor);
+            }
+        };
+    }
+
+    /**
+     * Записывает число SQL-запросов, выполненных при обработке HTTP-запроса.
+     * <p>
+     *     Описание метрики собирается один раз при создании; на каждый запрос остаётся только поиск
+     *     распределения по тегам {@code method} и {@code uri} среди уже зарегистрированных.
+     * </p>
+     */
+    static class SqlStatementMetricsInterceptor implements HandlerInterceptor {
+
+        private final SqlStatementCounter sqlStatementCounter;
+        private final Meter.MeterProvider<DistributionSummary> sqlStatements;
+
+        SqlStatementMetricsInterceptor(SqlStatementCounter sqlStatementCounter, MeterRegistry meterRegistry) {
+            this.sqlStatementCounter = sqlStatementCounter;
+            this.sqlStatements = DistributionSummary.builder(SQL_STATEMENTS_METRIC)
+                    .description("Число SQL-запросов на один HTTP-запрос")
+                    .baseUnit("statements")
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .withRegistry(meterRegistry);
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            sqlStatementCounter.reset();
+            return true;
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                    Exception ex) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+            sqlStatements.withTags("method", request.getMethod(), "uri", uri).record(sqlStatementCounter.current());
+        }
+    }
+}
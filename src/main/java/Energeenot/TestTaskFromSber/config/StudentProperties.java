@@ -0,0 +1,515 @@
+package Energeenot.TestTaskFromSber.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Настройки приложения, относящиеся к работе со студентами.
+ * <p>
+ *     Значения читаются из {@code application.properties} с префиксом {@code students}.
+ *     Для каждого параметра задано значение по умолчанию, поэтому все настройки необязательны.
+ *     Значения вне допустимых границ останавливают запуск приложения.
+ * </p>
+ */
+@ConfigurationProperties(prefix = "students")
+@Validated
+@Getter
+@Setter
+public class StudentProperties {
+
+    /**
+     * Настройки постраничной выдачи списка студентов.
+     */
+    @Valid
+    private Pagination pagination = new Pagination();
+
+    /**
+     * Настройки массового добавления студентов.
+     */
+    @Valid
+    private Insert insert = new Insert();
+
+    /**
+     * Настройки массового удаления студентов.
+     */
+    @Valid
+    private Delete delete = new Delete();
+
+    /**
+     * Настройки получения студентов по списку идентификаторов.
+     */
+    @Valid
+    private Fetch fetch = new Fetch();
+
+    /**
+     * Настройки кэша студентов по идентификатору.
+     */
+    private Cache cache = new Cache();
+
+    /**
+     * Настройки доступа к базе при обработке запросов в виртуальных потоках.
+     */
+    private Database database = new Database();
+
+    /**
+     * Настройки журналирования запросов.
+     */
+    private Logging logging = new Logging();
+
+    /**
+     * Настройки чтения с реплик базы.
+     */
+    private Replica replica = new Replica();
+
+    /**
+     * Настройки журнала изменений студентов.
+     */
+    private Feed feed = new Feed();
+
+    /**
+     * Настройки статистики студентов.
+     */
+    private Statistics statistics = new Statistics();
+
+    /**
+     * Настройки нечёткого поиска по ФИО.
+     */
+    private Fuzzy fuzzy = new Fuzzy();
+
+    /**
+     * Настройки объединения одинаковых одновременных чтений.
+     */
+    private Coalescing coalescing = new Coalescing();
+
+    /**
+     * Настройки ограничения одновременных запросов к {@code /students}.
+     */
+    private Admission admission = new Admission();
+
+    /**
+     * Настройки распаковки сжатых тел запросов.
+     */
+    private RequestDecompression requestDecompression = new RequestDecompression();
+
+    /**
+     * Настройки постраничной выдачи.
+     */
+    @Getter
+    @Setter
+    public static class Pagination {
+
+        /**
+         * Наибольшее значение {@code max-limit} и {@code unpaged-max-rows}: из базы запрашивается на одну строку
+         * больше, чтобы определить, есть ли следующие строки, и это число должно помещаться в {@code int}.
+         */
+        public static final int MAX_ROWS = Integer.MAX_VALUE - 1;
+
+        /**
+         * Размер страницы, если клиент не передал параметр {@code limit}.
+         */
+        @Positive
+        private int defaultLimit = 100;
+
+        /**
+         * Максимально допустимый размер страницы.
+         */
+        @Positive
+        @Max(MAX_ROWS)
+        private int maxLimit = 1000;
+
+        /**
+         * Жёсткое ограничение на число строк при выдаче всех студентов без пагинации.
+         */
+        @Positive
+        @Max(MAX_ROWS)
+        private int unpagedMaxRows = 10000;
+    }
+
+    /**
+     * Настройки массового добавления.
+     */
+    @Getter
+    @Setter
+    public static class Insert {
+
+        /**
+         * Число студентов, после которого изменения сбрасываются в базу одним пакетом JDBC
+         * и контекст персистентности очищается.
+         */
+        @Min(1)
+        private int batchSize = 50;
+
+        /**
+         * Число студентов, сохраняемых в одной транзакции при потоковой загрузке, как через {@code COPY},
+         * так и пакетами INSERT. При ошибке откатывается только текущая порция.
+         */
+        @Min(1)
+        private int importChunkSize = 1000;
+
+        /**
+         * Число студентов, сохраняемых в одной транзакции при добавлении с частичным успехом.
+         */
+        @Min(1)
+        private int chunkSize = 1000;
+    }
+
+    /**
+     * Настройки массового удаления.
+     */
+    @Getter
+    @Setter
+    public static class Delete {
+
+        /**
+         * Число идентификаторов в одном запросе {@code DELETE ... WHERE id IN (...)}.
+         */
+        @Min(1)
+        private int batchSize = 500;
+    }
+
+    /**
+     * Настройки получения по списку идентификаторов.
+     */
+    @Getter
+    @Setter
+    public static class Fetch {
+
+        /**
+         * Число идентификаторов в одном запросе {@code SELECT ... WHERE id IN (...)}.
+         */
+        @Min(1)
+        private int batchSize = 500;
+
+        /**
+         * Максимальное число идентификаторов в одном HTTP-запросе.
+         */
+        private int maxIds = 1000;
+    }
+
+    /**
+     * Настройки кэша {@code StudentService#getStudentById}.
+     */
+    @Getter
+    @Setter
+    public static class Cache {
+
+        /**
+         * Включён ли кэш. При выключенном кэше каждый запрос обращается к базе.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Максимальное число записей в кэше.
+         */
+        private long maximumSize = 10000;
+
+        /**
+         * Время жизни записи о найденном студенте.
+         */
+        private Duration timeToLive = Duration.ofMinutes(5);
+
+        /**
+         * Время жизни записи об отсутствующем студенте.
+         */
+        private Duration negativeTimeToLive = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Настройки ограничения одновременных обращений к базе.
+     * <p>
+     *     Применяются только при {@code spring.threads.virtual.enabled=true}, см. {@link VirtualThreadConfiguration}.
+     * </p>
+     */
+    @Getter
+    @Setter
+    public static class Database {
+
+        /**
+         * Максимальное число одновременно открытых соединений. {@code 0} — по размеру пула HikariCP.
+         */
+        private int maxConcurrency = 0;
+
+        /**
+         * Максимальное время ожидания свободного соединения.
+         */
+        private Duration acquireTimeout = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Настройки журналирования запросов, см. {@link StudentRequestLog}.
+     */
+    @Getter
+    @Setter
+    public static class Logging {
+
+        /**
+         * Доля запросов, для которых в журнал пишутся подробности, по эндпоинтам: {@code create}, {@code update},
+         * {@code delete}. От {@code 0} (по умолчанию, подробности не пишутся) до {@code 1} (каждый запрос).
+         */
+        private Map<String, Double> detailSampleRate = new HashMap<>();
+
+        /**
+         * Максимальное число элементов запроса в одной подробной записи.
+         */
+        private int detailMaxItems = 10;
+
+        /**
+         * Размер очереди асинхронной записи журнала; читается в {@code logback-spring.xml}.
+         */
+        private int queueSize = 8192;
+    }
+
+    /**
+     * Настройки чтения с реплик базы, см. {@link ReadReplicaConfiguration}.
+     */
+    @Getter
+    @Setter
+    public static class Replica {
+
+        /**
+         * Направляются ли транзакции только для чтения на реплики.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Адреса JDBC реплик. Чтения распределяются между ними по кругу.
+         */
+        private List<String> urls = new ArrayList<>();
+
+        /**
+         * Имя пользователя реплик; если не задано, используется имя пользователя основной базы.
+         */
+        private String username;
+
+        /**
+         * Пароль реплик; если не задан, используется пароль основной базы.
+         */
+        private String password;
+
+        /**
+         * Максимальный размер пула соединений каждой реплики.
+         */
+        private int maximumPoolSize = 10;
+
+        /**
+         * Максимальное время ожидания соединения с репликой, после которого чтение переходит к другому источнику.
+         */
+        private Duration connectionTimeout = Duration.ofSeconds(2);
+
+        /**
+         * Время, на которое недоступная реплика исключается из выбора.
+         */
+        private Duration retryInterval = Duration.ofSeconds(30);
+
+        /**
+         * Время после изменения, в течение которого запросы того же клиента читают из основной базы.
+         * {@code 0} — чтения после изменений не закрепляются.
+         */
+        private Duration readYourWritesWindow = Duration.ofSeconds(2);
+    }
+
+    /**
+     * Настройки журнала изменений {@code GET /students/changes}, см. {@code StudentChangeFeed}.
+     */
+    @Getter
+    @Setter
+    public static class Feed {
+
+        /**
+         * Максимальное число событий, ожидающих отправки одному подписчику. Подписчик, который не успевает
+         * получать события, отключается и при переподключении продолжает чтение из журнала.
+         */
+        private int bufferSize = 1000;
+
+        /**
+         * Период проверки журнала на события, записанные другими экземплярами приложения.
+         */
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        /**
+         * Период отправки пустого комментария подписчику, если событий нет.
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+        /**
+         * Число событий, читаемых из журнала одним запросом.
+         */
+        private int batchSize = 500;
+
+        /**
+         * Время хранения событий в журнале. Продолжить чтение с более старого события нельзя.
+         */
+        private Duration retention = Duration.ofHours(24);
+    }
+
+    /**
+     * Настройки статистики {@code GET /students/statistics}, см. {@code StudentStatisticsAggregate}.
+     */
+    @Getter
+    @Setter
+    public static class Statistics {
+
+        /**
+         * Период сверки статистики в памяти с базой.
+         */
+        private Duration reconcileInterval = Duration.ofMinutes(10);
+
+        /**
+         * Ширина возрастной группы в годах, если она не передана в запросе.
+         */
+        private int defaultAgeBucketWidth = 5;
+
+        /**
+         * Процентили средней оценки, если они не переданы в запросе.
+         */
+        private List<Double> defaultPercentiles = List.of(0.5, 0.9, 0.99);
+    }
+
+    /**
+     * Настройки нечёткого поиска {@code GET /students/search/fuzzy}, см. {@code StudentNameIndex}.
+     */
+    @Getter
+    @Setter
+    public static class Fuzzy {
+
+        /**
+         * Минимальная доля триграмм запроса, которые должны встречаться в ФИО студента.
+         */
+        private double minSimilarity = 0.5;
+
+        /**
+         * Число результатов, если оно не передано в запросе.
+         */
+        private int defaultLimit = 20;
+
+        /**
+         * Максимальное число результатов.
+         */
+        private int maxLimit = 100;
+
+        /**
+         * Максимальная длина строки запроса.
+         */
+        private int maxQueryLength = 200;
+    }
+
+    /**
+     * Настройки объединения одинаковых одновременных чтений, см. {@code StudentRequestCoalescer}.
+     */
+    @Getter
+    @Setter
+    public static class Coalescing {
+
+        /**
+         * Включено ли объединение. При выключенном объединении каждый вызов выполняет свой запрос.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Время, в течение которого к выполняющемуся запросу присоединяются новые вызовы с тем же ключом
+         * и которое они ждут его результата, отсчитываемое от начала запроса.
+         */
+        private Duration timeout = Duration.ofSeconds(5);
+    }
+
+    /**
+     * Настройки ограничения одновременных запросов к {@code /students}, см. {@link AdmissionControlFilter}.
+     */
+    @Getter
+    @Setter
+    public static class Admission {
+
+        /**
+         * Включено ли ограничение. При выключенном ограничении запросы ждут соединения с базой без ограничения.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Значение заголовка {@code Retry-After} в ответе 503 (SERVICE_UNAVAILABLE) на отклонённый запрос.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        /**
+         * Доля лимита чтений, выше которой массовые запросы отклоняются, чтобы не отнимать соединения у чтений.
+         */
+        private double bulkMaxReadUtilization = 0.5;
+
+        /**
+         * Лимит чтений: {@code GET} и {@code HEAD}.
+         */
+        private Limit read = new Limit(100, 4, 1000, Duration.ofMillis(500));
+
+        /**
+         * Лимит изменений одного студента: {@code PATCH} и {@code DELETE /students/{id}}.
+         */
+        private Limit write = new Limit(50, 2, 500, Duration.ofSeconds(1));
+
+        /**
+         * Лимит массовых запросов: {@code POST /students}, {@code POST /students/import} и {@code DELETE /students}.
+         */
+        private Limit bulk = new Limit(4, 1, 16, Duration.ofSeconds(30));
+
+        /**
+         * Лимит одновременных запросов одного вида.
+         */
+        @Getter
+        @Setter
+        @NoArgsConstructor
+        @AllArgsConstructor
+        public static class Limit {
+
+            /**
+             * Лимит при запуске.
+             */
+            private int initialLimit = 10;
+
+            /**
+             * Нижняя граница лимита.
+             */
+            private int minLimit = 1;
+
+            /**
+             * Верхняя граница лимита.
+             */
+            private int maxLimit = 100;
+
+            /**
+             * Время ответа, при превышении которого лимит уменьшается.
+             */
+            private Duration latencyTarget = Duration.ofSeconds(1);
+        }
+    }
+
+    /**
+     * Настройки распаковки тел запросов {@code Content-Encoding: gzip}, см. {@link RequestDecompressionFilter}.
+     */
+    @Getter
+    @Setter
+    public static class RequestDecompression {
+
+        /**
+         * Принимаются ли сжатые тела запросов. При выключенной распаковке тело передаётся контроллеру как есть.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Максимальный размер тела после распаковки; при превышении запрос отклоняется со статусом 413.
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(256);
+    }
+}
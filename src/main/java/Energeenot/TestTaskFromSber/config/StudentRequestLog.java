@@ -0,0 +1,74 @@
+package Energeenot.TestTaskFromSber.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Выборочный подробный журнал запросов к эндпоинтам студентов.
+ * <p>
+ *     Обычные записи журнала содержат только число студентов и идентификаторы. Содержимое запроса пишется
+ *     в журнал лишь для доли запросов, заданной для эндпоинта настройкой
+ *     {@code students.logging.detail-sample-rate.<эндпоинт>}, и не больше {@code students.logging.detail-max-items}
+ *     элементов. Для запроса, не попавшего в выборку, строки не формируются и {@code toString()} не вызывается,
+ *     поэтому стоимость проверки не зависит от размера запроса.
+ * </p>
+ */
+@Component
+@Slf4j
+public class StudentRequestLog {
+
+    private final Map<String, Double> sampleRates;
+    private final int maxItems;
+
+    public StudentRequestLog(StudentProperties studentProperties) {
+        StudentProperties.Logging settings = studentProperties.getLogging();
+        this.sampleRates = Map.copyOf(settings.getDetailSampleRate());
+        this.maxItems = settings.getDetailMaxItems();
+    }
+
+    /**
+     * Решает, пишутся ли подробности текущего запроса к эндпоинту.
+     *
+     * @param endpoint имя эндпоинта, например {@code create}.
+     * @return {@code true}, если запрос попал в выборку и уровень {@code INFO} включён.
+     */
+    public boolean isSampled(String endpoint) {
+        Double rate = sampleRates.get(endpoint);
+        if (rate == null || rate <= 0 || !log.isInfoEnabled()) {
+            return false;
+        }
+        return rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    /**
+     * Пишет первые элементы запроса, если запрос попал в выборку.
+     *
+     * @param endpoint имя эндпоинта.
+     * @param items    элементы запроса.
+     */
+    public void items(String endpoint, List<?> items) {
+        if (!isSampled(endpoint)) {
+            return;
+        }
+        int shown = Math.min(items.size(), maxItems);
+        log.info("log: Подробности запроса endpoint={} count={} shown={} items={}",
+                endpoint, items.size(), shown, items.subList(0, shown));
+    }
+
+    /**
+     * Пишет содержимое запроса к одному студенту, если запрос попал в выборку.
+     *
+     * @param endpoint имя эндпоинта.
+     * @param id       идентификатор студента.
+     * @param item     содержимое запроса.
+     */
+    public void item(String endpoint, int id, Object item) {
+        if (isSampled(endpoint)) {
+            log.info("log: Подробности запроса endpoint={} id={} item={}", endpoint, id, item);
+        }
+    }
+}
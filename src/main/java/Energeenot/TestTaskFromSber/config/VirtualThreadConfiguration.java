@@ -0,0 +1,78 @@
+package Energeenot.TestTaskFromSber.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Настройки режима обработки запросов в виртуальных потоках ({@code spring.threads.virtual.enabled=true}).
+ * <p>
+ *     Сам режим включает Spring Boot: Tomcat и асинхронные задачи получают исполнитель виртуальных потоков.
+ *     Число запросов в обработке перестаёт ограничиваться пулом потоков Tomcat, поэтому здесь источник данных
+ *     оборачивается в {@link BoundedDataSource}: к базе одновременно обращается не больше
+ *     {@code students.database.max-concurrency} потоков, а остальные ждут в очереди семафора, а не в пуле HikariCP.
+ * </p>
+ * <p>
+ *     Путь JDBC не закрепляет виртуальный поток за потоком-носителем: драйвер PostgreSQL с версии 42.6
+ *     и HikariCP используют {@link java.util.concurrent.locks.ReentrantLock} вместо {@code synchronized},
+ *     загрузка в {@code StudentCache} выполняется вне блокировок Caffeine. Код, который обращается к базе,
+ *     не должен вызываться внутри {@code synchronized}; проверить это можно с {@code -Djdk.tracePinnedThreads=short}.
+ * </p>
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Slf4j
+public class VirtualThreadConfiguration {
+
+    /**
+     * Лимит, если размер пула не задан: совпадает с размером пула HikariCP по умолчанию.
+     */
+    private static final int DEFAULT_MAX_CONCURRENCY = 10;
+
+    @Bean
+    public static BeanPostProcessor boundedDataSourcePostProcessor(ObjectProvider<StudentProperties> studentProperties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof BoundedDataSource) {
+                    return bean;
+                }
+                StudentProperties.Database settings = studentProperties.getObject().getDatabase();
+                int maxConcurrency = settings.getMaxConcurrency();
+                if (maxConcurrency <= 0) {
+                    HikariDataSource hikari =
+                            DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class, HikariDataSource.class);
+                    maxConcurrency = hikari != null && hikari.getMaximumPoolSize() > 0
+                            ? hikari.getMaximumPoolSize() : DEFAULT_MAX_CONCURRENCY;
+                }
+                log.info("log: Обращения к базе ограничены {} одновременными соединениями", maxConcurrency);
+                return new BoundedDataSource(dataSource, maxConcurrency, settings.getAcquireTimeout());
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder boundedDataSourceMetrics(DataSource dataSource) throws SQLException {
+        BoundedDataSource bounded = dataSource.unwrap(BoundedDataSource.class);
+        return registry -> {
+            Gauge.builder("students.db.connections.waiting", bounded, BoundedDataSource::getWaiting)
+                    .description("Число потоков, ожидающих соединения с базой")
+                    .register(registry);
+            Gauge.builder("students.db.connections.available", bounded, BoundedDataSource::getAvailable)
+                    .description("Число соединений, которые можно открыть без ожидания")
+                    .register(registry);
+        };
+    }
+}
@@ -1,14 +1,48 @@
 package Energeenot.TestTaskFromSber.controller;
 
+import Energeenot.TestTaskFromSber.config.StudentRequestLog;
+import Energeenot.TestTaskFromSber.dto.BulkDeleteResult;
+import Energeenot.TestTaskFromSber.dto.BulkInsertResult;
+import Energeenot.TestTaskFromSber.dto.CacheStatistics;
+import Energeenot.TestTaskFromSber.dto.ImportResult;
+import Energeenot.TestTaskFromSber.dto.StudentBatch;
+import Energeenot.TestTaskFromSber.dto.StudentMatch;
+import Energeenot.TestTaskFromSber.dto.StudentPage;
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
+import Energeenot.TestTaskFromSber.dto.StudentSearchCriteria;
+import Energeenot.TestTaskFromSber.dto.StudentSearchPage;
+import Energeenot.TestTaskFromSber.dto.StudentStatistics;
 import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import Energeenot.TestTaskFromSber.service.StudentChangeFeed;
+import Energeenot.TestTaskFromSber.service.StudentImportService;
 import Energeenot.TestTaskFromSber.service.StudentService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Контроллер для обработки HTTP-запросов, связанных с управлением студентами.
@@ -18,26 +52,159 @@ import java.util.List;
  * </p>
  */
 @RestController
+@Profile("!reactive")
 @RequestMapping("/students")
 @RequiredArgsConstructor
 @Slf4j
 public class StudentController {
 
+    private static final String PREFER_HEADER = "Prefer";
+    private static final String RETURN_MINIMAL = "return=minimal";
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
     private final StudentService studentService;
+    private final StudentImportService studentImportService;
+    private final StudentChangeFeed studentChangeFeed;
+    private final ObjectMapper objectMapper;
+    private final StudentRequestLog requestLog;
+
+    /**
+     * Получение списка всех студентов без пагинации.
+     * <p>
+     *     Метод обрабатывает HTTP GET запросы по пути {@code /students?unpaged=true} и возвращает список всех студентов,
+     *     хранящихся в базе данных. Число строк ограничено настройкой {@code students.pagination.unpaged-max-rows}.
+     *     Параметр {@code fields} ограничивает выдачу перечисленными полями. С заголовком
+     *     {@code Accept: application/x-jackson-smile} или {@code application/cbor} список возвращается в двоичном
+     *     формате, см. {@link Energeenot.TestTaskFromSber.config.BinaryFormatConfiguration}.
+     * </p>
+     *
+     * @param fields Поля студента, например {@code id,surname,averageMark}; если не переданы, возвращаются все поля.
+     * @return Список всех студентов со слабым {@code ETag}; при совпадении с {@code If-None-Match} — статус 304.
+     * @throws ResponseStatusException Если студентов больше допустимого числа строк.
+     */
+    @GetMapping(params = "unpaged=true")
+    public ResponseEntity<List<?>> getAllStudents(@RequestParam(required = false) List<String> fields) {
+        log.info("log: Пришёл запрос на поиск всех студентов без пагинации с полями {}", fields);
+        List<?> students = fields == null ? studentService.getAllStudents() : studentService.getAllStudents(fields);
+        return ResponseEntity.ok().eTag(StudentETags.of(students, null)).varyBy(HttpHeaders.ACCEPT).body(students);
+    }
 
     /**
-     * Получение списка всех студентов.
+     * Получение страницы студентов.
      * <p>
-     *     Метод обрабатывает HTTP GET запросы по пути {@code /students} и возвращает список всех студентов,
-     *     хранящихся в базе данных.
+     *     Метод обрабатывает HTTP GET запросы по пути {@code /students?after={id}&limit={N}}.
+     *     Студенты упорядочены по идентификатору, в ответе возвращается курсор {@code nextCursor} — числовой
+     *     идентификатор последнего студента страницы, который нужно передать в параметре {@code after} для получения следующей страницы.
+     *     Параметр {@code fields} ограничивает выдачу перечисленными полями.
      * </p>
      *
-     * @return Список всех студентов.
+     * @param after  Идентификатор последнего студента предыдущей страницы; для первой страницы не передаётся.
+     * @param limit  Размер страницы; если не передан, используется размер по умолчанию.
+     * @param fields Поля студента; если не переданы, возвращаются все поля.
+     * @return Страница студентов со слабым {@code ETag}; при совпадении с {@code If-None-Match} — статус 304.
+     * @throws ResponseStatusException Если размер страницы или поля некорректны.
      */
     @GetMapping
-    public List<Student> getAllStudents() {
-        log.info("log: Пришёл запрос на поиск всех студентов");
-        return studentService.getAllStudents();
+    public ResponseEntity<StudentPage<?>> getStudentsPage(@RequestParam(required = false) Integer after,
+                                                          @RequestParam(required = false) Integer limit,
+                                                          @RequestParam(required = false) List<String> fields) {
+        log.info("log: Пришёл запрос на поиск страницы студентов после id {} размером {} с полями {}", after, limit, fields);
+        StudentPage<?> page = fields == null
+                ? studentService.getStudentsPage(after, limit)
+                : studentService.getStudentsPage(after, limit, fields);
+        return withETag(page);
+    }
+
+    /**
+     * Получение студентов по списку идентификаторов.
+     * <p>
+     *     Метод обрабатывает HTTP GET запросы по пути {@code /students?ids=1,2,3}. Заменяет множество отдельных
+     *     запросов {@code GET /students/{id}} одним: студенты загружаются из базы запросами {@code WHERE id IN (...)}.
+     *     Найденные студенты возвращаются в порядке запроса, отсутствующие идентификаторы — отдельным списком.
+     * </p>
+     *
+     * @param ids Идентификаторы студентов.
+     * @return Найденные студенты и отсутствующие идентификаторы.
+     * @throws ResponseStatusException Если список пуст, слишком велик или содержит пустой идентификатор,
+     *                                 например {@code ?ids=1,,2}.
+     */
+    @GetMapping(params = "ids")
+    public StudentBatch getStudentsByIds(@RequestParam List<Integer> ids) {
+        log.info("log: Пришёл запрос на поиск {} студентов по id", ids.size());
+        return studentService.getStudentsByIds(ids);
+    }
+
+    /**
+     * Поиск студентов по условиям.
+     * <p>
+     *     Метод обрабатывает HTTP GET запросы по пути
+     *     {@code /students/search?surname=&name=&minAge=&maxAge=&minMark=&maxMark=&sort=&after=&limit=}.
+     *     Фамилия и имя ищутся по префиксу, возраст и средняя оценка — по диапазону, все условия необязательны.
+     *     Параметр {@code sort} задаёт поле сортировки, знак минус — сортировку по убыванию.
+     *     Курсор {@code nextCursor} из ответа передаётся в параметре {@code after} вместе с теми же условиями.
+     *     Параметр {@code fields} ограничивает выдачу перечисленными полями.
+     * </p>
+     *
+     * @param criteria Условия поиска, сортировка, курсор и размер страницы.
+     * @param fields   Поля студента; если не переданы, возвращаются все поля.
+     * @return Страница найденных студентов со слабым {@code ETag}; при совпадении с {@code If-None-Match} — статус 304.
+     * @throws ResponseStatusException Если сортировка, курсор, размер страницы или поля некорректны.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<StudentSearchPage<?>> searchStudents(StudentSearchCriteria criteria,
+                                                               @RequestParam(required = false) List<String> fields) {
+        log.info("log: Пришёл запрос на поиск студентов по условиям {} с полями {}", criteria, fields);
+        StudentSearchPage<?> page = fields == null
+                ? studentService.searchStudents(criteria)
+                : studentService.searchStudents(criteria, fields);
+        return ResponseEntity.ok()
+                .eTag(StudentETags.of(page.getContent(), page.getNextCursor()))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(page);
+    }
+
+    /**
+     * Потоковая выгрузка всех студентов.
+     * <p>
+     *     Метод обрабатывает HTTP GET запросы по пути {@code /students/export}. Студенты записываются в ответ
+     *     по мере чтения из базы, без накопления всего списка в памяти. Поддерживаются форматы
+     *     {@code ndjson} (по одному JSON-объекту на строку, по умолчанию) и {@code json} (JSON-массив).
+     * </p>
+     *
+     * @param format Формат выгрузки: {@code ndjson} или {@code json}.
+     * @return Тело ответа, записываемое потоком.
+     * @throws ResponseStatusException Если передан неподдерживаемый формат.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportStudents(@RequestParam(defaultValue = "ndjson") String format) {
+        log.info("log: Пришёл запрос на выгрузку всех студентов в формате {}", format);
+        boolean jsonArray = "json".equalsIgnoreCase(format);
+        if (!jsonArray && !"ndjson".equalsIgnoreCase(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Неподдерживаемый формат выгрузки");
+        }
+        StreamingResponseBody body = outputStream -> writeStudents(outputStream, jsonArray);
+        return ResponseEntity.ok()
+                .contentType(jsonArray ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Подписка на изменения студентов.
+     * <p>
+     *     Метод обрабатывает HTTP GET запросы по пути {@code /students/changes} и передаёт события
+     *     {@code created}, {@code updated} и {@code deleted} в формате Server-Sent Events по мере фиксации изменений.
+     *     Поле {@code id} события — его номер в журнале изменений. При переподключении с заголовком
+     *     {@code Last-Event-ID} клиент получает все события после этого номера, затем новые.
+     * </p>
+     *
+     * @param lastEventId Номер последнего полученного события; без заголовка передаются только новые события.
+     * @return Поток событий.
+     * @throws ResponseStatusException Если события после {@code Last-Event-ID} уже удалены из журнала.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToChanges(@RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) Long lastEventId) {
+        log.info("log: Пришёл запрос на подписку на изменения студентов после события {}", lastEventId);
+        return studentChangeFeed.subscribe(lastEventId);
     }
 
     /**
@@ -49,78 +216,332 @@ public class StudentController {
      * </p>
      *
      * @param id Идентификатор студента, информацию о котором нужно получить.
-     * @return Студент с указанным ID.
+     * @return Студент с указанным ID и {@code ETag} с его версией. Если версия совпадает с {@code If-None-Match},
+     *         возвращается статус 304 (NOT_MODIFIED) без тела; при попадании в кэш база при этом не читается.
      * @throws ResponseStatusException Если студент с таким ID не найден.
      */
     @GetMapping("/{id}")
-    public Student getStudentById(@PathVariable int id) {
+    public ResponseEntity<Student> getStudentById(@PathVariable int id) {
         log.info("log: Пришёл запрос на поиск студента по id {}", id);
-        return studentService.getStudentById(id);
+        Student student = studentService.getStudentById(id);
+        return ResponseEntity.ok().eTag(StudentETags.of(student)).varyBy(HttpHeaders.ACCEPT).body(student);
+    }
+
+    /**
+     * Получение выбранных полей студента по его ID.
+     * <p>
+     *     Метод обрабатывает HTTP GET запросы по пути {@code /students/{id}?fields=id,surname,averageMark}.
+     *     Из базы выбираются и в ответ записываются только перечисленные поля.
+     * </p>
+     *
+     * @param id     Идентификатор студента.
+     * @param fields Поля студента.
+     * @return Выбранные поля студента.
+     * @throws ResponseStatusException Если поля некорректны или студент с таким ID не найден.
+     */
+    @GetMapping(value = "/{id}", params = "fields")
+    public Map<String, Object> getStudentFieldsById(@PathVariable int id, @RequestParam List<String> fields) {
+        log.info("log: Пришёл запрос на поиск полей {} студента по id {}", fields, id);
+        return studentService.getStudentById(id, fields);
+    }
+
+    /**
+     * Получение счётчиков кэша студентов.
+     * <p>
+     *     Метод обрабатывает HTTP GET запросы по пути {@code /students/cache/stats} и возвращает число попаданий,
+     *     промахов и вытеснений кэша {@code GET /students/{id}}.
+     * </p>
+     *
+     * @return Счётчики кэша.
+     */
+    @GetMapping("/cache/stats")
+    public CacheStatistics getCacheStatistics() {
+        return studentService.getCacheStatistics();
+    }
+
+    /**
+     * Нечёткий поиск студентов по ФИО.
+     * <p>
+     *     Метод обрабатывает HTTP GET запросы по пути {@code /students/search/fuzzy?q=Ивнов&limit=20} и возвращает
+     *     студентов, ФИО которых похоже на строку запроса с учётом опечаток, по убыванию сходства.
+     * </p>
+     *
+     * @param query Строка запроса.
+     * @param limit Максимальное число результатов; если не передано, используется значение по умолчанию.
+     * @return Найденные студенты со степенью сходства.
+     * @throws ResponseStatusException Если параметры некорректны или индекс поиска ещё не построен (статус 503).
+     */
+    @GetMapping("/search/fuzzy")
+    public List<StudentMatch> searchStudentsFuzzy(@RequestParam("q") String query,
+                                                  @RequestParam(required = false) Integer limit) {
+        log.info("log: Пришёл запрос на нечёткий поиск студентов с лимитом {}", limit);
+        return studentService.searchStudentsFuzzy(query, limit);
+    }
+
+    /**
+     * Получение статистики средних оценок студентов.
+     * <p>
+     *     Метод обрабатывает HTTP GET запросы по пути
+     *     {@code /students/statistics?ageBucketWidth=5&percentiles=0.5,0.9,0.99} и возвращает число студентов,
+     *     среднюю, минимальную и максимальную оценку, процентили и гистограмму оценок по возрастным группам.
+     *     Статистика вычисляется по агрегату в памяти без обращения к базе.
+     * </p>
+     *
+     * @param ageBucketWidth Ширина возрастной группы в годах; если не передана, используется значение по умолчанию.
+     * @param percentiles    Процентили, доли от 0 до 1; если не переданы, используются значения по умолчанию.
+     * @return Статистика средних оценок.
+     * @throws ResponseStatusException Если параметры некорректны или статистика ещё не загружена (статус 503).
+     */
+    @GetMapping("/statistics")
+    public StudentStatistics getStatistics(@RequestParam(required = false) Integer ageBucketWidth,
+                                           @RequestParam(required = false) List<Double> percentiles) {
+        log.info("log: Пришёл запрос на статистику студентов по возрастным группам {} с процентилями {}",
+                ageBucketWidth, percentiles);
+        return studentService.getStatistics(ageBucketWidth, percentiles);
     }
 
     /**
      * Создание нескольких студентов.
      * <p>
      *     Метод обрабатывает HTTP POST запросы по пути {@code /students}.
-     *     Принимает список студентов в теле запроса и сохраняет их в базе данных.
-     *     В случае успеха возвращает сохранённый список студентов.
+     *     Принимает список студентов в теле запроса и сохраняет их в базе данных. Тело может быть в JSON, Smile
+     *     или CBOR (по {@code Content-Type}) и сжато gzip ({@code Content-Encoding: gzip}).
+     *     В случае успеха возвращает сохранённый список студентов. Если хотя бы один студент нарушает ограничения
+     *     полей, не сохраняется ни один и возвращается статус 400 (BAD_REQUEST) с описанием некорректных строк.
      * </p>
      *
      * @param students Список студентов для добавления.
      * @return Список добавленных студентов.
-     * @throws ResponseStatusException Если произошла ошибка при сохранении студентов.
+     * @throws ResponseStatusException Если данные студентов некорректны или произошла ошибка при сохранении.
      */
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public List<Student> createStudent(@RequestBody List<Student> students) {
         try {
-            log.info("log: Пришёл запрос на создание студентов {}", students.toString());
+            log.info("log: Пришёл запрос на создание {} студентов", students.size());
+            requestLog.items("create", students);
             return studentService.addStudent(students);
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
             log.error("log: Произошла ошибка при сохранении студентов {}", e.getMessage(), e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удаётся создать студентов");
         }
     }
 
+    /**
+     * Создание нескольких студентов с частичным успехом.
+     * <p>
+     *     Метод обрабатывает HTTP POST запросы по пути {@code /students?partial=true}. Студенты, нарушающие
+     *     ограничения полей, отклоняются без обращения к базе, остальные сохраняются порциями в отдельных
+     *     транзакциях. В ответе — идентификаторы добавленных студентов и номера отклонённых строк с причинами,
+     *     поэтому повторно отправлять нужно только отклонённые строки.
+     * </p>
+     *
+     * @param students Список студентов для добавления.
+     * @return Идентификаторы добавленных студентов и отклонённые строки.
+     * @throws ResponseStatusException Если произошла ошибка при сохранении студентов.
+     */
+    @PostMapping(params = "partial=true")
+    public BulkInsertResult createStudentsPartially(@RequestBody List<Student> students) {
+        try {
+            log.info("log: Пришёл запрос на создание {} студентов с частичным успехом", students.size());
+            requestLog.items("create", students);
+            return studentService.addStudentsPartially(students);
+        } catch (Exception e) {
+            log.error("log: Произошла ошибка при сохранении студентов {}", e.getMessage(), e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удаётся создать студентов");
+        }
+    }
+
+    /**
+     * Потоковая загрузка студентов из CSV или NDJSON.
+     * <p>
+     *     Метод обрабатывает HTTP POST запросы по пути {@code /students/import} с типом содержимого
+     *     {@code text/csv} или {@code application/x-ndjson}. Тело запроса читается построчно и не собирается
+     *     в памяти целиком, в том числе сжатое gzip ({@code Content-Encoding: gzip}).
+     *     Некорректные строки пропускаются и учитываются в ответе.
+     * </p>
+     *
+     * @param contentType Тип содержимого запроса.
+     * @param body        Тело запроса.
+     * @return Число добавленных и отклонённых строк и время загрузки.
+     * @throws ResponseStatusException Если произошла ошибка при загрузке студентов.
+     */
+    @PostMapping(value = "/import", consumes = {StudentImportService.TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ImportResult importStudents(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        StudentImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? StudentImportService.Format.NDJSON
+                : StudentImportService.Format.CSV;
+        try {
+            log.info("log: Пришёл запрос на загрузку студентов в формате {}", format);
+            return studentImportService.importStudents(body, format);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("log: Произошла ошибка при загрузке студентов {}", e.getMessage(), e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удаётся загрузить студентов");
+        }
+    }
+
     /**
      * Обновление данных студента.
      * <p>
      *     Метод обрабатывает HTTP PATCH запросы по пути {@code /students/{id}}.
-     *     Обновляет данные студента с указанным ID.
+     *     Обновляет одним запросом к базе только переданные поля студента с указанным ID.
+     *     По умолчанию возвращает обновлённого студента, которого возвращает тот же запрос {@code UPDATE};
+     *     с заголовком {@code Prefer: return=minimal} возвращает статус 204 (NO_CONTENT) без тела.
+     *     Явный {@code "patronymic": null} стирает отчество, отсутствующие поля не изменяются.
+     *     С заголовком {@code If-Match} студент обновляется, только если его версия совпадает с переданным ETag.
      * </p>
      *
      * @param id      Идентификатор студента, данные которого нужно обновить.
-     * @param student Обновлённая информация о студенте.
-     * @return Обновлённый студент.
-     * @throws ResponseStatusException Если студент с таким ID не найден.
+     * @param patch   Обновляемые поля студента.
+     * @param prefer  Значение заголовка {@code Prefer}.
+     * @param ifMatch Значение заголовка {@code If-Match}.
+     * @return Обновлённый студент или пустой ответ.
+     * @throws ResponseStatusException Если студент с таким ID не найден или изменён другим запросом.
+     * @throws MethodArgumentNotValidException Если переданные поля нарушают ограничения (статус 400).
      */
-    @ResponseStatus(HttpStatus.OK)
     @PatchMapping("/{id}")
-    public Student updateStudent(@PathVariable int id, @RequestBody Student student) {
+    public ResponseEntity<Student> updateStudent(@PathVariable int id, @Valid @RequestBody StudentPatch patch,
+                                                 @RequestHeader(value = PREFER_HEADER, required = false) String prefer,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("log: Пришёл запрос на редактирование студента с id {}", id);
-        return studentService.updateStudent(id, student);
+        requestLog.item("update", id, patch);
+        Student student = studentService.updateStudent(id, patch, StudentETags.expectedVersion(ifMatch));
+        if (prefer != null && prefer.contains(RETURN_MINIMAL)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok().eTag(StudentETags.of(student)).varyBy(HttpHeaders.ACCEPT).body(student);
     }
 
     /**
      * Удаление студента.
      * <p>
      *     Метод обрабатывает HTTP DELETE запросы по пути {@code /students/{id}}.
-     *     Удаляет студента с указанным ID. Если удаление прошло успешно, возвращает статус 204 (NO_CONTENT).
+     *     Удаляет студента с указанным ID. Если удаление прошло успешно, возвращает статус 204 (NO_CONTENT),
+     *     если студента нет — статус 404 (NOT_FOUND). С заголовком {@code If-Match} студент удаляется, только если
+     *     его версия совпадает с переданным ETag, иначе возвращается статус 412 (PRECONDITION_FAILED).
      * </p>
      *
-     * @param id Идентификатор студента, которого нужно удалить.
-     * @throws ResponseStatusException Если произошла ошибка при удалении студента.
+     * @param id      Идентификатор студента, которого нужно удалить.
+     * @param ifMatch Значение заголовка {@code If-Match}.
+     * @throws ResponseStatusException Если студент не найден, изменён другим запросом или произошла ошибка при удалении.
      */
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @DeleteMapping("/{id}")
-    public void deleteStudent(@PathVariable int id) {
+    public void deleteStudent(@PathVariable int id,
+                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
             log.info("log: Пришёл запрос на удаление студента с id {}", id);
-            studentService.deleteStudent(id);
+            studentService.deleteStudent(id, StudentETags.expectedVersion(ifMatch));
             log.info("log: Студент с id {} успешно удалён", id);
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
             log.error("log: Ошибка при удалении студента {}", e.getMessage(), e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удаётся удалить студента");
         }
     }
+
+    /**
+     * Массовое удаление студентов.
+     * <p>
+     *     Метод обрабатывает HTTP DELETE запросы по пути {@code /students} со списком идентификаторов в теле запроса.
+     *     Студенты удаляются запросами {@code DELETE ... WHERE id IN (...)} порциями.
+     * </p>
+     *
+     * @param ids Идентификаторы студентов, которых нужно удалить.
+     * @return Число запрошенных и удалённых студентов.
+     * @throws ResponseStatusException Если список пуст или произошла ошибка при удалении студентов.
+     */
+    @DeleteMapping
+    public BulkDeleteResult deleteStudents(@RequestBody List<Integer> ids) {
+        try {
+            log.info("log: Пришёл запрос на удаление {} студентов", ids.size());
+            requestLog.items("delete", ids);
+            return studentService.deleteStudents(ids);
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("log: Ошибка при удалении студентов {}", e.getMessage(), e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удаётся удалить студентов");
+        }
+    }
+
+    /**
+     * Оборачивает страницу в ответ со слабым {@code ETag}. Если {@code ETag} совпадает с {@code If-None-Match},
+     * Spring отвечает статусом 304 (NOT_MODIFIED) и не сериализует тело.
+     *
+     * @param page Страница студентов.
+     * @return Ответ со страницей и {@code ETag}.
+     */
+    private static ResponseEntity<StudentPage<?>> withETag(StudentPage<?> page) {
+        return ResponseEntity.ok()
+                .eTag(StudentETags.of(page.getContent(), page.getNextCursor()))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(page);
+    }
+
+    /**
+     * Записывает всех студентов в поток ответа.
+     *
+     * @param outputStream Поток ответа.
+     * @param jsonArray    {@code true} — записать JSON-массив, {@code false} — NDJSON.
+     * @throws IOException Если не удалось записать данные в поток.
+     */
+    private void writeStudents(OutputStream outputStream, boolean jsonArray) throws IOException {
+        ObjectWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        ExportWriter exportWriter;
+        if (jsonArray) {
+            try (SequenceWriter sequenceWriter = writer.writeValuesAsArray(outputStream)) {
+                exportWriter = new ExportWriter(sequenceWriter);
+                studentService.exportStudents(exportWriter);
+            }
+        } else {
+            try (SequenceWriter sequenceWriter = writer.withRootValueSeparator("\n").writeValues(outputStream)) {
+                exportWriter = new ExportWriter(sequenceWriter);
+                studentService.exportStudents(exportWriter);
+            }
+            if (exportWriter.getWritten() > 0) {
+                outputStream.write('\n');
+            }
+        }
+        outputStream.flush();
+        log.info("log: Выгрузка завершена, выгружено студентов: {}", exportWriter.getWritten());
+    }
+
+    /**
+     * Получатель студентов при выгрузке, записывающий их в {@link SequenceWriter}.
+     * <p>
+     *     Данные сбрасываются в поток ответа после первого студента и далее после каждых
+     *     {@link StudentRepository#EXPORT_FETCH_SIZE} студентов, поэтому клиент получает первые байты сразу,
+     *     а не после чтения всей таблицы.
+     * </p>
+     */
+    @RequiredArgsConstructor
+    private static class ExportWriter implements Consumer<Student> {
+
+        private final SequenceWriter sequenceWriter;
+        private long written;
+
+        @Override
+        public void accept(Student student) {
+            try {
+                sequenceWriter.write(student);
+                if (++written == 1 || written % StudentRepository.EXPORT_FETCH_SIZE == 0) {
+                    sequenceWriter.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        long getWritten() {
+            return written;
+        }
+    }
 }
@@ -0,0 +1,80 @@
+package Energeenot.TestTaskFromSber.controller;
+
+import Energeenot.TestTaskFromSber.model.Student;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Значения заголовков {@code ETag} и {@code If-Match} для студентов.
+ * <p>
+ *     ETag студента — его версия ({@link Student#getVersion()}), поэтому по заголовку {@code If-Match}
+ *     можно проверить версию прямо в запросе {@code UPDATE} или {@code DELETE}.
+ *     ETag списка — слабый, он вычисляется по идентификаторам и версиям студентов страницы
+ *     или по значениям выбранных полей и не требует сериализации ответа.
+ * </p>
+ */
+final class StudentETags {
+
+    private static final String WILDCARD = "*";
+
+    private StudentETags() {
+    }
+
+    /**
+     * Возвращает ETag студента.
+     *
+     * @param student студент.
+     * @return сильный ETag с версией студента.
+     */
+    static String of(Student student) {
+        return "\"" + student.getVersion() + "\"";
+    }
+
+    /**
+     * Возвращает ETag списка студентов.
+     *
+     * @param content    студенты или строки с выбранными полями.
+     * @param nextCursor курсор следующей страницы или {@code null}.
+     * @return слабый ETag.
+     */
+    static String of(List<?> content, Object nextCursor) {
+        StringBuilder signature = new StringBuilder();
+        for (Object element : content) {
+            if (element instanceof Student student) {
+                signature.append(student.getId()).append(':').append(student.getVersion());
+            } else {
+                signature.append(element);
+            }
+            signature.append(';');
+        }
+        signature.append(nextCursor);
+        return "W/\"" + DigestUtils.md5DigestAsHex(signature.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Извлекает ожидаемую версию студента из заголовка {@code If-Match}.
+     *
+     * @param ifMatch значение заголовка или {@code null}.
+     * @return версия или {@code null}, если заголовок не передан или равен {@code *}.
+     * @throws ResponseStatusException со статусом 412 (PRECONDITION_FAILED), если значение не является ETag студента;
+     *                                 слабые ETag не подходят, так как {@code If-Match} требует строгого сравнения.
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || WILDCARD.equals(ifMatch.trim())) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.length() > 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            try {
+                return Long.valueOf(value.substring(1, value.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // значение не является версией студента
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Значение If-Match не совпадает с версией студента");
+    }
+}
@@ -0,0 +1,182 @@
+package Energeenot.TestTaskFromSber.controller;
+
+import Energeenot.TestTaskFromSber.config.StudentRequestLog;
+import Energeenot.TestTaskFromSber.dto.BulkDeleteResult;
+import Energeenot.TestTaskFromSber.dto.StudentPage;
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.service.StudentReactiveService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Реактивный вариант {@link StudentController} на WebFlux для профиля {@code reactive}.
+ * <p>
+ *     Обслуживает те же пути, заголовки и статусы ответов, что и {@link StudentController}, для операций
+ *     чтения списка, страницы и выгрузки, чтения, создания, изменения и удаления студентов.
+ *     Поиск по условиям, выбор полей, получение по списку идентификаторов, загрузка из файла
+ *     и счётчики кэша доступны только в основном варианте API.
+ * </p>
+ * <p>
+ *     Выгрузка {@code GET /students/export} отдаёт студентов потоком {@link Flux} в формате NDJSON
+ *     с обратным давлением: следующая порция строк читается из базы, когда предыдущая записана клиенту.
+ * </p>
+ */
+@RestController
+@RequestMapping("/students")
+@Profile("reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class StudentReactiveController {
+
+    private static final String PREFER_HEADER = "Prefer";
+    private static final String RETURN_MINIMAL = "return=minimal";
+
+    private final StudentReactiveService studentService;
+    private final StudentRequestLog requestLog;
+
+    /**
+     * Получение списка всех студентов без пагинации.
+     *
+     * @return Список всех студентов со слабым {@code ETag}; при совпадении с {@code If-None-Match} — статус 304.
+     * @throws ResponseStatusException Если студентов больше допустимого числа строк.
+     */
+    @GetMapping(params = "unpaged=true")
+    public Mono<ResponseEntity<List<Student>>> getAllStudents() {
+        log.info("log: Пришёл запрос на поиск всех студентов без пагинации");
+        return studentService.getAllStudents()
+                .map(students -> ResponseEntity.ok().eTag(StudentETags.of(students, null)).body(students));
+    }
+
+    /**
+     * Получение страницы студентов.
+     *
+     * @param after Идентификатор последнего студента предыдущей страницы; для первой страницы не передаётся.
+     * @param limit Размер страницы; если не передан, используется размер по умолчанию.
+     * @return Страница студентов со слабым {@code ETag}; при совпадении с {@code If-None-Match} — статус 304.
+     * @throws ResponseStatusException Если размер страницы некорректен.
+     */
+    @GetMapping
+    public Mono<ResponseEntity<StudentPage<Student>>> getStudentsPage(@RequestParam(required = false) Integer after,
+                                                                      @RequestParam(required = false) Integer limit) {
+        log.info("log: Пришёл запрос на поиск страницы студентов после id {} размером {}", after, limit);
+        return studentService.getStudentsPage(after, limit)
+                .map(page -> ResponseEntity.ok()
+                        .eTag(StudentETags.of(page.getContent(), page.getNextCursor()))
+                        .body(page));
+    }
+
+    /**
+     * Потоковая выгрузка всех студентов в формате NDJSON.
+     *
+     * @return Поток студентов.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Student> exportStudents() {
+        log.info("log: Пришёл запрос на выгрузку всех студентов");
+        return studentService.exportStudents();
+    }
+
+    /**
+     * Получение информации о студенте по его ID.
+     *
+     * @param id Идентификатор студента.
+     * @return Студент с {@code ETag} с его версией; при совпадении с {@code If-None-Match} — статус 304.
+     * @throws ResponseStatusException Если студент с таким ID не найден.
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Student>> getStudentById(@PathVariable int id) {
+        log.info("log: Пришёл запрос на поиск студента по id {}", id);
+        return studentService.getStudentById(id)
+                .map(student -> ResponseEntity.ok().eTag(StudentETags.of(student)).body(student));
+    }
+
+    /**
+     * Создание нескольких студентов.
+     *
+     * @param students Список студентов для добавления.
+     * @return Список добавленных студентов.
+     * @throws ResponseStatusException Если произошла ошибка при сохранении студентов.
+     */
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Flux<Student> createStudent(@RequestBody List<Student> students) {
+        log.info("log: Пришёл запрос на создание {} студентов", students.size());
+        requestLog.items("create", students);
+        return studentService.addStudent(students)
+                .onErrorMap(e -> !(e instanceof ResponseStatusException), e -> {
+                    log.error("log: Произошла ошибка при сохранении студентов {}", e.getMessage(), e);
+                    return new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Не удаётся создать студентов");
+                });
+    }
+
+    /**
+     * Обновление данных студента.
+     * <p>
+     *     С заголовком {@code Prefer: return=minimal} возвращает статус 204 (NO_CONTENT) без повторного чтения
+     *     студента, с заголовком {@code If-Match} обновляет студента, только если его версия совпадает с ETag.
+     * </p>
+     *
+     * @param id      Идентификатор студента.
+     * @param patch   Обновляемые поля студента.
+     * @param prefer  Значение заголовка {@code Prefer}.
+     * @param ifMatch Значение заголовка {@code If-Match}.
+     * @return Обновлённый студент или пустой ответ.
+     * @throws ResponseStatusException Если студент с таким ID не найден или изменён другим запросом.
+     */
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<Student>> updateStudent(@PathVariable int id, @RequestBody StudentPatch patch,
+                                                       @RequestHeader(value = PREFER_HEADER, required = false) String prefer,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("log: Пришёл запрос на редактирование студента с id {}", id);
+        requestLog.item("update", id, patch);
+        Mono<Void> update = Mono.defer(() -> studentService.updateStudent(id, patch, StudentETags.expectedVersion(ifMatch)));
+        if (prefer != null && prefer.contains(RETURN_MINIMAL)) {
+            return update.then(Mono.just(ResponseEntity.noContent().<Student>build()));
+        }
+        return update.then(Mono.defer(() -> studentService.getStudentById(id)))
+                .map(student -> ResponseEntity.ok().eTag(StudentETags.of(student)).body(student));
+    }
+
+    /**
+     * Удаление студента.
+     *
+     * @param id      Идентификатор студента.
+     * @param ifMatch Значение заголовка {@code If-Match}.
+     * @return Пустой ответ со статусом 204 (NO_CONTENT).
+     * @throws ResponseStatusException Если студент не найден или изменён другим запросом.
+     */
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @DeleteMapping("/{id}")
+    public Mono<Void> deleteStudent(@PathVariable int id,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("log: Пришёл запрос на удаление студента с id {}", id);
+        return Mono.defer(() -> studentService.deleteStudent(id, StudentETags.expectedVersion(ifMatch)))
+                .doOnSuccess(ignored -> log.info("log: Студент с id {} успешно удалён", id));
+    }
+
+    /**
+     * Массовое удаление студентов.
+     *
+     * @param ids Идентификаторы студентов, которых нужно удалить.
+     * @return Число запрошенных и удалённых студентов.
+     * @throws ResponseStatusException Если список пуст.
+     */
+    @DeleteMapping
+    public Mono<BulkDeleteResult> deleteStudents(@RequestBody List<Integer> ids) {
+        log.info("log: Пришёл запрос на удаление {} студентов", ids.size());
+        requestLog.items("delete", ids);
+        return studentService.deleteStudents(ids);
+    }
+}
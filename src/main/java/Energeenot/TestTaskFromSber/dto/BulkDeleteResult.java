@@ -0,0 +1,22 @@
+package Energeenot.TestTaskFromSber.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Результат массового удаления студентов.
+ */
+@Getter
+@AllArgsConstructor
+public class BulkDeleteResult {
+
+    /**
+     * Число уникальных идентификаторов в запросе.
+     */
+    private int requested;
+
+    /**
+     * Число удалённых студентов. Идентификаторы, которых нет в базе, не учитываются.
+     */
+    private int deleted;
+}
@@ -0,0 +1,47 @@
+package Energeenot.TestTaskFromSber.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Результат добавления студентов с частичным успехом.
+ */
+@Getter
+@AllArgsConstructor
+public class BulkInsertResult {
+
+    /**
+     * Число студентов в запросе.
+     */
+    private int requested;
+
+    /**
+     * Идентификаторы добавленных студентов в порядке запроса.
+     */
+    private List<Integer> createdIds;
+
+    /**
+     * Отклонённые строки в порядке запроса.
+     */
+    private List<RowError> errors;
+
+    /**
+     * Отклонённая строка запроса.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class RowError {
+
+        /**
+         * Номер строки в запросе, начиная с 0.
+         */
+        private int index;
+
+        /**
+         * Нарушенные ограничения в виде {@code поле: описание}.
+         */
+        private List<String> messages;
+    }
+}
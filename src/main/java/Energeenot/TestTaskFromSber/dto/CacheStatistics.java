@@ -0,0 +1,42 @@
+package Energeenot.TestTaskFromSber.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Счётчики кэша студентов.
+ */
+@Getter
+@AllArgsConstructor
+public class CacheStatistics {
+
+    /**
+     * Включён ли кэш.
+     */
+    private boolean enabled;
+
+    /**
+     * Приблизительное число записей в кэше.
+     */
+    private long size;
+
+    /**
+     * Число обращений, обслуженных из кэша.
+     */
+    private long hits;
+
+    /**
+     * Число обращений, потребовавших запроса к базе.
+     */
+    private long misses;
+
+    /**
+     * Число записей, вытесненных по размеру или времени жизни.
+     */
+    private long evictions;
+
+    /**
+     * Доля обращений, обслуженных из кэша.
+     */
+    private double hitRate;
+}
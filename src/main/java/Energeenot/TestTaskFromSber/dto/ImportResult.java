@@ -0,0 +1,27 @@
+package Energeenot.TestTaskFromSber.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Результат массовой загрузки студентов.
+ */
+@Getter
+@AllArgsConstructor
+public class ImportResult {
+
+    /**
+     * Число добавленных студентов.
+     */
+    private long imported;
+
+    /**
+     * Число отклонённых строк: не удалось разобрать или нарушены ограничения полей.
+     */
+    private long rejected;
+
+    /**
+     * Время загрузки в миллисекундах.
+     */
+    private long elapsedMillis;
+}
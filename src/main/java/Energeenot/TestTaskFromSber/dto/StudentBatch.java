@@ -0,0 +1,25 @@
+package Energeenot.TestTaskFromSber.dto;
+
+import Energeenot.TestTaskFromSber.model.Student;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Студенты, полученные по списку идентификаторов.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentBatch {
+
+    /**
+     * Найденные студенты в порядке идентификаторов запроса.
+     */
+    private List<Student> students;
+
+    /**
+     * Идентификаторы, для которых студент не найден, в порядке запроса.
+     */
+    private List<Integer> missingIds;
+}
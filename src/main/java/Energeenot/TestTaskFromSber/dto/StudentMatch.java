@@ -0,0 +1,23 @@
+package Energeenot.TestTaskFromSber.dto;
+
+import Energeenot.TestTaskFromSber.model.Student;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Студент, найденный нечётким поиском по ФИО.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentMatch {
+
+    /**
+     * Найденный студент.
+     */
+    private Student student;
+
+    /**
+     * Доля триграмм запроса, найденных в ФИО студента, от 0 до 1.
+     */
+    private double similarity;
+}
@@ -0,0 +1,31 @@
+package Energeenot.TestTaskFromSber.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Страница студентов при курсорной (keyset) пагинации {@code GET /students}.
+ * <p>
+ *     Содержит студентов, упорядоченных по возрастанию идентификатора, и курсор для запроса
+ *     следующей страницы. Курсор передаётся обратно в параметре {@code after}.
+ *     Страницы поиска с курсором-строкой возвращаются в {@link StudentSearchPage}.
+ * </p>
+ *
+ * @param <T> тип элемента страницы: {@code Student} или набор выбранных полей студента.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentPage<T> {
+
+    /**
+     * Студенты текущей страницы.
+     */
+    private List<T> content;
+
+    /**
+     * Идентификатор последнего студента страницы или {@code null}, если страница последняя.
+     */
+    private Integer nextCursor;
+}
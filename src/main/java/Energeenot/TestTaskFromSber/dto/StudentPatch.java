@@ -0,0 +1,86 @@
+package Energeenot.TestTaskFromSber.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+/**
+ * Частичное обновление студента.
+ * <p>
+ *     Поле со значением {@code null} означает, что оно не передано в запросе и не изменяется.
+ *     Исключение — отчество: явный {@code "patronymic": null} в запросе стирает отчество,
+ *     а отсутствие поля оставляет его прежним, см. {@link #hasPatronymic()}.
+ *     В отличие от {@link Energeenot.TestTaskFromSber.model.Student}, возраст хранится как {@link Integer},
+ *     поэтому отсутствующий возраст не превращается в {@code 0}.
+ * </p>
+ * <p>
+ *     Переданные поля проверяются по тем же ограничениям, что и поля студента, до обращения к базе.
+ * </p>
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@Setter
+@ToString
+public class StudentPatch {
+
+    /**
+     * Строка, содержащая хотя бы один непробельный символ; {@code null} не проверяется.
+     */
+    private static final String NOT_BLANK = "(?s).*\\S.*";
+
+    @Pattern(regexp = NOT_BLANK, message = "фамилия не может быть пустой")
+    @Size(max = 255, message = "фамилия длиннее 255 символов")
+    private String surname;
+
+    @Pattern(regexp = NOT_BLANK, message = "имя не может быть пустым")
+    @Size(max = 255, message = "имя длиннее 255 символов")
+    private String name;
+
+    @Size(max = 255, message = "отчество длиннее 255 символов")
+    private String patronymic;
+
+    /**
+     * Отчество передано в запросе, в том числе как {@code null}. Устанавливается {@link #setPatronymic(String)},
+     * через который Jackson передаёт и явный {@code null}.
+     */
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean patronymicPresent;
+
+    @PositiveOrZero(message = "возраст не может быть отрицательным")
+    private Integer age;
+
+    @DecimalMin(value = "1.00", message = "средняя оценка меньше 1.00")
+    @DecimalMax(value = "5.00", message = "средняя оценка больше 5.00")
+    private Double averageMark;
+
+    public void setPatronymic(String patronymic) {
+        this.patronymic = patronymic;
+        this.patronymicPresent = true;
+    }
+
+    /**
+     * Проверяет, нужно ли изменить отчество.
+     *
+     * @return {@code true}, если отчество передано, в том числе как {@code null} для его удаления.
+     */
+    public boolean hasPatronymic() {
+        return patronymicPresent || patronymic != null;
+    }
+
+    /**
+     * Проверяет, что в обновлении нет ни одного поля.
+     *
+     * @return {@code true}, если ни одно поле не передано.
+     */
+    public boolean isEmpty() {
+        return surname == null && name == null && !hasPatronymic() && age == null && averageMark == null;
+    }
+}
@@ -0,0 +1,65 @@
+package Energeenot.TestTaskFromSber.dto;
+
+import lombok.*;
+
+/**
+ * Параметры поиска студентов.
+ * <p>
+ *     Все условия необязательны и объединяются через {@code AND}. Строковые условия задают префикс
+ *     фамилии или имени, диапазоны включают границы.
+ * </p>
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@Setter
+@ToString
+public class StudentSearchCriteria {
+
+    /**
+     * Начало фамилии.
+     */
+    private String surname;
+
+    /**
+     * Начало имени.
+     */
+    private String name;
+
+    /**
+     * Минимальный возраст.
+     */
+    private Integer minAge;
+
+    /**
+     * Максимальный возраст.
+     */
+    private Integer maxAge;
+
+    /**
+     * Минимальная средняя оценка.
+     */
+    private Double minMark;
+
+    /**
+     * Максимальная средняя оценка.
+     */
+    private Double maxMark;
+
+    /**
+     * Поле сортировки: {@code id}, {@code surname}, {@code name}, {@code age} или {@code averageMark}.
+     * Знак минус перед полем задаёт сортировку по убыванию.
+     */
+    private String sort;
+
+    /**
+     * Курсор страницы, полученный в предыдущем ответе.
+     */
+    private String after;
+
+    /**
+     * Размер страницы.
+     */
+    private Integer limit;
+}
@@ -0,0 +1,31 @@
+package Energeenot.TestTaskFromSber.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Страница результата поиска студентов {@code GET /students/search}.
+ * <p>
+ *     В отличие от {@link StudentPage}, курсор следующей страницы — непрозрачная строка: он хранит поле
+ *     сортировки, его значение и идентификатор последнего студента. Курсор передаётся обратно
+ *     в параметре {@code after} вместе с теми же условиями поиска.
+ * </p>
+ *
+ * @param <T> тип элемента страницы: {@code Student} или набор выбранных полей студента.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentSearchPage<T> {
+
+    /**
+     * Студенты текущей страницы.
+     */
+    private List<T> content;
+
+    /**
+     * Курсор следующей страницы или {@code null}, если страница последняя.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,80 @@
+package Energeenot.TestTaskFromSber.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Статистика средних оценок студентов.
+ */
+@Getter
+@AllArgsConstructor
+public class StudentStatistics {
+
+    /**
+     * Число студентов.
+     */
+    private long count;
+
+    /**
+     * Среднее значение средней оценки или {@code null}, если студентов нет.
+     */
+    private Double mean;
+
+    /**
+     * Минимальная средняя оценка или {@code null}, если студентов нет.
+     */
+    private Double min;
+
+    /**
+     * Максимальная средняя оценка или {@code null}, если студентов нет.
+     */
+    private Double max;
+
+    /**
+     * Процентили средней оценки: ключ — доля от 0 до 1, значение — оценка, не больше которой
+     * средняя оценка у этой доли студентов.
+     */
+    private Map<String, Double> percentiles;
+
+    /**
+     * Статистика по возрастным группам в порядке возрастания возраста; пустые группы не возвращаются.
+     */
+    private List<AgeBucket> ageBuckets;
+
+    /**
+     * Статистика возрастной группы.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class AgeBucket {
+
+        /**
+         * Нижняя граница возраста включительно.
+         */
+        private int fromAge;
+
+        /**
+         * Верхняя граница возраста включительно.
+         */
+        private int toAge;
+
+        /**
+         * Число студентов в группе.
+         */
+        private long count;
+
+        /**
+         * Среднее значение средней оценки в группе.
+         */
+        private double mean;
+
+        /**
+         * Число студентов по интервалам средней оценки {@code [1.0, 1.5)}, {@code [1.5, 2.0)}, …,
+         * {@code [4.5, 5.0]}.
+         */
+        private long[] markHistogram;
+    }
+}
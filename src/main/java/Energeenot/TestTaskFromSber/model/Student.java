@@ -1,6 +1,13 @@
 package Energeenot.TestTaskFromSber.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.*;
 
 /**
@@ -9,10 +16,24 @@ import lombok.*;
  *     Этот класс используется для хранения данных о студенте, включая его фамилию, имя,
  *     отчество, возраст и средний балл. Данные хранятся в таблице {@code student} базы данных.
  * </p>
+ * <p>
+ *     Составные индексы соответствуют условиям поиска {@code GET /students/search}: префикс фамилии и имени,
+ *     префикс имени, диапазоны возраста и средней оценки. Последним столбцом каждого индекса идёт {@code id},
+ *     поэтому индекс обслуживает и сортировку с курсором по паре «поле, идентификатор».
+ * </p>
+ * <p>
+ *     Ограничения столбцов продублированы аннотациями Bean Validation: сервис проверяет студентов
+ *     до обращения к базе, чтобы одна некорректная строка не откатывала всю вставку.
+ * </p>
  */
 
 @Entity
-@Table(name = "student")
+@Table(name = "student", indexes = {
+        @Index(name = "idx_student_surname_name", columnList = "surname, name, id"),
+        @Index(name = "idx_student_name", columnList = "name, id"),
+        @Index(name = "idx_student_age_average_mark", columnList = "age, average_mark, id"),
+        @Index(name = "idx_student_average_mark", columnList = "average_mark, id")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
@@ -24,12 +45,15 @@ public class Student {
     /**
      * Уникальный идентификатор студента.
      * <p>
-     *     Генерируется автоматически в бд с помощью стратегии
-     *     {@link GenerationType#IDENTITY}.
+     *     Генерируется с помощью последовательности {@code student_id_seq} по стратегии
+     *     {@link GenerationType#SEQUENCE}. Hibernate резервирует сразу {@code allocationSize} значений
+     *     за одно обращение к последовательности, поэтому вставки можно отправлять в базу пакетами JDBC,
+     *     что невозможно при стратегии {@link GenerationType#IDENTITY}.
      * </p>
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_id_seq")
+    @SequenceGenerator(name = "student_id_seq", sequenceName = "student_id_seq", allocationSize = 50)
     @Column(name = "id")
     private int id;
 
@@ -38,6 +62,8 @@ public class Student {
      * Ограничение проверяется на уровне базы данных:
      * <code> not null</code>
      */
+    @NotBlank(message = "фамилия обязательна")
+    @Size(max = 255, message = "фамилия длиннее 255 символов")
     @Column(name = "surname")
     private String surname;
 
@@ -46,13 +72,17 @@ public class Student {
      * Ограничение проверяется на уровне базы данных:
      * <code> not null</code>
      */
+    @NotBlank(message = "имя обязательно")
+    @Size(max = 255, message = "имя длиннее 255 символов")
     @Column(name = "name")
     private String name;
 
     /**
      * Необязательное поле: отчество
      * Ограничение проверяется на уровне базы данных:
+     * <code>VARCHAR(255)</code>
      */
+    @Size(max = 255, message = "отчество длиннее 255 символов")
     @Column(name = "patronymic")
     private String patronymic;
 
@@ -61,6 +91,7 @@ public class Student {
      * Ограничение проверяется на уровне базы данных:
      * <code> not null</code>
      */
+    @PositiveOrZero(message = "возраст не может быть отрицательным")
     @Column(name = "age")
     private int age;
 
@@ -69,7 +100,22 @@ public class Student {
      * Ограничение проверяется на уровне базы данных:
      * <code>CHECK (average_mark >= 1.00 AND average_mark <= 5.00)</code>
      */
+    @NotNull(message = "средняя оценка обязательна")
+    @DecimalMin(value = "1.00", message = "средняя оценка меньше 1.00")
+    @DecimalMax(value = "5.00", message = "средняя оценка больше 5.00")
     @Column(name = "average_mark")
     private Double averageMark;
 
+    /**
+     * Версия записи для оптимистической блокировки.
+     * <p>
+     *     Увеличивается при каждом изменении студента и служит значением заголовка {@code ETag}.
+     *     Задаётся только на стороне сервера, значение из тела запроса игнорируется.
+     * </p>
+     */
+    @Version
+    @Column(name = "version")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
 }
@@ -0,0 +1,65 @@
+package Energeenot.TestTaskFromSber.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Событие журнала изменений студентов.
+ * <p>
+ *     Записывается в таблицу {@code student_event} в той же транзакции, что и изменение студента,
+ *     и передаётся подписчикам {@code GET /students/changes} после фиксации транзакции. Событие содержит
+ *     только вид изменения и идентификатор студента: актуальные данные подписчик получает запросом
+ *     {@code GET /students?ids=...}.
+ * </p>
+ */
+@Entity
+@Table(name = "student_event", indexes = {
+        @Index(name = "idx_student_event_created_at", columnList = "created_at")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@ToString
+public class StudentEvent {
+
+    /**
+     * Номер события.
+     * <p>
+     *     Выдаётся счётчиком {@link StudentEventCounter} без пропусков в порядке фиксации транзакций
+     *     и служит полем {@code id} события Server-Sent Events, с которого клиент продолжает чтение.
+     * </p>
+     */
+    @Id
+    @Column(name = "id")
+    private long id;
+
+    /**
+     * Вид изменения.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 16)
+    private Type type;
+
+    /**
+     * Идентификатор изменённого студента.
+     */
+    @Column(name = "student_id", nullable = false)
+    private int studentId;
+
+    /**
+     * Время записи события.
+     */
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    /**
+     * Вид изменения студента.
+     */
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
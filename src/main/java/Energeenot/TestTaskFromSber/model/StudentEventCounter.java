@@ -0,0 +1,36 @@
+package Energeenot.TestTaskFromSber.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Счётчик номеров событий {@link StudentEvent}.
+ * <p>
+ *     Таблица {@code student_event_counter} содержит одну строку. Транзакция, записывающая события, блокирует её
+ *     до фиксации, поэтому номера событий выдаются без пропусков и в порядке фиксации транзакций: подписчик,
+ *     получивший событие с номером {@code N}, уже не увидит событие с меньшим номером.
+ * </p>
+ */
+@Entity
+@Table(name = "student_event_counter")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class StudentEventCounter {
+
+    /**
+     * Идентификатор единственной строки счётчика.
+     */
+    public static final int ID = 1;
+
+    @Id
+    @Column(name = "id")
+    private int id;
+
+    /**
+     * Номер последнего выданного события.
+     */
+    @Column(name = "last_id", nullable = false)
+    private long lastId;
+}
@@ -0,0 +1,62 @@
+package Energeenot.TestTaskFromSber.repository;
+
+import Energeenot.TestTaskFromSber.model.StudentEvent;
+import Energeenot.TestTaskFromSber.model.StudentEventCounter;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Репозиторий журнала изменений студентов.
+ *
+ * @see StudentEvent
+ */
+@Repository
+public interface StudentEventRepository extends JpaRepository<StudentEvent, Long> {
+
+    /**
+     * Возвращает события, номер которых больше переданного, в порядке возрастания номера.
+     *
+     * @param id    номер последнего прочитанного события.
+     * @param limit максимальное число событий.
+     * @return события, упорядоченные по {@code id}.
+     */
+    List<StudentEvent> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+    /**
+     * Возвращает номер самого старого хранимого события.
+     *
+     * @return номер события или {@code null}, если журнал пуст.
+     */
+    @Query("select min(e.id) from StudentEvent e")
+    Long findMinId();
+
+    /**
+     * Возвращает номер последнего выданного события по счётчику {@link StudentEventCounter}.
+     * <p>
+     *     В отличие от наибольшего номера в журнале, не уменьшается при удалении старых событий.
+     * </p>
+     *
+     * @return номер события или {@code null}, если событий ещё не было.
+     */
+    @Query("select c.lastId from StudentEventCounter c where c.id = " + StudentEventCounter.ID)
+    Long findLastIssuedId();
+
+    /**
+     * Удаляет события, записанные раньше указанного момента.
+     *
+     * @param before граница хранения.
+     * @return число удалённых событий.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from StudentEvent e where e.createdAt < :before")
+    int deleteByCreatedAtBefore(@Param("before") Instant before);
+}
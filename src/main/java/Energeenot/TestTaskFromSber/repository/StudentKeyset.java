@@ -0,0 +1,165 @@
+package Energeenot.TestTaskFromSber.repository;
+
+import Energeenot.TestTaskFromSber.model.Student;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Сортировка и курсор для постраничного поиска студентов методом keyset.
+ * <p>
+ *     Студенты упорядочиваются по выбранному полю, при равенстве значений — по идентификатору.
+ *     Курсор хранит поле сортировки, значение поля и идентификатор последнего студента страницы,
+ *     следующая страница запрашивается условием «строго после курсора», а не {@code OFFSET},
+ *     поэтому её стоимость не зависит от номера страницы.
+ * </p>
+ */
+public final class StudentKeyset {
+
+    /**
+     * Поля, по которым допускается сортировка.
+     */
+    public enum Field {
+        ID("id", Student::getId, Integer::valueOf),
+        SURNAME("surname", Student::getSurname, value -> value),
+        NAME("name", Student::getName, value -> value),
+        AGE("age", Student::getAge, Integer::valueOf),
+        AVERAGE_MARK("averageMark", Student::getAverageMark, Double::valueOf);
+
+        private final String property;
+        private final Function<Student, Comparable<?>> getter;
+        private final Function<String, Comparable<?>> parser;
+
+        Field(String property, Function<Student, Comparable<?>> getter, Function<String, Comparable<?>> parser) {
+            this.property = property;
+            this.getter = getter;
+            this.parser = parser;
+        }
+
+        private static Field ofProperty(String property) {
+            for (Field field : values()) {
+                if (field.property.equalsIgnoreCase(property)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Сортировка по полю " + property + " не поддерживается");
+        }
+    }
+
+    private static final char SEPARATOR = '|';
+
+    private final Field field;
+    private final boolean ascending;
+
+    private StudentKeyset(Field field, boolean ascending) {
+        this.field = field;
+        this.ascending = ascending;
+    }
+
+    /**
+     * Разбирает параметр сортировки вида {@code surname} или {@code -averageMark}.
+     *
+     * @param sort параметр сортировки или {@code null} для сортировки по идентификатору.
+     * @return сортировка.
+     * @throws IllegalArgumentException если поле сортировки не поддерживается.
+     */
+    public static StudentKeyset parse(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return new StudentKeyset(Field.ID, true);
+        }
+        String value = sort.trim();
+        boolean descending = value.startsWith("-");
+        return new StudentKeyset(Field.ofProperty(descending ? value.substring(1) : value), !descending);
+    }
+
+    /**
+     * Возвращает порядок сортировки Spring Data: выбранное поле и идентификатор.
+     *
+     * @return порядок сортировки.
+     */
+    public Sort toSort() {
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort byId = Sort.by(direction, Field.ID.property);
+        return field == Field.ID ? byId : Sort.by(direction, field.property).and(byId);
+    }
+
+    /**
+     * Формирует курсор, указывающий на студента.
+     *
+     * @param student последний студент страницы.
+     * @return курсор в виде строки Base64 без дополнения.
+     */
+    public String cursorOf(Student student) {
+        return encode(student.getId(), field.getter.apply(student));
+    }
+
+    /**
+     * Формирует курсор по строке с выбранными полями студента.
+     *
+     * @param row последняя строка страницы; должна содержать идентификатор и поле сортировки.
+     * @return курсор в виде строки Base64 без дополнения.
+     */
+    public String cursorOf(Map<String, Object> row) {
+        return encode(row.get(Field.ID.property), row.get(field.property));
+    }
+
+    private String encode(Object id, Object value) {
+        String cursor = field.name() + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Возвращает условие «строго после курсора» в порядке этой сортировки.
+     *
+     * @param cursor курсор, полученный из {@link #cursorOf(Student)}.
+     * @return условие для следующей страницы.
+     * @throws IllegalArgumentException если курсор повреждён или получен при другой сортировке.
+     */
+    public Specification<Student> after(String cursor) {
+        String[] parts = decode(cursor);
+        if (!field.name().equals(parts[0].toUpperCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("Курсор получен при другой сортировке");
+        }
+        int id = Integer.parseInt(parts[1]);
+        Comparable<?> value = field.parser.apply(parts[2]);
+        return (root, query, criteriaBuilder) -> {
+            Expression<Integer> idPath = root.get(Field.ID.property);
+            Predicate idBeyond = beyond(criteriaBuilder, idPath, id);
+            if (field == Field.ID) {
+                return idBeyond;
+            }
+            Expression<?> path = root.get(field.property);
+            return criteriaBuilder.or(
+                    beyond(criteriaBuilder, path, value),
+                    criteriaBuilder.and(criteriaBuilder.equal(path, value), idBeyond));
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate beyond(CriteriaBuilder criteriaBuilder, Expression path, Comparable value) {
+        return ascending ? criteriaBuilder.greaterThan(path, value) : criteriaBuilder.lessThan(path, value);
+    }
+
+    private static String[] decode(String cursor) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный курсор", e);
+        }
+        int first = value.indexOf(SEPARATOR);
+        int second = first < 0 ? -1 : value.indexOf(SEPARATOR, first + 1);
+        if (second < 0) {
+            throw new IllegalArgumentException("Некорректный курсор");
+        }
+        return new String[]{value.substring(0, first), value.substring(first + 1, second), value.substring(second + 1)};
+    }
+}
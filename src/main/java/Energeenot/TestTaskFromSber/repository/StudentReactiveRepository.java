@@ -0,0 +1,245 @@
+package Energeenot.TestTaskFromSber.repository;
+
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
+import Energeenot.TestTaskFromSber.model.Student;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Реактивный репозиторий студентов поверх R2DBC для профиля {@code reactive}.
+ * <p>
+ *     Повторяет запросы {@link StudentRepository} на SQL через {@link DatabaseClient}: сущность {@link Student}
+ *     размечена аннотациями JPA, которые Spring Data R2DBC не читает, поэтому строки сопоставляются с полями явно.
+ *     Идентификатор новой строки выдаёт значение столбца {@code id} по умолчанию, версия начинается с нуля
+ *     и увеличивается каждым изменением, как у Hibernate.
+ * </p>
+ *
+ * @see Student
+ */
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class StudentReactiveRepository {
+
+    private static final String COLUMNS = "id, surname, name, patronymic, age, average_mark, version";
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Возвращает первых студентов в порядке возрастания идентификатора.
+     *
+     * @param limit максимальное число строк.
+     * @return студенты, упорядоченные по {@code id}.
+     */
+    public Flux<Student> findAllOrderById(int limit) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM student ORDER BY id LIMIT :limit")
+                .bind("limit", limit)
+                .map(StudentReactiveRepository::toStudent)
+                .all();
+    }
+
+    /**
+     * Возвращает студентов, идентификатор которых больше курсора, в порядке возрастания идентификатора.
+     *
+     * @param id    курсор — идентификатор последнего студента предыдущей страницы.
+     * @param limit максимальное число строк.
+     * @return студенты, упорядоченные по {@code id}.
+     */
+    public Flux<Student> findByIdGreaterThan(int id, int limit) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM student WHERE id > :id ORDER BY id LIMIT :limit")
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(StudentReactiveRepository::toStudent)
+                .all();
+    }
+
+    /**
+     * Возвращает всех студентов в порядке возрастания идентификатора.
+     * <p>
+     *     Строки запрашиваются у драйвера порциями по {@value StudentRepository#EXPORT_FETCH_SIZE} по мере того,
+     *     как подписчик их запрашивает, поэтому медленный клиент не заставляет держать в памяти всю таблицу.
+     * </p>
+     *
+     * @return поток студентов.
+     */
+    public Flux<Student> streamAll() {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM student ORDER BY id")
+                .filter(statement -> statement.fetchSize(StudentRepository.EXPORT_FETCH_SIZE))
+                .map(StudentReactiveRepository::toStudent)
+                .all();
+    }
+
+    /**
+     * Возвращает студента по идентификатору.
+     *
+     * @param id идентификатор студента.
+     * @return студент или пустой {@link Mono}, если студента нет.
+     */
+    public Mono<Student> findById(int id) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM student WHERE id = :id")
+                .bind("id", id)
+                .map(StudentReactiveRepository::toStudent)
+                .one();
+    }
+
+    /**
+     * Проверяет, что студент существует.
+     *
+     * @param id идентификатор студента.
+     * @return {@code true}, если студент есть.
+     */
+    public Mono<Boolean> existsById(int id) {
+        return databaseClient.sql("SELECT 1 FROM student WHERE id = :id")
+                .bind("id", id)
+                .map(row -> true)
+                .one()
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * Проверяет, что студент существует и его версия совпадает с ожидаемой.
+     *
+     * @param id      идентификатор студента.
+     * @param version ожидаемая версия студента.
+     * @return {@code true}, если студент с такой версией есть.
+     */
+    public Mono<Boolean> existsByIdAndVersion(int id, long version) {
+        return databaseClient.sql("SELECT 1 FROM student WHERE id = :id AND version = :version")
+                .bind("id", id)
+                .bind("version", version)
+                .map(row -> true)
+                .one()
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * Добавляет студента.
+     *
+     * @param student студент без идентификатора.
+     * @return тот же студент с идентификатором, выданным базой, и версией {@code 0}.
+     */
+    public Mono<Student> insert(Student student) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+                        "INSERT INTO student (surname, name, patronymic, age, average_mark, version) "
+                                + "VALUES (:surname, :name, :patronymic, :age, :averageMark, 0)")
+                .filter(statement -> statement.returnGeneratedValues("id"));
+        spec = bindNullable(spec, "surname", student.getSurname(), String.class);
+        spec = bindNullable(spec, "name", student.getName(), String.class);
+        spec = bindNullable(spec, "patronymic", student.getPatronymic(), String.class);
+        spec = bindNullable(spec, "averageMark", student.getAverageMark(), Double.class);
+        return spec.bind("age", student.getAge())
+                .map(row -> row.get("id", Integer.class))
+                .one()
+                .map(id -> {
+                    student.setId(id);
+                    student.setVersion(0);
+                    return student;
+                });
+    }
+
+    /**
+     * Обновляет переданные поля студента одним запросом {@code UPDATE} и увеличивает его версию.
+     *
+     * @param id              идентификатор студента.
+     * @param expectedVersion ожидаемая версия студента или {@code null}, если версия не проверяется.
+     * @param patch           обновляемые поля, хотя бы одно.
+     * @return число обновлённых строк: {@code 1} или {@code 0}, если студента нет или он изменён.
+     * @throws IllegalArgumentException если не передано ни одного поля.
+     */
+    public Mono<Long> updatePartially(int id, Long expectedVersion, StudentPatch patch) {
+        if (patch.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("Не передано ни одного поля для обновления"));
+        }
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("surname", patch.getSurname());
+        values.put("name", patch.getName());
+        values.put("age", patch.getAge());
+        values.put("average_mark", patch.getAverageMark());
+        values.values().removeIf(value -> value == null);
+        if (patch.hasPatronymic()) {
+            values.put("patronymic", patch.getPatronymic());
+        }
+
+        StringBuilder sql = new StringBuilder("UPDATE student SET ");
+        values.keySet().forEach(column -> sql.append(column).append(" = :").append(column).append(", "));
+        sql.append("version = version + 1 WHERE id = :id");
+        if (expectedVersion != null) {
+            sql.append(" AND version = :version");
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString()).bind("id", id);
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            spec = value.getValue() == null
+                    ? spec.bindNull(value.getKey(), String.class)
+                    : spec.bind(value.getKey(), value.getValue());
+        }
+        if (expectedVersion != null) {
+            spec = spec.bind("version", expectedVersion);
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    /**
+     * Удаляет студента одним запросом {@code DELETE ... WHERE id = ?}.
+     *
+     * @param id              идентификатор студента.
+     * @param expectedVersion ожидаемая версия студента или {@code null}, если версия не проверяется.
+     * @return число удалённых строк: {@code 1} или {@code 0}, если студента нет или он изменён.
+     */
+    public Mono<Long> deleteById(int id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return databaseClient.sql("DELETE FROM student WHERE id = :id")
+                    .bind("id", id)
+                    .fetch()
+                    .rowsUpdated();
+        }
+        return databaseClient.sql("DELETE FROM student WHERE id = :id AND version = :version")
+                .bind("id", id)
+                .bind("version", expectedVersion)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Удаляет студентов одним запросом {@code DELETE ... WHERE id IN (...)}.
+     *
+     * @param ids идентификаторы студентов.
+     * @return число удалённых строк.
+     */
+    public Mono<Long> deleteByIds(Collection<Integer> ids) {
+        return databaseClient.sql("DELETE FROM student WHERE id IN (:ids)")
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static <T> DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                      String name, T value, Class<T> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    /**
+     * Сопоставляет строку результата со студентом. Средняя оценка хранится как {@code NUMERIC},
+     * поэтому читается как число без указания типа и приводится к {@code double}.
+     */
+    private static Student toStudent(Readable row) {
+        Number averageMark = (Number) row.get("average_mark");
+        return Student.builder()
+                .id(row.get("id", Integer.class))
+                .surname(row.get("surname", String.class))
+                .name(row.get("name", String.class))
+                .patronymic(row.get("patronymic", String.class))
+                .age(row.get("age", Integer.class))
+                .averageMark(averageMark == null ? null : averageMark.doubleValue())
+                .version(row.get("version", Long.class))
+                .build();
+    }
+}
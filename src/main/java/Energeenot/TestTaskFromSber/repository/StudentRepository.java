@@ -1,17 +1,96 @@
 package Energeenot.TestTaskFromSber.repository;
 
 import Energeenot.TestTaskFromSber.model.Student;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 /**
  * Репозиторий для работы с сущностью {@link Student}.
  * <p>
- *     Представляет стандартные CRUD операции, унаследованные от {@link JpaRepository}
+ *     Представляет стандартные CRUD операции, унаследованные от {@link JpaRepository},
+ *     а также запросы для курсорной (keyset) пагинации по первичному ключу, потоковой выгрузки и статистики.
+ *     Частичное обновление и удаление без предварительного чтения объявлены в {@link StudentRepositoryCustom},
+ *     поиск по условиям {@link StudentSpecifications} — через {@link JpaSpecificationExecutor}.
  * </p>
  *
  * @see Student
  */
 @Repository
-public interface StudentRepository extends JpaRepository<Student, Integer> {
+public interface StudentRepository extends JpaRepository<Student, Integer>, JpaSpecificationExecutor<Student>,
+        StudentRepositoryCustom {
+
+    /**
+     * Число строк, получаемых драйвером JDBC за одно обращение к базе при потоковой выгрузке.
+     */
+    int EXPORT_FETCH_SIZE = 1000;
+
+    /**
+     * Возвращает первых студентов в порядке возрастания идентификатора.
+     *
+     * @param limit максимальное число строк.
+     * @return список студентов, упорядоченный по {@code id}.
+     */
+    List<Student> findAllByOrderByIdAsc(Limit limit);
+
+    /**
+     * Возвращает студентов, идентификатор которых больше курсора, в порядке возрастания идентификатора.
+     * <p>
+     *     Условие {@code id > ?} обслуживается индексом первичного ключа, поэтому стоимость запроса
+     *     не зависит от того, насколько далеко клиент пролистал таблицу, в отличие от {@code OFFSET}.
+     * </p>
+     *
+     * @param id    курсор — идентификатор последнего студента предыдущей страницы.
+     * @param limit максимальное число строк.
+     * @return список студентов, упорядоченный по {@code id}.
+     */
+    List<Student> findByIdGreaterThanOrderByIdAsc(int id, Limit limit);
+
+    /**
+     * Возвращает всех студентов в виде потока в порядке возрастания идентификатора.
+     * <p>
+     *     Строки читаются из базы порциями по {@value #EXPORT_FETCH_SIZE} через курсор JDBC, сущности загружаются
+     *     в режиме только для чтения. Поток должен использоваться внутри транзакции и быть закрыт после чтения.
+     * </p>
+     *
+     * @return поток объектов {@link Student}.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Student> streamAllByOrderByIdAsc();
+
+    /**
+     * Возвращает идентификаторы и ФИО всех студентов в виде потока для построения индекса ФИО.
+     * <p>
+     *     Выбираются только четыре столбца без загрузки сущностей, строки читаются порциями
+     *     по {@value #EXPORT_FETCH_SIZE}. Поток должен использоваться внутри транзакции и быть закрыт после чтения.
+     * </p>
+     *
+     * @return поток строк {@code [id, surname, name, patronymic]}.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    @Query("select s.id, s.surname, s.name, s.patronymic from Student s")
+    Stream<Object[]> streamNames();
+
+    /**
+     * Возвращает число студентов для каждой пары «возраст, средняя оценка».
+     * <p>
+     *     Средняя оценка принимает не больше 401 значения, поэтому результат не больше числа возрастов,
+     *     умноженного на 401, независимо от числа студентов.
+     * </p>
+     *
+     * @return строки {@code [age, averageMark, count]}.
+     */
+    @Query("select s.age, s.averageMark, count(s) from Student s group by s.age, s.averageMark")
+    List<Object[]> countByAgeAndAverageMark();
 }
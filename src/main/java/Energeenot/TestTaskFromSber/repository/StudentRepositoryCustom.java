@@ -0,0 +1,80 @@
+package Energeenot.TestTaskFromSber.repository;
+
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
+import Energeenot.TestTaskFromSber.model.Student;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Запросы к таблице {@code student}, которые не выражаются производными методами Spring Data.
+ *
+ * @see StudentRepositoryCustomImpl
+ */
+public interface StudentRepositoryCustom {
+
+    /**
+     * Поля студента, которые можно запросить в {@link #findFields(Collection, Specification, Sort, int)}.
+     */
+    List<String> PROJECTABLE_FIELDS = List.of("id", "surname", "name", "patronymic", "age", "averageMark");
+
+    /**
+     * Обновляет одним запросом только переданные поля студента и увеличивает его версию.
+     * <p>
+     *     Тот же запрос возвращает строку до обновления: в PostgreSQL {@code UPDATE ... FROM previous RETURNING}
+     *     с блокирующим {@code SELECT ... FOR UPDATE} в {@code WITH previous AS (...)}, в H2 — выборка
+     *     из {@code OLD TABLE (UPDATE ...)}. Обновлённый студент получается из неё подстановкой переданных полей,
+     *     поэтому ни до, ни после обновления студент не читается отдельно. Возвращённый студент не попадает
+     *     в контекст персистентности.
+     * </p>
+     *
+     * @param id              идентификатор студента.
+     * @param expectedVersion ожидаемая версия студента или {@code null}, если версия не проверяется.
+     * @param patch           поля для обновления; должно быть передано хотя бы одно поле.
+     * @return обновлённый студент с прежними возрастом и средней оценкой или пустой {@link Optional},
+     * если студента нет или его версия другая.
+     */
+    Optional<StudentUpdate> updatePartially(int id, Long expectedVersion, StudentPatch patch);
+
+    /**
+     * Удаляет студента одним запросом {@code DELETE ... WHERE id = ? AND version = ?}, который возвращает
+     * возраст и среднюю оценку удалённой строки: в PostgreSQL через {@code RETURNING}, в H2 — выборкой
+     * из {@code OLD TABLE (DELETE ...)}.
+     *
+     * @param id              идентификатор студента.
+     * @param expectedVersion ожидаемая версия студента или {@code null}, если версия не проверяется.
+     * @return значения полей удалённого студента или пустой {@link Optional}, если студента нет или его версия
+     * другая.
+     */
+    Optional<StudentSnapshot> deleteStudent(int id, Long expectedVersion);
+
+    /**
+     * Удаляет студентов одним запросом {@code DELETE ... WHERE id IN (...)}, который возвращает возраст и среднюю
+     * оценку удалённых строк так же, как {@link #deleteStudent(int, Long)}.
+     *
+     * @param ids идентификаторы студентов.
+     * @return значения полей удалённых студентов; отсутствующих в базе студентов в списке нет.
+     */
+    List<StudentSnapshot> deleteStudents(Collection<Integer> ids);
+
+    /**
+     * Возвращает только перечисленные поля студентов.
+     * <p>
+     *     Запрос {@code SELECT} выбирает только нужные столбцы и возвращает значения, а не сущности,
+     *     поэтому строки не попадают в контекст персистентности. Поля сортировки выбираются всегда,
+     *     даже если не перечислены, чтобы по последней строке можно было построить курсор.
+     * </p>
+     *
+     * @param fields        поля из {@link #PROJECTABLE_FIELDS}.
+     * @param specification условие отбора или {@code null}, если отбирать нужно всех студентов.
+     * @param sort          порядок строк.
+     * @param limit         максимальное число строк.
+     * @return строки в виде «поле — значение» в порядке перечисления полей.
+     */
+    List<Map<String, Object>> findFields(Collection<String> fields, Specification<Student> specification, Sort sort,
+                                         int limit);
+}
@@ -0,0 +1,228 @@
+package Energeenot.TestTaskFromSber.repository;
+
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
+import Energeenot.TestTaskFromSber.model.Student;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Реализация {@link StudentRepositoryCustom} через JPA Criteria API и, для изменения и удаления с возвратом строк,
+ * JDBC.
+ */
+@RequiredArgsConstructor
+public class StudentRepositoryCustomImpl implements StudentRepositoryCustom {
+
+    /**
+     * Столбцы строки студента, которые возвращают запросы изменения.
+     */
+    private static final String COLUMNS = "id, surname, name, patronymic, age, average_mark, version";
+
+    /**
+     * Столбцы удалённой строки, которые нужны для статистики средних оценок.
+     */
+    private static final String SNAPSHOT_COLUMNS = "id, age, average_mark";
+
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public Optional<StudentUpdate> updatePartially(int id, Long expectedVersion, StudentPatch patch) {
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("Не передано ни одного поля для обновления");
+        }
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (patch.getSurname() != null) {
+            values.put("surname", patch.getSurname());
+        }
+        if (patch.getName() != null) {
+            values.put("name", patch.getName());
+        }
+        if (patch.hasPatronymic()) {
+            values.put("patronymic", patch.getPatronymic());
+        }
+        if (patch.getAge() != null) {
+            values.put("age", patch.getAge());
+        }
+        if (patch.getAverageMark() != null) {
+            values.put("average_mark", patch.getAverageMark());
+        }
+        StringBuilder set = new StringBuilder();
+        values.keySet().forEach(column -> set.append(column).append(" = ?, "));
+        set.append("version = student.version + 1");
+        String where = expectedVersion == null ? "id = ?" : "id = ? AND version = ?";
+
+        entityManager.flush();
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            boolean postgres = connection.isWrapperFor(PGConnection.class);
+            String sql = postgres
+                    ? "WITH previous AS (SELECT " + COLUMNS + " FROM student WHERE " + where + " FOR UPDATE) "
+                    + "UPDATE student SET " + set + " FROM previous WHERE student.id = previous.id "
+                    + "RETURNING previous.*"
+                    : "SELECT " + COLUMNS + " FROM OLD TABLE (UPDATE student SET " + set + " WHERE " + where + ")";
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int index = 1;
+                if (postgres) {
+                    index = setKey(statement, index, id, expectedVersion);
+                }
+                for (Object value : values.values()) {
+                    if (value == null) {
+                        statement.setNull(index++, Types.VARCHAR);
+                    } else {
+                        statement.setObject(index++, value);
+                    }
+                }
+                if (!postgres) {
+                    setKey(statement, index, id, expectedVersion);
+                }
+                try (ResultSet row = statement.executeQuery()) {
+                    if (!row.next()) {
+                        return Optional.empty();
+                    }
+                    Student updated = Student.builder()
+                            .id(row.getInt("id"))
+                            .surname(patch.getSurname() != null ? patch.getSurname() : row.getString("surname"))
+                            .name(patch.getName() != null ? patch.getName() : row.getString("name"))
+                            .patronymic(patch.hasPatronymic() ? patch.getPatronymic() : row.getString("patronymic"))
+                            .age(patch.getAge() != null ? patch.getAge() : row.getInt("age"))
+                            .averageMark(patch.getAverageMark() != null
+                                    ? patch.getAverageMark() : row.getDouble("average_mark"))
+                            .version(row.getLong("version") + 1)
+                            .build();
+                    return Optional.of(new StudentUpdate(updated, toSnapshot(row)));
+                }
+            }
+        });
+    }
+
+    @Override
+    @Transactional
+    public Optional<StudentSnapshot> deleteStudent(int id, Long expectedVersion) {
+        String where = expectedVersion == null ? "id = ?" : "id = ? AND version = ?";
+        List<StudentSnapshot> deleted = delete(where, statement -> setKey(statement, 1, id, expectedVersion));
+        return deleted.stream().findFirst();
+    }
+
+    @Override
+    @Transactional
+    public List<StudentSnapshot> deleteStudents(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String where = "id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        return delete(where, statement -> {
+            int index = 1;
+            for (int id : ids) {
+                statement.setInt(index++, id);
+            }
+            return index;
+        });
+    }
+
+    /**
+     * Удаляет строки одним запросом и возвращает их возраст и среднюю оценку: в PostgreSQL через
+     * {@code DELETE ... RETURNING}, в H2 — выборкой из {@code OLD TABLE (DELETE ...)}.
+     */
+    private List<StudentSnapshot> delete(String where, ParameterSetter parameters) {
+        entityManager.flush();
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            String sql = connection.isWrapperFor(PGConnection.class)
+                    ? "DELETE FROM student WHERE " + where + " RETURNING " + SNAPSHOT_COLUMNS
+                    : "SELECT " + SNAPSHOT_COLUMNS + " FROM OLD TABLE (DELETE FROM student WHERE " + where + ")";
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                parameters.set(statement);
+                List<StudentSnapshot> deleted = new ArrayList<>();
+                try (ResultSet row = statement.executeQuery()) {
+                    while (row.next()) {
+                        deleted.add(toSnapshot(row));
+                    }
+                }
+                return deleted;
+            }
+        });
+    }
+
+    private static int setKey(PreparedStatement statement, int index, int id, Long expectedVersion)
+            throws SQLException {
+        statement.setInt(index++, id);
+        if (expectedVersion != null) {
+            statement.setLong(index++, expectedVersion);
+        }
+        return index;
+    }
+
+    private static StudentSnapshot toSnapshot(ResultSet row) throws SQLException {
+        return new StudentSnapshot(row.getInt("id"), row.getInt("age"), row.getDouble("average_mark"));
+    }
+
+    /**
+     * Подставляет параметры в запрос и возвращает индекс следующего параметра.
+     */
+    @FunctionalInterface
+    private interface ParameterSetter {
+
+        int set(PreparedStatement statement) throws SQLException;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findFields(Collection<String> fields, Specification<Student> specification,
+                                                Sort sort, int limit) {
+        Set<String> selected = new LinkedHashSet<>(fields);
+        sort.forEach(order -> selected.add(order.getProperty()));
+        if (!PROJECTABLE_FIELDS.containsAll(selected)) {
+            throw new IllegalArgumentException("Запрошены неизвестные поля студента: " + selected);
+        }
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Student> root = query.from(Student.class);
+        List<Selection<?>> selections = new ArrayList<>(selected.size());
+        selected.forEach(field -> selections.add(root.get(field).alias(field)));
+        query.multiselect(selections);
+        if (specification != null) {
+            Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+
+        List<Tuple> tuples = entityManager.createQuery(query).setMaxResults(limit).getResultList();
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (TupleElement<?> element : tuple.getElements()) {
+                row.put(element.getAlias(), tuple.get(element));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,12 @@
+package Energeenot.TestTaskFromSber.repository;
+
+/**
+ * Возраст и средняя оценка студента до изменения или удаления, возвращаемые тем же запросом {@code UPDATE}
+ * или {@code DELETE}: по ним из статистики средних оценок исключаются прежние значения.
+ *
+ * @param id          идентификатор студента.
+ * @param age         возраст.
+ * @param averageMark средняя оценка.
+ */
+public record StudentSnapshot(int id, int age, Double averageMark) {
+}
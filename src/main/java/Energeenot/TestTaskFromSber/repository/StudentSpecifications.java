@@ -0,0 +1,73 @@
+package Energeenot.TestTaskFromSber.repository;
+
+import Energeenot.TestTaskFromSber.dto.StudentSearchCriteria;
+import Energeenot.TestTaskFromSber.model.Student;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Условия поиска студентов для {@link StudentRepository}.
+ * <p>
+ *     Условия построены так, чтобы их обслуживали составные индексы таблицы {@code student}:
+ *     по префиксу фамилии и имени — {@code LIKE 'x%'}, по возрасту и средней оценке — диапазоны.
+ * </p>
+ */
+public final class StudentSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private StudentSpecifications() {
+    }
+
+    /**
+     * Возвращает условие, которому соответствуют студенты, подходящие под параметры поиска.
+     *
+     * @param criteria параметры поиска.
+     * @return условие поиска.
+     */
+    public static Specification<Student> matching(StudentSearchCriteria criteria) {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (hasText(criteria.getSurname())) {
+                predicates.add(criteriaBuilder.like(root.get("surname"), prefixPattern(criteria.getSurname()), LIKE_ESCAPE));
+            }
+            if (hasText(criteria.getName())) {
+                predicates.add(criteriaBuilder.like(root.get("name"), prefixPattern(criteria.getName()), LIKE_ESCAPE));
+            }
+            if (criteria.getMinAge() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("age"), criteria.getMinAge()));
+            }
+            if (criteria.getMaxAge() != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("age"), criteria.getMaxAge()));
+            }
+            if (criteria.getMinMark() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("averageMark"), criteria.getMinMark()));
+            }
+            if (criteria.getMaxMark() != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("averageMark"), criteria.getMaxMark()));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    /**
+     * Экранирует спецсимволы {@code LIKE} и добавляет {@code %} в конец, чтобы получился поиск по префиксу.
+     */
+    private static String prefixPattern(String prefix) {
+        StringBuilder pattern = new StringBuilder(prefix.length() + 1);
+        for (char c : prefix.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
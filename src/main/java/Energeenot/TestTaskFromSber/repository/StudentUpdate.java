@@ -0,0 +1,12 @@
+package Energeenot.TestTaskFromSber.repository;
+
+import Energeenot.TestTaskFromSber.model.Student;
+
+/**
+ * Результат частичного обновления студента.
+ *
+ * @param student студент после обновления.
+ * @param before  возраст и средняя оценка студента до обновления.
+ */
+public record StudentUpdate(Student student, StudentSnapshot before) {
+}
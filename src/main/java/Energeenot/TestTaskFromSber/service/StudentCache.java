@@ -0,0 +1,196 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.PrimaryReads;
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.dto.CacheStatistics;
+import Energeenot.TestTaskFromSber.model.Student;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Кэш студентов по идентификатору перед {@link StudentService#getStudentById(int)}.
+ * <p>
+ *     Хранит как найденных студентов, так и отметки об отсутствии студента (пустой {@link Optional}),
+ *     чтобы повторные запросы несуществующих идентификаторов тоже не доходили до базы.
+ *     Размер кэша и время жизни записей задаются настройками {@code students.cache.*}.
+ *     Если кэш выключен, все обращения передаются в базу.
+ * </p>
+ * <p>
+ *     Счётчики попаданий, промахов и вытеснений публикуются в метриках {@code cache.*} с тегом {@code cache=students}.
+ * </p>
+ * <p>
+ *     Записи хранятся как {@link CompletableFuture}, чтобы загрузка из базы выполнялась вне блокировки
+ *     внутри Caffeine: {@code Cache.get(key, loader)} вызывает загрузчик под монитором {@code ConcurrentHashMap},
+ *     и виртуальный поток, ожидающий ответа JDBC, занимал бы поток-носитель.
+ * </p>
+ */
+@Component
+@Slf4j
+public class StudentCache implements MeterBinder {
+
+    private final boolean enabled;
+    private final AsyncCache<Integer, Optional<Student>> asyncCache;
+    private final Cache<Integer, Optional<Student>> cache;
+
+    public StudentCache(StudentProperties studentProperties) {
+        StudentProperties.Cache settings = studentProperties.getCache();
+        this.enabled = settings.isEnabled();
+        long timeToLive = settings.getTimeToLive().toNanos();
+        long negativeTimeToLive = settings.getNegativeTimeToLive().toNanos();
+        this.asyncCache = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfter(new Expiry<Integer, Optional<Student>>() {
+                    @Override
+                    public long expireAfterCreate(Integer id, Optional<Student> student, long currentTime) {
+                        return student.isPresent() ? timeToLive : negativeTimeToLive;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Integer id, Optional<Student> student, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(id, student, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Integer id, Optional<Student> student, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+        this.cache = asyncCache.synchronous();
+        log.info("log: Кэш студентов {}", enabled ? "включён" : "выключен");
+    }
+
+    /**
+     * Возвращает студента из кэша или загружает его.
+     * <p>
+     *     Параллельные промахи по одному идентификатору приводят к одной загрузке: её выполняет
+     *     вызывающий поток, остальные ждут того же {@link CompletableFuture}. Если загрузка завершилась
+     *     исключением, запись не сохраняется, и исключение получают все ожидавшие. Загрузчик читает
+     *     из основной базы ({@link PrimaryReads}): запись, загруженная с отстающей реплики, оставалась бы
+     *     устаревшей до истечения времени жизни. Если кэш выключен, загрузчик может читать с реплик.
+     * </p>
+     *
+     * @param id     идентификатор студента.
+     * @param loader функция загрузки студента из базы.
+     * @return найденный студент или пустой {@link Optional}.
+     */
+    public Optional<Student> get(int id, Function<Integer, Optional<Student>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        CompletableFuture<Optional<Student>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<Student>> result = asyncCache.get(id, (key, executor) -> load);
+        if (result == load) {
+            try {
+                load.complete(PrimaryReads.call(() -> loader.apply(id)));
+            } catch (RuntimeException e) {
+                load.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает записи, которые уже есть в кэше.
+     *
+     * @param ids идентификаторы студентов.
+     * @return найденные в кэше записи; идентификаторов без записи в результате нет.
+     */
+    public Map<Integer, Optional<Student>> getAllPresent(Collection<Integer> ids) {
+        if (!enabled) {
+            return Map.of();
+        }
+        return cache.getAllPresent(ids);
+    }
+
+    /**
+     * Сохраняет в кэш студентов, загруженных в обход {@link #get(int, Function)}.
+     *
+     * @param students студенты по идентификаторам; пустой {@link Optional} — отметка об отсутствии.
+     */
+    public void putAll(Map<Integer, Optional<Student>> students) {
+        if (enabled) {
+            cache.putAll(students);
+        }
+    }
+
+    /**
+     * Удаляет запись о студенте после его изменения или удаления.
+     * <p>
+     *     Если изменение выполняется в транзакции, запись удаляется только после её фиксации: удалённую до фиксации
+     *     запись параллельный запрос снова загрузил бы из базы с прежним значением, а при откате транзакции
+     *     запись остаётся верной.
+     * </p>
+     *
+     * @param id идентификатор студента.
+     */
+    public void invalidate(int id) {
+        invalidateAll(List.of(id));
+    }
+
+    /**
+     * Удаляет записи о студентах после их изменения, см. {@link #invalidate(int)}.
+     *
+     * @param ids идентификаторы студентов.
+     */
+    public void invalidateAll(Collection<Integer> ids) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidateAll(ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidateAll(ids);
+            }
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "students");
+    }
+
+    /**
+     * Возвращает счётчики кэша.
+     *
+     * @return счётчики попаданий, промахов и вытеснений.
+     */
+    public CacheStatistics statistics() {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(enabled, cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate());
+    }
+}
@@ -0,0 +1,263 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.model.StudentEvent;
+import Energeenot.TestTaskFromSber.repository.StudentEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Рассылка событий журнала изменений студентов подписчикам {@code GET /students/changes} (Server-Sent Events).
+ * <p>
+ *     Один поток читает из таблицы {@code student_event} события с номером больше последнего разосланного
+ *     и раскладывает их в очереди подписчиков. Поток просыпается после фиксации каждой транзакции с событиями
+ *     ({@link StudentEventOutbox}) и не реже {@code students.feed.poll-interval}, чтобы получать события,
+ *     записанные другими экземплярами приложения.
+ * </p>
+ * <p>
+ *     У каждого подписчика своя очередь на {@code students.feed.buffer-size} событий и свой виртуальный поток,
+ *     который отправляет их клиенту, поэтому медленный клиент не задерживает остальных. Если очередь переполнена,
+ *     подписчик отключается: клиент переподключается с заголовком {@code Last-Event-ID} и дочитывает пропущенное
+ *     из журнала. События старше {@code students.feed.retention} удаляются; продолжить чтение с удалённого события
+ *     нельзя, клиент получает статус 410 (GONE) и должен заново прочитать список студентов.
+ * </p>
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class StudentChangeFeed implements SmartLifecycle {
+
+    private final StudentEventRepository eventRepository;
+    private final StudentProperties studentProperties;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Semaphore wakeUps = new Semaphore(0);
+
+    /**
+     * Номер последнего события, разосланного подписчикам.
+     */
+    private volatile long cursor;
+    private volatile Thread dispatcher;
+    private long nextPruneNanos;
+
+    /**
+     * Подписывает клиента на события журнала изменений.
+     *
+     * @param lastEventId номер последнего полученного клиентом события или {@code null}, чтобы получать
+     *                    только новые события.
+     * @return поток событий Server-Sent Events.
+     * @throws ResponseStatusException если события после {@code lastEventId} уже удалены из журнала
+     *                                 или такого события не было.
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        Subscriber subscriber = new Subscriber(studentProperties.getFeed().getBufferSize());
+        subscribers.add(subscriber);
+        try {
+            subscriber.lastSent = lastEventId == null ? cursor : checkResumable(lastEventId);
+        } catch (RuntimeException e) {
+            subscribers.remove(subscriber);
+            throw e;
+        }
+        log.info("log: Подписка на изменения студентов после события {}, подписчиков: {}",
+                subscriber.lastSent, subscribers.size());
+        Thread.ofVirtual().name("student-change-feed-subscriber").start(subscriber::run);
+        return subscriber.emitter;
+    }
+
+    /**
+     * Сообщает, что в журнал записаны новые события.
+     */
+    public void wakeUp() {
+        wakeUps.release();
+    }
+
+    /**
+     * Возвращает число подключённых подписчиков.
+     *
+     * @return число подписчиков.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void start() {
+        Long lastIssued = eventRepository.findLastIssuedId();
+        cursor = lastIssued == null ? 0 : lastIssued;
+        nextPruneNanos = System.nanoTime();
+        // Поток назначается до запуска: иначе он может проверить dispatcher раньше присваивания и сразу завершиться
+        Thread thread = Thread.ofPlatform().daemon().name("student-change-feed").unstarted(this::dispatch);
+        dispatcher = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = dispatcher;
+        dispatcher = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        subscribers.forEach(Subscriber::close);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return dispatcher != null;
+    }
+
+    private long checkResumable(long lastEventId) {
+        Long lastIssued = eventRepository.findLastIssuedId();
+        long last = lastIssued == null ? 0 : lastIssued;
+        Long oldest = eventRepository.findMinId();
+        long oldestAvailable = oldest == null ? last + 1 : oldest;
+        if (lastEventId > last || lastEventId < oldestAvailable - 1) {
+            log.error("log: Нельзя продолжить чтение изменений после события {}: в журнале события с {} по {}",
+                    lastEventId, oldestAvailable, last);
+            throw new ResponseStatusException(HttpStatus.GONE,
+                    "События после " + lastEventId + " недоступны, прочитайте список студентов заново");
+        }
+        return lastEventId;
+    }
+
+    private void dispatch() {
+        StudentProperties.Feed settings = studentProperties.getFeed();
+        while (dispatcher != null) {
+            try {
+                wakeUps.tryAcquire(settings.getPollInterval().toNanos(), TimeUnit.NANOSECONDS);
+                wakeUps.drainPermits();
+                List<StudentEvent> events;
+                do {
+                    events = eventRepository.findByIdGreaterThanOrderByIdAsc(cursor, Limit.of(settings.getBatchSize()));
+                    for (Subscriber subscriber : subscribers) {
+                        subscriber.offer(events);
+                    }
+                    if (!events.isEmpty()) {
+                        cursor = events.get(events.size() - 1).getId();
+                    }
+                } while (events.size() == settings.getBatchSize());
+                prune(settings);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.error("log: Ошибка при чтении журнала изменений студентов {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Удаляет устаревшие события не чаще раза в минуту.
+     */
+    private void prune(StudentProperties.Feed settings) {
+        long now = System.nanoTime();
+        if (now - nextPruneNanos < 0) {
+            return;
+        }
+        nextPruneNanos = now + TimeUnit.MINUTES.toNanos(1);
+        int deleted = eventRepository.deleteByCreatedAtBefore(Instant.now().minus(settings.getRetention()));
+        if (deleted > 0) {
+            log.info("log: Из журнала изменений удалено устаревших событий: {}", deleted);
+        }
+    }
+
+    /**
+     * Подписчик: очередь событий и поток, отправляющий их клиенту.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter = new SseEmitter();
+        private final BlockingQueue<StudentEvent> queue;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        /**
+         * Номер последнего отправленного события; события с меньшим номером пропускаются.
+         */
+        private volatile long lastSent;
+
+        Subscriber(int bufferSize) {
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+            emitter.onCompletion(this::close);
+            emitter.onTimeout(this::close);
+            emitter.onError(e -> close());
+        }
+
+        void offer(List<StudentEvent> events) {
+            for (StudentEvent event : events) {
+                if (!queue.offer(event)) {
+                    log.warn("log: Подписчик на изменения студентов не успевает получать события и отключён "
+                            + "после события {}", lastSent);
+                    close();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Отправляет клиенту события из журнала после {@link #lastSent}, затем события из очереди.
+         * Подписчик добавлен в рассылку до чтения журнала, поэтому события между ними не теряются.
+         */
+        void run() {
+            StudentProperties.Feed settings = studentProperties.getFeed();
+            long heartbeatNanos = settings.getHeartbeatInterval().toNanos();
+            try {
+                List<StudentEvent> replay;
+                do {
+                    replay = eventRepository.findByIdGreaterThanOrderByIdAsc(lastSent, Limit.of(settings.getBatchSize()));
+                    for (StudentEvent event : replay) {
+                        send(event);
+                    }
+                } while (replay.size() == settings.getBatchSize() && !closed.get());
+                while (!closed.get()) {
+                    StudentEvent event = queue.poll(heartbeatNanos, TimeUnit.NANOSECONDS);
+                    if (event == null) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else if (event.getId() > lastSent) {
+                        send(event);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.info("log: Подписчик на изменения студентов отключился после события {}", lastSent);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("log: Ошибка при отправке изменений студентов {}", e.getMessage(), e);
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscribers.remove(this);
+                emitter.complete();
+            }
+        }
+
+        private void send(StudentEvent event) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.getId()))
+                    .name(event.getType().name().toLowerCase(Locale.ROOT))
+                    .data(event));
+            lastSent = event.getId();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.model.StudentEvent;
+import Energeenot.TestTaskFromSber.model.StudentEventCounter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Запись событий журнала изменений студентов в таблицу {@code student_event}.
+ * <p>
+ *     События записываются в транзакции изменения, поэтому попадают в журнал тогда и только тогда, когда
+ *     изменение зафиксировано. После фиксации {@link StudentChangeFeed} получает сигнал и рассылает их подписчикам.
+ * </p>
+ * <p>
+ *     Номера событий выдаёт {@link StudentEventCounter}: его строка блокируется до конца транзакции, так что
+ *     транзакции, записывающие события, фиксируются по очереди. Блокировка берётся после изменения студентов,
+ *     непосредственно перед фиксацией, поэтому очередь занимает только запись событий и фиксацию.
+ * </p>
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class StudentEventOutbox {
+
+    private final EntityManager entityManager;
+    private final StudentProperties studentProperties;
+    private final StudentChangeFeed changeFeed;
+
+    /**
+     * Записывает события об изменении студентов в текущей транзакции.
+     * <p>
+     *     События отправляются в базу пакетами по {@code students.insert.batch-size}, после каждого пакета
+     *     контекст персистентности очищается, как в {@link StudentService#addStudent(java.util.List)}.
+     * </p>
+     *
+     * @param type       вид изменения.
+     * @param studentIds идентификаторы изменённых студентов.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(StudentEvent.Type type, Collection<Integer> studentIds) {
+        if (studentIds.isEmpty()) {
+            return;
+        }
+        StudentEventCounter counter = entityManager.find(StudentEventCounter.class, StudentEventCounter.ID,
+                LockModeType.PESSIMISTIC_WRITE);
+        if (counter == null) {
+            counter = new StudentEventCounter(StudentEventCounter.ID, 0);
+            entityManager.persist(counter);
+        }
+        long id = counter.getLastId();
+        counter.setLastId(id + studentIds.size());
+
+        int batchSize = studentProperties.getInsert().getBatchSize();
+        Instant now = Instant.now();
+        int written = 0;
+        for (Integer studentId : studentIds) {
+            entityManager.persist(new StudentEvent(++id, type, studentId, now));
+            if (++written % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changeFeed.wakeUp();
+            }
+        });
+    }
+}
@@ -0,0 +1,337 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.dto.ImportResult;
+import Energeenot.TestTaskFromSber.model.Student;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сервис потоковой загрузки студентов из CSV или NDJSON.
+ * <p>
+ *     Тело запроса читается построчно, в памяти держится только текущая порция
+ *     из {@code students.insert.import-chunk-size} студентов. Каждая порция добавляется в своей транзакции:
+ *     при ошибке откатывается только она, а уже добавленные порции остаются в базе. Это верно для обоих способов
+ *     добавления. Для PostgreSQL порция передаётся командой {@code COPY ... FROM STDIN} во временную таблицу
+ *     и переносится в {@code student} запросом {@code INSERT ... SELECT ... RETURNING}. Идентификаторы для неё
+ *     берутся из {@code student_id_seq} блоками по {@value #ID_BLOCK_SIZE}, как их берёт Hibernate: одно значение
+ *     последовательности на блок, а не на строку. Для остальных баз порция сохраняется
+ *     через {@link StudentService#addStudent(List)} с пакетной отправкой INSERT.
+ *     В обоих случаях добавленные студенты учитываются одним вызовом {@link StudentService#recordCreated(List)}
+ *     так же, как при {@code POST /students}.
+ * </p>
+ * <p>
+ *     Формат CSV: {@code surname,name,patronymic,age,averageMark}, первая строка может быть заголовком.
+ *     Формат NDJSON: по одному JSON-объекту {@link Student} на строку.
+ *     Строки, которые не удалось разобрать или которые нарушают ограничения полей, пропускаются и учитываются
+ *     в числе отклонённых.
+ * </p>
+ */
+@Service
+@Profile("!reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class StudentImportService {
+
+    /**
+     * Тип содержимого CSV.
+     */
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    /**
+     * Число идентификаторов, закреплённых за одним значением {@code student_id_seq}. Совпадает с шагом
+     * последовательности и {@code allocationSize} в {@link Student}.
+     */
+    static final int ID_BLOCK_SIZE = 50;
+
+    private static final String NEXT_ID_BLOCKS_SQL = "SELECT nextval('student_id_seq') FROM generate_series(1, ?)";
+    private static final String CREATE_STAGING_SQL = "CREATE TEMPORARY TABLE student_import "
+            + "(id integer, surname varchar(255), name varchar(255), patronymic varchar(255), age integer, "
+            + "average_mark double precision) "
+            + "ON COMMIT DROP";
+    private static final String COPY_SQL =
+            "COPY student_import (id, surname, name, patronymic, age, average_mark) FROM STDIN WITH (FORMAT csv)";
+    private static final String INSERT_SQL = "INSERT INTO student (id, surname, name, patronymic, age, average_mark) "
+            + "SELECT id, surname, name, patronymic, age, average_mark FROM student_import "
+            + "RETURNING id, surname, name, patronymic, age, average_mark, version";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int CSV_FIELD_COUNT = 5;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StudentService studentService;
+    private final ObjectMapper objectMapper;
+    private final StudentProperties studentProperties;
+    private final Validator validator;
+
+    /**
+     * Формат загружаемых данных.
+     */
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    /**
+     * Загружает студентов из потока.
+     *
+     * @param inputStream поток с данными в кодировке UTF-8.
+     * @param format      формат данных.
+     * @return число добавленных и отклонённых строк и время загрузки.
+     * @throws IOException         если не удалось прочитать поток.
+     * @throws DataAccessException если база отклонила порцию; предыдущие порции остаются добавленными.
+     */
+    public ImportResult importStudents(InputStream inputStream, Format format) throws IOException {
+        log.info("log: Вызван метод importStudents в формате {}", format);
+        long start = System.nanoTime();
+        RecordReader records = new RecordReader(
+                new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)), format);
+        boolean copySupported = Boolean.TRUE.equals(jdbcTemplate.execute(
+                (ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class)));
+
+        int chunkSize = studentProperties.getInsert().getImportChunkSize();
+        long imported = 0;
+        List<Student> chunk;
+        while (!(chunk = records.next(chunkSize)).isEmpty()) {
+            imported += copySupported ? copy(chunk) : studentService.addStudent(chunk).size();
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("log: Загрузка завершена: добавлено {}, отклонено {}, за {} мс", imported, records.rejected, elapsedMillis);
+        return new ImportResult(imported, records.rejected, elapsedMillis);
+    }
+
+    /**
+     * Добавляет порцию студентов в PostgreSQL командой {@code COPY} в одной транзакции.
+     *
+     * @param chunk студенты, прошедшие проверку ограничений.
+     * @return число добавленных строк.
+     */
+    private int copy(List<Student> chunk) {
+        List<Student> created = transactionTemplate.execute(status -> {
+            List<Integer> ids = allocateIds(chunk.size());
+            List<Student> inserted = jdbcTemplate.execute((ConnectionCallback<List<Student>>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(CREATE_STAGING_SQL);
+                    PGCopyOutputStream copyOut =
+                            new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY_SQL, COPY_BUFFER_SIZE);
+                    try {
+                        for (int i = 0; i < chunk.size(); i++) {
+                            copyOut.write(toCsvRow(ids.get(i), chunk.get(i)).getBytes(StandardCharsets.UTF_8));
+                        }
+                        copyOut.endCopy();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        if (copyOut.isActive()) {
+                            copyOut.cancelCopy();
+                        }
+                    }
+                    List<Student> rows = new ArrayList<>(chunk.size());
+                    try (ResultSet resultSet = statement.executeQuery(INSERT_SQL)) {
+                        while (resultSet.next()) {
+                            rows.add(Student.builder()
+                                    .id(resultSet.getInt("id"))
+                                    .surname(resultSet.getString("surname"))
+                                    .name(resultSet.getString("name"))
+                                    .patronymic(resultSet.getString("patronymic"))
+                                    .age(resultSet.getInt("age"))
+                                    .averageMark(resultSet.getDouble("average_mark"))
+                                    .version(resultSet.getLong("version"))
+                                    .build());
+                        }
+                    }
+                    return rows;
+                }
+            });
+            studentService.recordCreated(inserted);
+            return inserted;
+        });
+        return created == null ? 0 : created.size();
+    }
+
+    /**
+     * Выделяет идентификаторы для новых студентов блоками по {@value #ID_BLOCK_SIZE}.
+     * <p>
+     *     Pooled-оптимизатор Hibernate считает, что значение последовательности {@code hi} закрепляет за ним
+     *     идентификаторы от {@code hi - 49} до {@code hi}. Здесь блоки выделяются так же, поэтому одного запроса
+     *     с {@code ceil(count / 50)} вызовами {@code nextval} хватает на всю порцию, а идентификаторы не пересекаются
+     *     с выданными Hibernate и внутри блока идут подряд. Неположительные значения блока не используются.
+     * </p>
+     *
+     * @param count число идентификаторов.
+     * @return идентификаторы в порядке возрастания внутри каждого блока.
+     */
+    List<Integer> allocateIds(int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            int blocks = (count - ids.size() + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+            for (Long hi : jdbcTemplate.queryForList(NEXT_ID_BLOCKS_SQL, Long.class, blocks)) {
+                for (long id = Math.max(hi - ID_BLOCK_SIZE + 1, 1); id <= hi && ids.size() < count; id++) {
+                    ids.add(Math.toIntExact(id));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Формирует строку CSV для команды {@code COPY}. Пустое значение без кавычек означает {@code NULL}.
+     */
+    private static String toCsvRow(int id, Student student) {
+        return id + ","
+                + quote(student.getSurname()) + ','
+                + quote(student.getName()) + ','
+                + (student.getPatronymic() == null ? "" : quote(student.getPatronymic())) + ','
+                + student.getAge() + ','
+                + student.getAverageMark() + '\n';
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Проверяет ограничения полей {@link Student}, которые иначе проверила бы база.
+     */
+    private boolean isValid(Student student) {
+        return validator.validate(student).isEmpty();
+    }
+
+    /**
+     * Разбирает строку CSV {@code surname,name,patronymic,age,averageMark}.
+     * Поля в двойных кавычках могут содержать запятые, кавычка внутри поля удваивается.
+     */
+    static Student parseCsv(String line) {
+        List<String> fields = new ArrayList<>(CSV_FIELD_COUNT);
+        StringBuilder field = new StringBuilder();
+        boolean inQuotes = false;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inQuotes) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    inQuotes = false;
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(toField(field, quoted));
+                field.setLength(0);
+                quoted = false;
+            } else {
+                field.append(c);
+            }
+        }
+        if (inQuotes) {
+            throw new IllegalArgumentException("Незакрытая кавычка");
+        }
+        fields.add(toField(field, quoted));
+        if (fields.size() != CSV_FIELD_COUNT) {
+            throw new IllegalArgumentException("Ожидается " + CSV_FIELD_COUNT + " полей, получено " + fields.size());
+        }
+        return Student.builder()
+                .surname(fields.get(0))
+                .name(fields.get(1))
+                .patronymic(fields.get(2))
+                .age(Integer.parseInt(fields.get(3).trim()))
+                .averageMark(Double.valueOf(fields.get(4).trim()))
+                .build();
+    }
+
+    private static String toField(StringBuilder field, boolean quoted) {
+        return field.isEmpty() && !quoted ? null : field.toString();
+    }
+
+    /**
+     * Построчное чтение студентов с подсчётом отклонённых строк.
+     */
+    private final class RecordReader {
+
+        private final BufferedReader reader;
+        private final Format format;
+        private long lineNumber;
+        private long rejected;
+
+        RecordReader(BufferedReader reader, Format format) {
+            this.reader = reader;
+            this.format = format;
+        }
+
+        /**
+         * Возвращает до {@code count} следующих корректных студентов; пустой список, если данные закончились.
+         */
+        List<Student> next(int count) throws IOException {
+            List<Student> students = new ArrayList<>(count);
+            Student student;
+            while (students.size() < count && (student = next()) != null) {
+                students.add(student);
+            }
+            return students;
+        }
+
+        /**
+         * Возвращает следующего корректного студента или {@code null}, если данные закончились.
+         */
+        private Student next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || lineNumber == 1 && format == Format.CSV && isCsvHeader(line)) {
+                    continue;
+                }
+                Student student = parse(line);
+                if (student != null && isValid(student)) {
+                    return student;
+                }
+                rejected++;
+                log.warn("log: Строка {} отклонена при загрузке студентов", lineNumber);
+            }
+            return null;
+        }
+
+        private Student parse(String line) {
+            try {
+                Student student = format == Format.CSV ? parseCsv(line) : objectMapper.readValue(line, Student.class);
+                student.setId(0);
+                return student;
+            } catch (IOException | RuntimeException e) {
+                log.debug("log: Не удалось разобрать строку {}: {}", lineNumber, e.getMessage());
+                return null;
+            }
+        }
+
+        private boolean isCsvHeader(String line) {
+            return line.trim().toLowerCase(Locale.ROOT).startsWith("surname");
+        }
+    }
+}
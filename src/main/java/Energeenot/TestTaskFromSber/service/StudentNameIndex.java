@@ -0,0 +1,592 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.PrimaryReads;
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Индекс триграмм фамилии, имени и отчества студентов для нечёткого поиска {@code GET /students/search/fuzzy}.
+ * <p>
+ *     Условие {@code LIKE '%...%'} не использует индекс B-tree и читает всю таблицу, а опечатки не находит вовсе.
+ *     Индекс хранит для каждой триграммы (трёх подряд идущих символов слова, дополненного пробелами) список
+ *     студентов, в ФИО которых она встречается. Запрос разбивается на триграммы, и студенты ранжируются по доле
+ *     триграмм запроса, найденных в их ФИО, поэтому «Ивнов» находит «Иванова».
+ * </p>
+ * <p>
+ *     Чтобы индекс на миллионы студентов занимал мало памяти, в нём нет объектов на каждого студента: студенту
+ *     соответствует номер документа в массивах {@code int[]} и {@code short[]}, а списки документов хранятся
+ *     разностями соседних номеров в кодировке varint в массивах {@code byte[]}. Изменённые и удалённые документы
+ *     только помечаются и вычищаются из списков, когда их становится больше, чем живых.
+ * </p>
+ * <p>
+ *     Индекс строится при запуске и после загрузки через {@code COPY}, которая минует сервис.
+ *     {@link StudentService} передаёт изменения ФИО, и они применяются после фиксации транзакции. Изменения,
+ *     зафиксированные во время построения, повторяются на новом индексе, поэтому не теряются.
+ * </p>
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class StudentNameIndex implements SmartLifecycle {
+
+    private final StudentRepository studentRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final StudentProperties studentProperties;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Текущий индекс. Изменяется и заменяется под блокировкой записи.
+     */
+    private Index index = new Index();
+    /**
+     * Изменения, применённые во время построения нового индекса, или {@code null}, если индекс не строится.
+     */
+    private List<Consumer<Index>> pending;
+    private volatile boolean loaded;
+    private volatile ExecutorService executor;
+
+    /**
+     * Студент, найденный нечётким поиском.
+     *
+     * @param studentId  идентификатор студента.
+     * @param similarity доля триграмм запроса, найденных в ФИО студента, от 0 до 1.
+     */
+    public record Match(int studentId, double similarity) {
+    }
+
+    /**
+     * Добавляет студентов в индекс после фиксации текущей транзакции.
+     *
+     * @param students добавленные студенты.
+     */
+    public void recordCreated(Collection<Student> students) {
+        int[] ids = new int[students.size()];
+        String[] names = new String[students.size()];
+        int i = 0;
+        for (Student student : students) {
+            ids[i] = student.getId();
+            names[i++] = fullName(student.getSurname(), student.getName(), student.getPatronymic());
+        }
+        afterCommit(index -> {
+            for (int j = 0; j < ids.length; j++) {
+                index.put(ids[j], names[j]);
+            }
+        });
+    }
+
+    /**
+     * Заменяет ФИО студента в индексе после фиксации текущей транзакции.
+     *
+     * @param student студент после изменения.
+     */
+    public void recordUpdated(Student student) {
+        int id = student.getId();
+        String fullName = fullName(student.getSurname(), student.getName(), student.getPatronymic());
+        afterCommit(index -> index.put(id, fullName));
+    }
+
+    /**
+     * Удаляет студентов из индекса после фиксации текущей транзакции.
+     *
+     * @param studentIds идентификаторы удалённых студентов.
+     */
+    public void recordRemoved(Collection<Integer> studentIds) {
+        int[] ids = studentIds.stream().mapToInt(Integer::intValue).toArray();
+        afterCommit(index -> {
+            for (int id : ids) {
+                index.remove(id);
+            }
+        });
+    }
+
+    /**
+     * Ищет студентов, в ФИО которых встречается не меньше {@code students.fuzzy.min-similarity} триграмм запроса.
+     * <p>
+     *     Студенты упорядочены по убыванию доли совпавших триграмм, при равенстве — по возрастанию числа триграмм
+     *     в ФИО (более короткое ФИО ближе к запросу), затем по идентификатору.
+     * </p>
+     *
+     * @param query строка запроса.
+     * @param limit максимальное число результатов.
+     * @return найденные студенты.
+     * @throws ResponseStatusException если индекс ещё не построен.
+     */
+    public List<Match> search(String query, int limit) {
+        if (!loaded) {
+            log.warn("log: Запрошен нечёткий поиск до построения индекса ФИО");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Индекс поиска студентов ещё не построен");
+        }
+        long[] trigrams = trigrams(query);
+        if (trigrams.length == 0) {
+            return List.of();
+        }
+        int minShared = Math.max(1, (int) Math.ceil(studentProperties.getFuzzy().getMinSimilarity() * trigrams.length));
+        PriorityQueue<Long> top = new PriorityQueue<>(limit + 1);
+        lock.readLock().lock();
+        try {
+            Index current = index;
+            Postings[] lists = new Postings[trigrams.length];
+            for (int i = 0; i < trigrams.length; i++) {
+                lists[i] = current.postings.getOrDefault(trigrams[i], Postings.EMPTY);
+            }
+            Arrays.sort(lists, Comparator.comparingInt(Postings::size));
+            // Документ, в котором не меньше minShared триграмм запроса, есть хотя бы в одном из
+            // trigrams.length - minShared + 1 самых коротких списков: кандидаты набираются только из них,
+            // а длинные списки лишь досчитывают совпадения кандидатов.
+            int candidateLists = trigrams.length - minShared + 1;
+            long candidateBound = 0;
+            for (int i = 0; i < candidateLists; i++) {
+                candidateBound += lists[i].size();
+            }
+            short[] shared = new short[current.docCount];
+            int[] candidates = new int[(int) Math.min(candidateBound, current.docCount)];
+            int candidateCount = 0;
+            for (int i = 0; i < candidateLists; i++) {
+                candidateCount = lists[i].collect(shared, candidates, candidateCount);
+            }
+            for (int i = candidateLists; i < lists.length && candidateCount > 0; i++) {
+                lists[i].countCandidates(shared);
+            }
+            for (int c = 0; c < candidateCount; c++) {
+                int doc = candidates[c];
+                if (shared[doc] >= minShared && current.isLive(doc)) {
+                    long rank = rank(shared[doc], current.docTrigrams[doc], current.docStudent[doc]);
+                    if (top.size() < limit) {
+                        top.add(rank);
+                    } else if (rank > top.peek()) {
+                        top.poll();
+                        top.add(rank);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Match[] matches = new Match[top.size()];
+        for (int i = matches.length - 1; i >= 0; i--) {
+            long rank = top.poll();
+            matches[i] = new Match(Integer.MAX_VALUE - (int) rank, (double) (rank >>> 48) / trigrams.length);
+        }
+        return Arrays.asList(matches);
+    }
+
+    /**
+     * Строит индекс заново по всем студентам основной базы и заменяет им текущий.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        Index fresh = new Index();
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            PrimaryReads.call(() -> readOnly.execute(status -> {
+                try (Stream<Object[]> rows = studentRepository.streamNames()) {
+                    rows.forEach(row -> fresh.put(((Number) row[0]).intValue(),
+                            fullName((String) row[1], (String) row[2], (String) row[3])));
+                }
+                return null;
+            }));
+            lock.writeLock().lock();
+            try {
+                pending.forEach(change -> change.accept(fresh));
+                index = fresh;
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("log: Индекс ФИО построен: студентов {}, триграмм {}, за {} мс", fresh.studentCount(),
+                fresh.postings.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public void start() {
+        ExecutorService worker = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().daemon().name("student-name-index").factory());
+        executor = worker;
+        worker.execute(this::rebuildQuietly);
+    }
+
+    @Override
+    public void stop() {
+        ExecutorService worker = executor;
+        executor = null;
+        if (worker != null) {
+            worker.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return executor != null;
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("log: Не удалось построить индекс ФИО {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Применяет изменение после фиксации текущей транзакции или сразу, если транзакции нет.
+     */
+    private void afterCommit(Consumer<Index> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+
+    private void apply(Consumer<Index> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Упаковывает в число ключ сортировки результата: число совпавших триграмм, затем меньшее число триграмм ФИО,
+     * затем меньший идентификатор.
+     */
+    private static long rank(int shared, int docTrigrams, int studentId) {
+        return (long) shared << 48 | (long) (Short.MAX_VALUE - docTrigrams) << 32 | (Integer.MAX_VALUE - studentId);
+    }
+
+    private static String fullName(String surname, String name, String patronymic) {
+        return (surname == null ? "" : surname) + ' ' + (name == null ? "" : name) + ' '
+                + (patronymic == null ? "" : patronymic);
+    }
+
+    /**
+     * Разбивает строку на уникальные триграммы. Строка приводится к нижнему регистру, «ё» заменяется на «е»,
+     * всё, кроме букв и цифр, разделяет слова. Каждое слово дополняется двумя пробелами в начале и одним в конце,
+     * как в расширении {@code pg_trgm}, чтобы начало слова весило больше. Триграмма упаковывается в {@code long}
+     * по 16 бит на символ.
+     */
+    static long[] trigrams(String text) {
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        long[] trigrams = new long[normalized.length() * 2 + 2];
+        int count = 0;
+        int wordStart = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (letter && wordStart < 0) {
+                wordStart = i;
+            } else if (!letter && wordStart >= 0) {
+                String word = "  " + normalized.substring(wordStart, i) + ' ';
+                for (int j = 0; j + 3 <= word.length(); j++) {
+                    trigrams[count++] = (long) word.charAt(j) << 32 | (long) word.charAt(j + 1) << 16 | word.charAt(j + 2);
+                }
+                wordStart = -1;
+            }
+        }
+        return Arrays.stream(trigrams, 0, count).distinct().toArray();
+    }
+
+    /**
+     * Данные индекса. Доступ только под блокировкой {@link #lock}.
+     */
+    private static final class Index {
+
+        /**
+         * Идентификатор студента удалённого документа. Идентификаторы студентов начинаются с 1.
+         */
+        private static final int NO_STUDENT = 0;
+
+        private final Map<Long, Postings> postings = new HashMap<>();
+        private final IntIntMap studentDocs = new IntIntMap();
+        private int[] docStudent = new int[1024];
+        private short[] docTrigrams = new short[1024];
+        private int docCount;
+        private int deadCount;
+
+        /**
+         * Индексирует ФИО студента новым документом; прежний документ студента помечается удалённым.
+         */
+        void put(int studentId, String fullName) {
+            remove(studentId);
+            long[] trigrams = trigrams(fullName);
+            int doc = docCount++;
+            if (doc == docStudent.length) {
+                docStudent = Arrays.copyOf(docStudent, doc * 2);
+                docTrigrams = Arrays.copyOf(docTrigrams, doc * 2);
+            }
+            docStudent[doc] = studentId;
+            docTrigrams[doc] = (short) Math.min(trigrams.length, Short.MAX_VALUE);
+            for (long trigram : trigrams) {
+                postings.computeIfAbsent(trigram, key -> new Postings()).add(doc);
+            }
+            studentDocs.put(studentId, doc);
+        }
+
+        void remove(int studentId) {
+            int doc = studentDocs.remove(studentId);
+            if (doc >= 0) {
+                docStudent[doc] = NO_STUDENT;
+                if (++deadCount > docCount - deadCount) {
+                    compact();
+                }
+            }
+        }
+
+        boolean isLive(int doc) {
+            return docStudent[doc] != NO_STUDENT;
+        }
+
+        int studentCount() {
+            return docCount - deadCount;
+        }
+
+        /**
+         * Удаляет удалённые документы и перенумеровывает оставшиеся подряд с сохранением порядка,
+         * поэтому списки остаются возрастающими.
+         */
+        private void compact() {
+            int[] renumbered = new int[docCount];
+            int live = 0;
+            for (int doc = 0; doc < docCount; doc++) {
+                if (isLive(doc)) {
+                    renumbered[doc] = live;
+                    docStudent[live] = docStudent[doc];
+                    docTrigrams[live] = docTrigrams[doc];
+                    studentDocs.put(docStudent[live], live);
+                    live++;
+                } else {
+                    renumbered[doc] = -1;
+                }
+            }
+            postings.values().removeIf(list -> list.renumber(renumbered) == 0);
+            Arrays.fill(docStudent, live, docCount, NO_STUDENT);
+            docCount = live;
+            deadCount = 0;
+        }
+    }
+
+    /**
+     * Возрастающий список номеров документов: разности соседних номеров в кодировке varint,
+     * 1–2 байта на документ вместо 4 в {@code int[]}.
+     */
+    private static final class Postings {
+
+        private static final Postings EMPTY = new Postings();
+
+        private byte[] bytes = new byte[4];
+        private int length;
+        private int size;
+        private int lastDoc = -1;
+
+        int size() {
+            return size;
+        }
+
+        void add(int doc) {
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 5));
+            }
+            int delta = doc - lastDoc;
+            while ((delta & ~0x7F) != 0) {
+                bytes[length++] = (byte) (delta & 0x7F | 0x80);
+                delta >>>= 7;
+            }
+            bytes[length++] = (byte) delta;
+            lastDoc = doc;
+            size++;
+        }
+
+        void forEach(IntConsumer action) {
+            int doc = -1;
+            int position = 0;
+            while (position < length) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                doc += delta;
+                action.accept(doc);
+            }
+        }
+
+        /**
+         * Увеличивает счётчики совпадений документов списка и добавляет впервые встреченные документы в кандидаты.
+         *
+         * @return число кандидатов.
+         */
+        int collect(short[] shared, int[] candidates, int count) {
+            int doc = -1;
+            int position = 0;
+            while (position < length) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                doc += delta;
+                if (shared[doc]++ == 0) {
+                    candidates[count++] = doc;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Увеличивает счётчики совпадений только у документов, уже отобранных в кандидаты.
+         */
+        void countCandidates(short[] shared) {
+            forEach(doc -> {
+                if (shared[doc] > 0) {
+                    shared[doc]++;
+                }
+            });
+        }
+
+        /**
+         * Заменяет номера документов по таблице {@code renumbered}; документы с номером {@code -1} удаляются.
+         *
+         * @return число оставшихся документов.
+         */
+        int renumber(int[] renumbered) {
+            Postings retained = new Postings();
+            forEach(doc -> {
+                if (renumbered[doc] >= 0) {
+                    retained.add(renumbered[doc]);
+                }
+            });
+            bytes = Arrays.copyOf(retained.bytes, retained.length);
+            length = retained.length;
+            size = retained.size;
+            lastDoc = retained.lastDoc;
+            return size;
+        }
+    }
+
+    /**
+     * Хеш-таблица с открытой адресацией «идентификатор студента → номер документа» на массивах {@code int[]}.
+     * Удалённое значение заменяется на {@code -1}, ключ остаётся в таблице.
+     */
+    private static final class IntIntMap {
+
+        private static final int FREE = 0;
+
+        private int[] keys = new int[1024];
+        private int[] values = new int[1024];
+        private int size;
+
+        int get(int key) {
+            int slot = find(key);
+            return keys[slot] == FREE ? -1 : values[slot];
+        }
+
+        void put(int key, int value) {
+            int slot = find(key);
+            if (keys[slot] == FREE) {
+                if (key == FREE) {
+                    throw new IllegalArgumentException("Идентификатор студента не может быть равен " + FREE);
+                }
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    values[slot] = value;
+                    grow();
+                    return;
+                }
+            }
+            values[slot] = value;
+        }
+
+        int remove(int key) {
+            int slot = find(key);
+            if (keys[slot] == FREE) {
+                return -1;
+            }
+            int value = values[slot];
+            values[slot] = -1;
+            return value;
+        }
+
+        private int find(int key) {
+            int mask = keys.length - 1;
+            int slot = key * 0x9E3779B9 >>> 1 & mask;
+            while (keys[slot] != FREE && keys[slot] != key) {
+                slot = slot + 1 & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
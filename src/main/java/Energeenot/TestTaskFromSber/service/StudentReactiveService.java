@@ -0,0 +1,248 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.dto.BulkDeleteResult;
+import Energeenot.TestTaskFromSber.dto.StudentPage;
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentReactiveRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Реактивный вариант {@link StudentService} для профиля {@code reactive}.
+ * <p>
+ *     Повторяет поведение {@link StudentService} для операций, доступных в реактивном API: те же ограничения
+ *     выдачи без пагинации и размера страницы, тот же курсор, те же статусы 404 и 412 при изменении и удалении.
+ *     Ни один метод не блокирует поток: запросы к базе выполняются через {@link StudentReactiveRepository}.
+ *     Кэш {@link StudentCache} не используется, каждый запрос по идентификатору обращается к базе.
+ * </p>
+ * @see Student
+ */
+@Service
+@Profile("reactive")
+@Slf4j
+public class StudentReactiveService {
+
+    private final StudentReactiveRepository studentRepository;
+    private final StudentProperties studentProperties;
+    private final TransactionalOperator transactionalOperator;
+    private final DistributionSummary insertSize;
+
+    public StudentReactiveService(StudentReactiveRepository studentRepository, StudentProperties studentProperties,
+                                  TransactionalOperator transactionalOperator, MeterRegistry meterRegistry) {
+        this.studentRepository = studentRepository;
+        this.studentProperties = studentProperties;
+        this.transactionalOperator = transactionalOperator;
+        this.insertSize = DistributionSummary.builder("students.insert.size")
+                .description("Число студентов в одном вызове addStudent")
+                .baseUnit("students")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает список всех студентов.
+     *
+     * @return список студентов, не больше {@code students.pagination.unpaged-max-rows}.
+     * @throws ResponseStatusException если студентов больше допустимого числа строк.
+     */
+    public Mono<List<Student>> getAllStudents() {
+        log.info("log: Вызван метод getAllStudents");
+        int maxRows = studentProperties.getPagination().getUnpagedMaxRows();
+        return studentRepository.findAllOrderById(maxRows + 1)
+                .collectList()
+                .flatMap(students -> {
+                    if (students.size() > maxRows) {
+                        log.error("log: Число студентов превышает ограничение {} для выдачи без пагинации", maxRows);
+                        return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                "Слишком много студентов для выдачи без пагинации, используйте параметры after и limit"));
+                    }
+                    return Mono.just(students);
+                });
+    }
+
+    /**
+     * Возвращает страницу студентов при курсорной пагинации.
+     *
+     * @param after идентификатор последнего студента предыдущей страницы или {@code null} для первой страницы.
+     * @param limit размер страницы или {@code null} для размера по умолчанию.
+     * @return страница студентов {@link StudentPage}.
+     * @throws ResponseStatusException если размер страницы меньше единицы.
+     */
+    public Mono<StudentPage<Student>> getStudentsPage(Integer after, Integer limit) {
+        log.info("log: Вызван метод getStudentsPage с after {} и limit {}", after, limit);
+        int pageSize;
+        try {
+            pageSize = resolvePageSize(limit);
+        } catch (ResponseStatusException e) {
+            return Mono.error(e);
+        }
+        Flux<Student> students = after == null
+                ? studentRepository.findAllOrderById(pageSize + 1)
+                : studentRepository.findByIdGreaterThan(after, pageSize + 1);
+        return students.collectList().map(rows -> {
+            if (rows.size() <= pageSize) {
+                return new StudentPage<>(rows, null);
+            }
+            List<Student> content = rows.subList(0, pageSize);
+            return new StudentPage<>(content, content.get(pageSize - 1).getId());
+        });
+    }
+
+    /**
+     * Возвращает всех студентов потоком в порядке возрастания идентификатора.
+     * <p>
+     *     Студенты читаются из базы по мере запроса подписчиком, поэтому скорость чтения ограничена скоростью
+     *     записи ответа клиенту, а расход памяти не зависит от размера таблицы.
+     * </p>
+     *
+     * @return поток студентов.
+     */
+    public Flux<Student> exportStudents() {
+        log.info("log: Вызван метод exportStudents");
+        return studentRepository.streamAll();
+    }
+
+    /**
+     * Возвращает студента по его идентификатору.
+     *
+     * @param id идентификатор студента.
+     * @return объект {@link Student}.
+     * @throws ResponseStatusException если студент с указанным идентификатором не найден.
+     */
+    public Mono<Student> getStudentById(int id) {
+        log.info("log: Вызван метод getStudentById с id {}", id);
+        return studentRepository.findById(id)
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.error("log: Студент с id {} не найден", id);
+                    return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент не найден"));
+                }));
+    }
+
+    /**
+     * Добавляет новых студентов в одной транзакции.
+     *
+     * @param students список объектов {@link Student} для добавления.
+     * @return добавленные студенты в порядке запроса.
+     */
+    public Flux<Student> addStudent(List<Student> students) {
+        log.info("log: Попытка добавления {} студентов", students.size());
+        insertSize.record(students.size());
+        return Flux.fromIterable(students)
+                .concatMap(studentRepository::insert)
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Обновляет переданные поля студента, если его версия совпадает с ожидаемой.
+     *
+     * @param id              идентификатор студента.
+     * @param patch           объект {@link StudentPatch} с обновляемыми полями.
+     * @param expectedVersion ожидаемая версия студента или {@code null}, если версия не проверяется.
+     * @return пустой {@link Mono} после обновления.
+     * @throws ResponseStatusException если студент не найден или его версия отличается от ожидаемой.
+     */
+    public Mono<Void> updateStudent(int id, StudentPatch patch, Long expectedVersion) {
+        log.info("log: Вызван метод updateStudent для студента с id {} и версией {}", id, expectedVersion);
+        Mono<Boolean> found;
+        if (!patch.isEmpty()) {
+            found = studentRepository.updatePartially(id, expectedVersion, patch).map(updated -> updated > 0);
+        } else {
+            found = expectedVersion == null
+                    ? studentRepository.existsById(id)
+                    : studentRepository.existsByIdAndVersion(id, expectedVersion);
+        }
+        return found.flatMap(updated -> updated
+                ? Mono.<Void>empty()
+                : notFoundOrModified(id, expectedVersion, "обновлении"));
+    }
+
+    /**
+     * Удаляет студента, если его версия совпадает с ожидаемой.
+     *
+     * @param id              идентификатор студента.
+     * @param expectedVersion ожидаемая версия студента или {@code null}, если версия не проверяется.
+     * @return пустой {@link Mono} после удаления.
+     * @throws ResponseStatusException если студент не найден или его версия отличается от ожидаемой.
+     */
+    public Mono<Void> deleteStudent(int id, Long expectedVersion) {
+        log.info("log: Вызван метод deleteStudent для удаления студента с id {} и версией {}", id, expectedVersion);
+        return studentRepository.deleteById(id, expectedVersion)
+                .flatMap(deleted -> deleted > 0
+                        ? Mono.<Void>empty()
+                        : notFoundOrModified(id, expectedVersion, "удалении"));
+    }
+
+    /**
+     * Удаляет студентов по списку идентификаторов порциями по {@code students.delete.batch-size}.
+     *
+     * @param ids идентификаторы студентов.
+     * @return объект {@link BulkDeleteResult} с числом запрошенных и удалённых студентов.
+     * @throws ResponseStatusException если список идентификаторов пуст.
+     */
+    public Mono<BulkDeleteResult> deleteStudents(List<Integer> ids) {
+        if (ids == null || ids.isEmpty()) {
+            log.error("log: Передан пустой список студентов для удаления");
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Не переданы идентификаторы студентов"));
+        }
+        List<Integer> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        log.info("log: Вызван метод deleteStudents для удаления {} студентов", uniqueIds.size());
+        int batchSize = studentProperties.getDelete().getBatchSize();
+        return Flux.fromIterable(uniqueIds)
+                .buffer(batchSize)
+                .concatMap(studentRepository::deleteByIds)
+                .reduce(0L, Long::sum)
+                .map(deleted -> {
+                    log.info("log: Удалено студентов: {}", deleted);
+                    return new BulkDeleteResult(uniqueIds.size(), deleted.intValue());
+                });
+    }
+
+    /**
+     * Определяет причину, по которой изменение не затронуло ни одной строки.
+     *
+     * @return ошибка со статусом 412 (PRECONDITION_FAILED), если студент есть, но его версия другая,
+     *         иначе со статусом 404 (NOT_FOUND).
+     */
+    private <T> Mono<T> notFoundOrModified(int id, Long expectedVersion, String operation) {
+        Mono<Boolean> exists = expectedVersion == null ? Mono.just(false) : studentRepository.existsById(id);
+        return exists.flatMap(modified -> {
+            if (modified) {
+                log.error("log: При {} сущности: версия студента с id {} отличается от {}", operation, id, expectedVersion);
+                return Mono.error(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Студент изменён другим запросом"));
+            }
+            log.error("log: При {} сущности: студент с id {} не найден", operation, id);
+            return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент не найден"));
+        });
+    }
+
+    /**
+     * Определяет размер страницы так же, как {@link StudentService}.
+     *
+     * @throws ResponseStatusException если размер страницы меньше единицы.
+     */
+    private int resolvePageSize(Integer limit) {
+        StudentProperties.Pagination pagination = studentProperties.getPagination();
+        if (limit == null) {
+            return pagination.getDefaultLimit();
+        }
+        if (limit < 1) {
+            log.error("log: Передан некорректный размер страницы {}", limit);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Размер страницы должен быть больше нуля");
+        }
+        return Math.min(limit, pagination.getMaxLimit());
+    }
+}
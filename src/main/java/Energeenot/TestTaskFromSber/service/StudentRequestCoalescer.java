@@ -0,0 +1,184 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одинаковых одновременных чтений в {@link StudentService}.
+ * <p>
+ *     Когда сотни клиентов одновременно запрашивают одного студента или весь список, каждый вызов выполнял бы
+ *     свой одинаковый запрос и занимал соединение пула. Здесь первый вызов с ключом выполняет запрос в своём потоке
+ *     и своей транзакции, а вызовы с тем же ключом, пришедшие до его завершения, ждут и получают тот же результат
+ *     или то же исключение. Результат не сохраняется: следующий вызов после завершения запроса выполняет новый.
+ * </p>
+ * <p>
+ *     К запросу присоединяются только в течение {@code students.coalescing.timeout} от его начала, и столько же
+ *     ожидающие ждут результата, после чего получают ответ 503 (SERVICE_UNAVAILABLE). Зависший запрос не собирает
+ *     новых ожидающих: следующий вызов с тем же ключом выполняет запрос заново.
+ * </p>
+ * <p>
+ *     После фиксации изменения студентов выполняющиеся запросы забываются ({@link #invalidate()}), чтобы вызов,
+ *     пришедший после изменения, не получил результат запроса, начатого до него.
+ * </p>
+ * <p>
+ *     Число вызовов публикуется в счётчике {@code students.coalescing.calls} с тегами {@code operation}
+ *     и {@code outcome}: {@code executed} — вызов выполнил запрос, {@code coalesced} — получил результат чужого,
+ *     {@code timed-out} — не дождался результата.
+ * </p>
+ */
+@Component
+@Profile("!reactive")
+@Slf4j
+public class StudentRequestCoalescer {
+
+    private final boolean enabled;
+    private final long timeoutNanos;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Key, Flight> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Outcomes> outcomes = new ConcurrentHashMap<>();
+
+    public StudentRequestCoalescer(StudentProperties studentProperties, MeterRegistry meterRegistry) {
+        StudentProperties.Coalescing settings = studentProperties.getCoalescing();
+        this.enabled = settings.isEnabled();
+        this.timeoutNanos = settings.getTimeout().toNanos();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Выполняет запрос или присоединяется к выполняющемуся запросу с тем же ключом.
+     *
+     * @param operation название операции, часть ключа и тег метрики.
+     * @param key       параметры запроса; вызовы с равными параметрами объединяются.
+     * @param query     запрос к базе.
+     * @param <T>       тип результата.
+     * @return результат запроса.
+     * @throws ResponseStatusException если результат общего запроса не получен за {@code students.coalescing.timeout}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object key, Supplier<T> query) {
+        if (!enabled) {
+            return query.get();
+        }
+        Key flightKey = new Key(operation, key);
+        Flight flight = new Flight(System.nanoTime());
+        while (true) {
+            Flight current = inFlight.putIfAbsent(flightKey, flight);
+            if (current == null) {
+                break;
+            }
+            long remaining = current.startNanos + timeoutNanos - System.nanoTime();
+            if (remaining > 0) {
+                return (T) await(operation, current, remaining);
+            }
+            if (inFlight.replace(flightKey, current, flight)) {
+                log.warn("log: Запрос {} выполняется дольше {} мс, выполняется новый", operation,
+                        TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+                break;
+            }
+        }
+        outcomes(operation).executed().increment();
+        try {
+            T result = query.get();
+            flight.result.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    /**
+     * Забывает выполняющиеся запросы после завершения текущей транзакции или сразу, если транзакции нет.
+     * Вызовы, уже ожидающие результата, его получат; новые вызовы выполнят запрос заново.
+     */
+    public void invalidate() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            inFlight.clear();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                inFlight.clear();
+            }
+        });
+    }
+
+    private Object await(String operation, Flight flight, long remainingNanos) {
+        outcomes(operation).coalesced().increment();
+        try {
+            return flight.result.get(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            outcomes(operation).timedOut().increment();
+            log.error("log: Не дождались результата общего запроса {}", operation);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Превышено время ожидания ответа базы");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Ожидание ответа базы прервано");
+        }
+    }
+
+    /**
+     * Возвращает счётчики операции; они регистрируются при первом вызове операции, набор операций конечен.
+     */
+    private Outcomes outcomes(String operation) {
+        return outcomes.computeIfAbsent(operation, name -> new Outcomes(
+                counter(name, "executed"), counter(name, "coalesced"), counter(name, "timed-out")));
+    }
+
+    private Counter counter(String operation, String outcome) {
+        return Counter.builder("students.coalescing.calls")
+                .description("Число чтений, выполнивших запрос к базе или получивших результат одинакового запроса")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Счётчики исходов вызовов одной операции.
+     */
+    private record Outcomes(Counter executed, Counter coalesced, Counter timedOut) {
+    }
+
+    private record Key(String operation, Object parameters) {
+    }
+
+    /**
+     * Выполняющийся запрос: время начала и результат, который получат все присоединившиеся вызовы.
+     */
+    private static final class Flight {
+
+        private final long startNanos;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Flight(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -1,15 +1,58 @@
 package Energeenot.TestTaskFromSber.service;
 
+import Energeenot.TestTaskFromSber.config.PrimaryReads;
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.dto.BulkDeleteResult;
+import Energeenot.TestTaskFromSber.dto.BulkInsertResult;
+import Energeenot.TestTaskFromSber.dto.CacheStatistics;
+import Energeenot.TestTaskFromSber.dto.StudentBatch;
+import Energeenot.TestTaskFromSber.dto.StudentMatch;
+import Energeenot.TestTaskFromSber.dto.StudentPage;
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
+import Energeenot.TestTaskFromSber.dto.StudentSearchCriteria;
+import Energeenot.TestTaskFromSber.dto.StudentSearchPage;
+import Energeenot.TestTaskFromSber.dto.StudentStatistics;
 import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.model.StudentEvent;
+import Energeenot.TestTaskFromSber.repository.StudentKeyset;
 import Energeenot.TestTaskFromSber.repository.StudentRepository;
-import lombok.RequiredArgsConstructor;
+import Energeenot.TestTaskFromSber.repository.StudentSnapshot;
+import Energeenot.TestTaskFromSber.repository.StudentUpdate;
+import Energeenot.TestTaskFromSber.repository.StudentSpecifications;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Сервис для управления объектами {@link Student}.
@@ -18,38 +61,306 @@ import java.util.Optional;
  *     Операции включают: получение всех студентов, получение студента по ID, добавление,
  *     обновление и удаление студента.
  * </p>
+ * <p>
+ *     Время выполнения каждого публичного метода записывается в таймер {@code students.service}
+ *     с тегами {@code class} и {@code method}.
+ * </p>
+ * <p>
+ *     Методы, которые только читают из базы, выполняются в транзакциях {@code @Transactional(readOnly = true)}
+ *     и при {@code students.replica.enabled=true} обращаются к репликам. Студенты, сохраняемые в {@link StudentCache},
+ *     загружаются из основной базы, чтобы отставание реплики не продлевалось на время жизни записи в кэше.
+ *     Объединяемые чтения ({@link StudentRequestCoalescer}) открывают транзакцию только в вызове,
+ *     выполняющем общий запрос.
+ * </p>
  * @see Student
  */
 @Service
-@RequiredArgsConstructor
+@Profile("!reactive")
+@Timed(value = "students.service", description = "Время выполнения методов StudentService")
 @Slf4j
 public class StudentService {
 
+    private static final int MAX_DESCRIBED_ERRORS = 10;
+
     /**
      * Репозиторий для работы с сущностью {@link Student}.
      * @see StudentRepository
      */
     private final StudentRepository studentRepository;
 
+    /**
+     * Настройки работы со студентами.
+     * @see StudentProperties
+     */
+    private final StudentProperties studentProperties;
+
+    /**
+     * Контекст персистентности, из которого отсоединяются студенты при потоковой выгрузке.
+     */
+    private final EntityManager entityManager;
+
+    /**
+     * Кэш студентов по идентификатору.
+     * @see StudentCache
+     */
+    private final StudentCache studentCache;
+
+    /**
+     * Распределение числа студентов в одном запросе на добавление, регистрируется один раз при создании сервиса.
+     */
+    private final DistributionSummary insertSize;
+
+    /**
+     * Журнал изменений, в который в транзакции изменения записываются события для {@link StudentChangeFeed}.
+     */
+    private final StudentEventOutbox studentEventOutbox;
+
+    /**
+     * Шаблон транзакций для массового добавления и удаления, каждая порция которых выполняется в своей транзакции.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Шаблон транзакций только для чтения, в которых выполняется общий запрос объединённых чтений
+     * ({@link StudentRequestCoalescer}): соединение берёт только выполняющий запрос вызов, а не каждый ожидающий.
+     */
+    private final TransactionTemplate readOnlyTransaction;
+
+    /**
+     * Проверка ограничений полей студента до обращения к базе.
+     */
+    private final Validator validator;
+
+    /**
+     * Статистика средних оценок в памяти, которая обновляется после фиксации изменений.
+     * @see StudentStatisticsAggregate
+     */
+    private final StudentStatisticsAggregate studentStatistics;
+
+    /**
+     * Индекс триграмм ФИО для нечёткого поиска, который обновляется после фиксации изменений.
+     * @see StudentNameIndex
+     */
+    private final StudentNameIndex studentNameIndex;
+
+    /**
+     * Объединение одинаковых одновременных чтений в один запрос к базе.
+     * @see StudentRequestCoalescer
+     */
+    private final StudentRequestCoalescer requestCoalescer;
+
+    public StudentService(StudentRepository studentRepository, StudentProperties studentProperties,
+                          EntityManager entityManager, StudentCache studentCache, MeterRegistry meterRegistry,
+                          StudentEventOutbox studentEventOutbox, TransactionTemplate transactionTemplate,
+                          Validator validator, StudentStatisticsAggregate studentStatistics,
+                          StudentNameIndex studentNameIndex, StudentRequestCoalescer requestCoalescer) {
+        this.studentRepository = studentRepository;
+        this.studentProperties = studentProperties;
+        this.entityManager = entityManager;
+        this.studentCache = studentCache;
+        this.insertSize = DistributionSummary.builder("students.insert.size")
+                .description("Число студентов в одном вызове addStudent")
+                .baseUnit("students")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.studentEventOutbox = studentEventOutbox;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.validator = validator;
+        this.studentStatistics = studentStatistics;
+        this.studentNameIndex = studentNameIndex;
+        this.requestCoalescer = requestCoalescer;
+    }
+
     /**
      * Возвращает список всех студентов.
+     * <p>
+     *     Число возвращаемых строк ограничено настройкой {@code students.pagination.unpaged-max-rows}.
+     *     Если студентов больше, выдача без пагинации не выполняется. Одновременные вызовы получают результат
+     *     одного запроса ({@link StudentRequestCoalescer}). Метод не транзакционный: транзакцию только для чтения
+     *     и соединение пула берёт лишь вызов, выполняющий общий запрос.
+     * </p>
      *
      * @return список объектов {@link Student}.
+     * @throws ResponseStatusException если студентов больше допустимого числа строк.
      */
     public List<Student> getAllStudents() {
         log.info("log: Вызван метод getAllStudents");
-        return studentRepository.findAll();
+        int maxRows = studentProperties.getPagination().getUnpagedMaxRows();
+        List<Student> students = requestCoalescer.execute("getAllStudents", maxRows,
+                () -> readOnlyTransaction.execute(
+                        status -> studentRepository.findAllByOrderByIdAsc(Limit.of(maxRows + 1))));
+        if (students.size() > maxRows) {
+            log.error("log: Число студентов превышает ограничение {} для выдачи без пагинации", maxRows);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Слишком много студентов для выдачи без пагинации, используйте параметры after и limit");
+        }
+        return students;
+    }
+
+    /**
+     * Возвращает выбранные поля всех студентов.
+     * <p>
+     *     Как и {@link #getAllStudents()}, ограничен настройкой {@code students.pagination.unpaged-max-rows}
+     *     и объединяет одновременные вызовы с одинаковыми полями без транзакции на каждый вызов, но выбирает из базы
+     *     только перечисленные столбцы.
+     * </p>
+     *
+     * @param fields поля студента, например {@code id}, {@code surname}, {@code averageMark}.
+     * @return строки с выбранными полями в порядке возрастания идентификатора.
+     * @throws ResponseStatusException если поля некорректны или студентов больше допустимого числа строк.
+     */
+    public List<Map<String, Object>> getAllStudents(Collection<String> fields) {
+        log.info("log: Вызван метод getAllStudents с полями {}", fields);
+        Set<String> selected = resolveFields(fields);
+        int maxRows = studentProperties.getPagination().getUnpagedMaxRows();
+        List<Map<String, Object>> rows = requestCoalescer.execute("getAllStudentFields",
+                List.of(List.copyOf(selected), maxRows),
+                () -> readOnlyTransaction.execute(status -> retainFields(
+                        studentRepository.findFields(selected, null, Sort.by("id"), maxRows + 1), selected)));
+        if (rows.size() > maxRows) {
+            log.error("log: Число студентов превышает ограничение {} для выдачи без пагинации", maxRows);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Слишком много студентов для выдачи без пагинации, используйте параметры after и limit");
+        }
+        return rows;
+    }
+
+    /**
+     * Возвращает страницу студентов при курсорной пагинации.
+     * <p>
+     *     Студенты упорядочены по возрастанию идентификатора. Из базы запрашивается на одну строку больше
+     *     размера страницы, чтобы определить, есть ли следующая страница, без отдельного запроса.
+     * </p>
+     *
+     * @param after идентификатор последнего студента предыдущей страницы или {@code null} для первой страницы.
+     * @param limit размер страницы или {@code null} для размера по умолчанию.
+     * @return страница студентов {@link StudentPage}.
+     * @throws ResponseStatusException если размер страницы меньше единицы.
+     */
+    @Transactional(readOnly = true)
+    public StudentPage<Student> getStudentsPage(Integer after, Integer limit) {
+        log.info("log: Вызван метод getStudentsPage с after {} и limit {}", after, limit);
+        int pageSize = resolvePageSize(limit);
+        Limit rows = Limit.of(pageSize + 1);
+        List<Student> students = after == null
+                ? studentRepository.findAllByOrderByIdAsc(rows)
+                : studentRepository.findByIdGreaterThanOrderByIdAsc(after, rows);
+        return new StudentPage<>(pageContent(students, pageSize), nextCursor(students, pageSize, Student::getId));
+    }
+
+    /**
+     * Возвращает страницу выбранных полей студентов при курсорной пагинации.
+     * <p>
+     *     Работает как {@link #getStudentsPage(Integer, Integer)}, но выбирает из базы только перечисленные
+     *     столбцы и не загружает сущности в контекст персистентности.
+     * </p>
+     *
+     * @param after  идентификатор последнего студента предыдущей страницы или {@code null} для первой страницы.
+     * @param limit  размер страницы или {@code null} для размера по умолчанию.
+     * @param fields поля студента.
+     * @return страница строк с выбранными полями.
+     * @throws ResponseStatusException если поля или размер страницы некорректны.
+     */
+    @Transactional(readOnly = true)
+    public StudentPage<Map<String, Object>> getStudentsPage(Integer after, Integer limit, Collection<String> fields) {
+        log.info("log: Вызван метод getStudentsPage с after {}, limit {} и полями {}", after, limit, fields);
+        Set<String> selected = resolveFields(fields);
+        int pageSize = resolvePageSize(limit);
+        Specification<Student> afterId = after == null
+                ? null
+                : (root, query, criteriaBuilder) -> criteriaBuilder.greaterThan(root.get("id"), after);
+        List<Map<String, Object>> rows = studentRepository.findFields(selected, afterId, Sort.by("id"), pageSize + 1);
+        Integer nextCursor = nextCursor(rows, pageSize, row -> (Integer) row.get("id"));
+        return new StudentPage<>(retainFields(pageContent(rows, pageSize), selected), nextCursor);
+    }
+
+    /**
+     * Ищет студентов по условиям и возвращает страницу результата.
+     * <p>
+     *     Студенты упорядочены по выбранному полю и идентификатору, следующая страница запрашивается
+     *     условием «после курсора» ({@link StudentKeyset}), поэтому глубина пролистывания не влияет
+     *     на стоимость запроса. Как и в {@link #getStudentsPage(Integer, Integer)}, из базы запрашивается
+     *     на одну строку больше размера страницы.
+     * </p>
+     *
+     * @param criteria объект {@link StudentSearchCriteria} с условиями поиска, сортировкой и курсором.
+     * @return страница студентов {@link StudentSearchPage}.
+     * @throws ResponseStatusException если сортировка, курсор или размер страницы некорректны.
+     */
+    @Transactional(readOnly = true)
+    public StudentSearchPage<Student> searchStudents(StudentSearchCriteria criteria) {
+        log.info("log: Вызван метод searchStudents с параметрами {}", criteria);
+        int pageSize = resolvePageSize(criteria.getLimit());
+        StudentKeyset keyset = parseKeyset(criteria);
+        Specification<Student> specification = searchSpecification(criteria, keyset);
+        List<Student> students = studentRepository.findBy(specification,
+                query -> query.sortBy(keyset.toSort()).limit(pageSize + 1).all());
+        return new StudentSearchPage<>(pageContent(students, pageSize), nextCursor(students, pageSize, keyset::cursorOf));
+    }
+
+    /**
+     * Ищет студентов по условиям и возвращает страницу выбранных полей.
+     * <p>
+     *     Работает как {@link #searchStudents(StudentSearchCriteria)}, но выбирает из базы только перечисленные
+     *     столбцы и не загружает сущности в контекст персистентности.
+     * </p>
+     *
+     * @param criteria объект {@link StudentSearchCriteria} с условиями поиска, сортировкой и курсором.
+     * @param fields   поля студента.
+     * @return страница строк с выбранными полями.
+     * @throws ResponseStatusException если поля, сортировка, курсор или размер страницы некорректны.
+     */
+    @Transactional(readOnly = true)
+    public StudentSearchPage<Map<String, Object>> searchStudents(StudentSearchCriteria criteria,
+                                                                 Collection<String> fields) {
+        log.info("log: Вызван метод searchStudents с параметрами {} и полями {}", criteria, fields);
+        Set<String> selected = resolveFields(fields);
+        int pageSize = resolvePageSize(criteria.getLimit());
+        StudentKeyset keyset = parseKeyset(criteria);
+        Specification<Student> specification = searchSpecification(criteria, keyset);
+        List<Map<String, Object>> rows =
+                studentRepository.findFields(selected, specification, keyset.toSort(), pageSize + 1);
+        String nextCursor = nextCursor(rows, pageSize, keyset::cursorOf);
+        return new StudentSearchPage<>(retainFields(pageContent(rows, pageSize), selected), nextCursor);
+    }
+
+    /**
+     * Передаёт всех студентов получателю по мере чтения из базы.
+     * <p>
+     *     Студенты читаются потоком в транзакции только для чтения и после передачи получателю отсоединяются
+     *     от контекста персистентности, поэтому расход памяти не зависит от размера таблицы.
+     * </p>
+     *
+     * @param consumer получатель студентов, вызывается для каждого студента в порядке возрастания идентификатора.
+     */
+    @Transactional(readOnly = true)
+    public void exportStudents(Consumer<Student> consumer) {
+        log.info("log: Вызван метод exportStudents");
+        try (Stream<Student> students = studentRepository.streamAllByOrderByIdAsc()) {
+            students.forEach(student -> {
+                consumer.accept(student);
+                entityManager.detach(student);
+            });
+        }
     }
 
     /**
      * Возвращает студента по его идентификатору.
+     * <p>
+     *     Результат, в том числе отсутствие студента, берётся из {@link StudentCache}, если кэш включён.
+     *     Промахи кэша и вызовы при выключенном кэше с одним идентификатором получают результат одного запроса
+     *     ({@link StudentRequestCoalescer}).
+     * </p>
      *     @param id идентификатор студента.
      *     @return объект {@link Student}.
      *     @throws ResponseStatusException если студент с указанным идентификатором не найден.
      */
     public Student getStudentById(int id) {
         log.info("log: Вызван метод getStudentById с id {}", id);
-        return studentRepository.findById(id).orElseThrow(() ->{
+        return studentCache.get(id, key -> requestCoalescer.execute("getStudentById", key,
+                () -> studentRepository.findById(key))).orElseThrow(() ->{
             log.error("log: Студент с id {} не найден", id);
             return new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент не найден");
         });
@@ -57,48 +368,596 @@ public class StudentService {
     }
 
     /**
-     * Добавляет нового студента.
+     * Возвращает выбранные поля студента по его идентификатору.
+     * <p>
+     *     Из базы выбираются только перечисленные столбцы, кэш {@link StudentCache} не используется,
+     *     так как хранит студентов целиком.
+     * </p>
+     *
+     * @param id     идентификатор студента.
+     * @param fields поля студента.
+     * @return выбранные поля студента.
+     * @throws ResponseStatusException если поля некорректны или студент не найден.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getStudentById(int id, Collection<String> fields) {
+        log.info("log: Вызван метод getStudentById с id {} и полями {}", id, fields);
+        Set<String> selected = resolveFields(fields);
+        List<Map<String, Object>> rows = studentRepository.findFields(selected,
+                (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("id"), id), Sort.unsorted(), 1);
+        if (rows.isEmpty()) {
+            log.error("log: Студент с id {} не найден", id);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент не найден");
+        }
+        return rows.get(0);
+    }
+
+    /**
+     * Возвращает студентов по списку идентификаторов.
+     * <p>
+     *     Сначала студенты берутся из {@link StudentCache}, остальные загружаются запросами
+     *     {@code SELECT ... WHERE id IN (...)} порциями по {@code students.fetch.batch-size}
+     *     и сохраняются в кэш, в том числе отметки об отсутствии. Так как результат попадает в кэш,
+     *     студенты загружаются из основной базы, а не с реплик.
+     *     Повторяющиеся идентификаторы учитываются один раз.
+     * </p>
+     *
+     * @param ids идентификаторы студентов.
+     * @return объект {@link StudentBatch} с найденными студентами и отсутствующими идентификаторами в порядке запроса.
+     * @throws ResponseStatusException если список пуст, превышает {@code students.fetch.max-ids}
+     *                                 или содержит пустой идентификатор.
+     */
+    public StudentBatch getStudentsByIds(List<Integer> ids) {
+        StudentProperties.Fetch fetch = studentProperties.getFetch();
+        if (ids == null || ids.isEmpty() || ids.size() > fetch.getMaxIds()) {
+            log.error("log: Передано некорректное число идентификаторов студентов для получения");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Количество идентификаторов должно быть от 1 до " + fetch.getMaxIds());
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            log.error("log: Передан пустой идентификатор студента для получения");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Идентификаторы студентов не могут быть пустыми");
+        }
+        List<Integer> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        log.info("log: Вызван метод getStudentsByIds для {} студентов", uniqueIds.size());
+
+        Map<Integer, Optional<Student>> found = new HashMap<>(studentCache.getAllPresent(uniqueIds));
+        List<Integer> idsToLoad = uniqueIds.stream().filter(id -> !found.containsKey(id)).toList();
+        Map<Integer, Optional<Student>> loaded = new HashMap<>();
+        try (PrimaryReads.Scope ignored = PrimaryReads.pin()) {
+            for (int from = 0; from < idsToLoad.size(); from += fetch.getBatchSize()) {
+                List<Integer> batch = idsToLoad.subList(from, Math.min(from + fetch.getBatchSize(), idsToLoad.size()));
+                batch.forEach(id -> loaded.put(id, Optional.empty()));
+                studentRepository.findAllById(batch).forEach(student -> loaded.put(student.getId(), Optional.of(student)));
+            }
+        }
+        studentCache.putAll(loaded);
+        found.putAll(loaded);
+
+        List<Student> students = new ArrayList<>(uniqueIds.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : uniqueIds) {
+            found.get(id).ifPresentOrElse(students::add, () -> missingIds.add(id));
+        }
+        return new StudentBatch(students, missingIds);
+    }
+
+    /**
+     * Добавляет новых студентов.
+     * <p>
+     *     Перед обращением к базе все студенты проверяются по ограничениям полей {@link Student}; если хотя бы
+     *     один некорректен, не добавляется ни один. Студенты сохраняются порциями по {@code students.insert.batch-size}:
+     *     после каждой порции изменения сбрасываются в базу одним пакетом JDBC, а контекст персистентности очищается,
+     *     чтобы не держать в нём все добавленные сущности. В той же транзакции в журнал изменений
+     *     записываются события {@code CREATED}.
+     * </p>
      *
-     * @param students объект {@link Student} для добавления.
-     * @return добавленный объект {@link Student}.
+     * @param students список объектов {@link Student} для добавления.
+     * @return список добавленных объектов {@link Student}.
+     * @throws ResponseStatusException если хотя бы один студент нарушает ограничения полей.
      */
+    @Transactional
     public List<Student> addStudent(List<Student> students) {
-        log.info("log: Попытка добавления нового студента {}", students.toString());
-        return studentRepository.saveAll(students);
+        log.info("log: Попытка добавления {} студентов", students.size());
+        insertSize.record(students.size());
+        List<BulkInsertResult.RowError> errors = validate(students);
+        if (!errors.isEmpty()) {
+            log.error("log: Добавление {} студентов отклонено, некорректных строк: {}", students.size(), errors.size());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, describe(errors));
+        }
+        return save(students);
     }
 
     /**
-     * Обновляет информацию о студенте.
+     * Добавляет корректных студентов и возвращает отчёт об отклонённых.
+     * <p>
+     *     Студенты, нарушающие ограничения полей {@link Student}, отклоняются до обращения к базе.
+     *     Остальные сохраняются порциями по {@code students.insert.chunk-size}, каждая порция в своей транзакции,
+     *     поэтому уже сохранённые порции не откатываются из-за следующих. Если порцию всё же отклоняет база,
+     *     её студенты сохраняются по одному, и в отчёт попадают только отклонённые базой строки.
+     *     Идентификатор и версия из запроса не учитываются.
+     * </p>
+     *
+     * @param students список объектов {@link Student} для добавления.
+     * @return объект {@link BulkInsertResult} с идентификаторами добавленных студентов и отклонёнными строками.
+     */
+    public BulkInsertResult addStudentsPartially(List<Student> students) {
+        log.info("log: Попытка добавления {} студентов с частичным успехом", students.size());
+        insertSize.record(students.size());
+        List<BulkInsertResult.RowError> errors = new ArrayList<>(validate(students));
+        Set<Integer> rejected = new HashSet<>();
+        errors.forEach(error -> rejected.add(error.getIndex()));
+        List<Integer> valid = new ArrayList<>(students.size() - rejected.size());
+        for (int i = 0; i < students.size(); i++) {
+            if (!rejected.contains(i)) {
+                valid.add(i);
+            }
+        }
+
+        Integer[] createdIds = new Integer[students.size()];
+        int chunkSize = studentProperties.getInsert().getChunkSize();
+        for (int from = 0; from < valid.size(); from += chunkSize) {
+            List<Integer> chunk = valid.subList(from, Math.min(from + chunkSize, valid.size()));
+            try {
+                saveInTransaction(chunk.stream().map(students::get).toList());
+                chunk.forEach(i -> createdIds[i] = students.get(i).getId());
+            } catch (DataIntegrityViolationException | PersistenceException e) {
+                log.warn("log: База отклонила порцию из {} студентов, студенты сохраняются по одному: {}",
+                        chunk.size(), e.getMessage());
+                for (Integer i : chunk) {
+                    try {
+                        saveInTransaction(List.of(students.get(i)));
+                        createdIds[i] = students.get(i).getId();
+                    } catch (DataIntegrityViolationException | PersistenceException rowException) {
+                        log.warn("log: База отклонила строку {}: {}", i, rowException.getMessage());
+                        errors.add(new BulkInsertResult.RowError(i, List.of("отклонено базой данных")));
+                    }
+                }
+            }
+        }
+        errors.sort(Comparator.comparingInt(BulkInsertResult.RowError::getIndex));
+        List<Integer> ids = Arrays.stream(createdIds).filter(Objects::nonNull).toList();
+        log.info("log: Добавлено студентов: {}, отклонено строк: {}", ids.size(), errors.size());
+        return new BulkInsertResult(students.size(), ids, errors);
+    }
+
+    /**
+     * Обновляет переданные поля студента.
+     * <p>
+     *     Выполняется один запрос {@code UPDATE ... SET <переданные поля> WHERE id = ?} без предварительного чтения
+     *     студента; тот же запрос возвращает обновлённую строку. Отсутствие студента определяется по тому,
+     *     что строка не возвращена. Если не передано ни одного поля, студент только читается.
+     * </p>
      *
      * @param id идентификатор студента.
-     * @param updatedStudent объект {@link Student} с обновленными данными.
-     * @return обновленный объект {@link Student}.
+     * @param patch объект {@link StudentPatch} с обновляемыми полями.
+     * @return студент после обновления.
      * @throws ResponseStatusException если студент с указанным идентификатором не найден.
      */
-    public Student updateStudent(int id, Student updatedStudent) {
-        log.info("log: Вызван метод updateStudent и передан студент {} с id {}", updatedStudent.toString(), id);
-        Student student = studentRepository.findById(id)
-                .orElseThrow(() ->{
-                    log.error("log: При обновлении сущности: студент с id {} не найден", id);
-                    return new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент не найден");
-                });
+    @Transactional
+    public Student updateStudent(int id, StudentPatch patch) {
+        return updateStudent(id, patch, null);
+    }
 
-        Optional.ofNullable(updatedStudent.getSurname()).ifPresent(student::setSurname);
-        Optional.ofNullable(updatedStudent.getName()).ifPresent(student::setName);
-        Optional.ofNullable(updatedStudent.getPatronymic()).ifPresent(student::setPatronymic);
-        Optional.of(updatedStudent.getAge()).ifPresent(student::setAge);
-        Optional.ofNullable(updatedStudent.getAverageMark()).ifPresent(student::setAverageMark);
-        return studentRepository.save(student);
+    /**
+     * Обновляет переданные поля студента, если его версия совпадает с ожидаемой.
+     * <p>
+     *     Версия проверяется в том же запросе {@code UPDATE ... WHERE id = ? AND version = ?}, который возвращает
+     *     прежнюю строку. Только если ни одна строка не обновлена, отдельным запросом выясняется,
+     *     нет ли студента или он изменён другим запросом.
+     *     В той же транзакции в журнал изменений записывается событие {@code UPDATED}. Прежние возраст и средняя
+     *     оценка для статистики возвращаются тем же запросом {@code UPDATE}, новое ФИО для индекса берётся
+     *     из обновлённой строки.
+     * </p>
+     *
+     * @param id              идентификатор студента.
+     * @param patch           объект {@link StudentPatch} с обновляемыми полями.
+     * @param expectedVersion ожидаемая версия студента или {@code null}, если версия не проверяется.
+     * @return студент после обновления.
+     * @throws ResponseStatusException если студент не найден или его версия отличается от ожидаемой.
+     */
+    @Transactional
+    public Student updateStudent(int id, StudentPatch patch, Long expectedVersion) {
+        log.info("log: Вызван метод updateStudent для студента с id {} и версией {}", id, expectedVersion);
+        if (patch.isEmpty()) {
+            return studentRepository.findById(id)
+                    .filter(student -> expectedVersion == null || student.getVersion() == expectedVersion)
+                    .orElseThrow(() -> notFoundOrModified(id, expectedVersion, "обновлении"));
+        }
+        StudentUpdate update = studentRepository.updatePartially(id, expectedVersion, patch)
+                .orElseThrow(() -> notFoundOrModified(id, expectedVersion, "обновлении"));
+        Student updated = update.student();
+        studentEventOutbox.record(StudentEvent.Type.UPDATED, List.of(id));
+        if (patch.getAge() != null || patch.getAverageMark() != null) {
+            studentStatistics.recordUpdated(update.before(), patch.getAge(), patch.getAverageMark());
+        }
+        if (patch.getSurname() != null || patch.getName() != null || patch.hasPatronymic()) {
+            studentNameIndex.recordUpdated(updated);
+        }
+        studentCache.invalidate(id);
+        requestCoalescer.invalidate();
+        return updated;
     }
 
     /**
      * Удаляет студента по его идентификатору.
+     * <p>
+     *     Выполняется один запрос {@code DELETE ... WHERE id = ?}, который возвращает возраст и среднюю оценку
+     *     удалённой строки; отсутствие студента определяется по пустому результату.
+     * </p>
      *
      * @param id идентификатор студента.
      * @throws ResponseStatusException если студент с указанным идентификатором не найден.
      */
+    @Transactional
     public void deleteStudent(int id) {
-        log.info("log: Вызван метод deleteStudent для удаления студента с id {}", id);
-        studentRepository.deleteById(id);
+        deleteStudent(id, null);
+    }
+
+    /**
+     * Удаляет студента, если его версия совпадает с ожидаемой.
+     * <p>
+     *     В той же транзакции в журнал изменений записывается событие {@code DELETED}. Возраст и средняя оценка
+     *     для статистики возвращаются тем же запросом {@code DELETE}.
+     * </p>
+     *
+     * @param id              идентификатор студента.
+     * @param expectedVersion ожидаемая версия студента или {@code null}, если версия не проверяется.
+     * @throws ResponseStatusException если студент не найден или его версия отличается от ожидаемой.
+     */
+    @Transactional
+    public void deleteStudent(int id, Long expectedVersion) {
+        log.info("log: Вызван метод deleteStudent для удаления студента с id {} и версией {}", id, expectedVersion);
+        StudentSnapshot deleted = studentRepository.deleteStudent(id, expectedVersion)
+                .orElseThrow(() -> notFoundOrModified(id, expectedVersion, "удалении"));
+        studentEventOutbox.record(StudentEvent.Type.DELETED, List.of(id));
+        studentStatistics.recordRemoved(List.of(deleted));
+        studentNameIndex.recordRemoved(List.of(id));
+        studentCache.invalidate(id);
+        requestCoalescer.invalidate();
+    }
+
+    /**
+     * Удаляет студентов по списку идентификаторов.
+     * <p>
+     *     Повторяющиеся идентификаторы отбрасываются, остальные удаляются запросами
+     *     {@code DELETE ... WHERE id IN (...)} порциями по {@code students.delete.batch-size},
+     *     каждая порция в своей транзакции. Запрос возвращает возраст и среднюю оценку удалённых строк:
+     *     события {@code DELETED} записываются только для удалённых студентов, их возраст и средняя оценка
+     *     исключаются из статистики, ФИО — из индекса нечёткого поиска.
+     * </p>
+     *
+     * @param ids идентификаторы студентов.
+     * @return объект {@link BulkDeleteResult} с числом запрошенных и удалённых студентов.
+     * @throws ResponseStatusException если список идентификаторов пуст.
+     */
+    public BulkDeleteResult deleteStudents(List<Integer> ids) {
+        if (ids == null || ids.isEmpty()) {
+            log.error("log: Передан пустой список студентов для удаления");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Не переданы идентификаторы студентов");
+        }
+        List<Integer> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        log.info("log: Вызван метод deleteStudents для удаления {} студентов", uniqueIds.size());
+        int batchSize = studentProperties.getDelete().getBatchSize();
+        int deleted = 0;
+        for (int from = 0; from < uniqueIds.size(); from += batchSize) {
+            List<Integer> batch = uniqueIds.subList(from, Math.min(from + batchSize, uniqueIds.size()));
+            Integer batchDeleted = transactionTemplate.execute(status -> {
+                List<StudentSnapshot> removed = studentRepository.deleteStudents(batch);
+                if (removed.isEmpty()) {
+                    return 0;
+                }
+                List<Integer> removedIds = removed.stream().map(StudentSnapshot::id).toList();
+                studentEventOutbox.record(StudentEvent.Type.DELETED, removedIds);
+                studentStatistics.recordRemoved(removed);
+                studentNameIndex.recordRemoved(removedIds);
+                requestCoalescer.invalidate();
+                return removed.size();
+            });
+            deleted += batchDeleted == null ? 0 : batchDeleted;
+            batch.forEach(studentCache::invalidate);
+        }
+        log.info("log: Удалено студентов: {}", deleted);
+        return new BulkDeleteResult(uniqueIds.size(), deleted);
+    }
+
+    /**
+     * Сохраняет студентов порциями по {@code students.insert.batch-size} в текущей транзакции
+     * и записывает события {@code CREATED}.
+     *
+     * @param students студенты, прошедшие проверку ограничений.
+     * @return сохранённые студенты.
+     */
+    private List<Student> save(List<Student> students) {
+        int batchSize = studentProperties.getInsert().getBatchSize();
+        List<Student> savedStudents = new ArrayList<>(students.size());
+        for (int from = 0; from < students.size(); from += batchSize) {
+            List<Student> batch = students.subList(from, Math.min(from + batchSize, students.size()));
+            savedStudents.addAll(studentRepository.saveAll(batch));
+            entityManager.flush();
+            entityManager.clear();
+        }
+        recordCreated(savedStudents);
+        return savedStudents;
+    }
+
+    /**
+     * Учитывает добавленных студентов: записывает события {@code CREATED} в журнал изменений текущей транзакции,
+     * сбрасывает кэш и добавляет студентов в статистику и индекс ФИО после фиксации.
+     * <p>
+     *     Вызывается для всех путей добавления, в том числе для загрузки через {@code COPY}
+     *     в {@link StudentImportService}, которая записывает строки в обход JPA.
+     * </p>
+     *
+     * @param savedStudents добавленные студенты с идентификаторами, выданными базой.
+     */
+    void recordCreated(List<Student> savedStudents) {
+        List<Integer> ids = savedStudents.stream().map(Student::getId).toList();
+        studentCache.invalidateAll(ids);
+        requestCoalescer.invalidate();
+        studentEventOutbox.record(StudentEvent.Type.CREATED, ids);
+        studentStatistics.recordCreated(savedStudents);
+        studentNameIndex.recordCreated(savedStudents);
+    }
+
+    /**
+     * Сохраняет студентов в отдельной транзакции как новых.
+     * <p>
+     *     Идентификатор и версия сбрасываются перед каждой попыткой: после отката транзакции у сущностей
+     *     остаются значения, выданные последовательностью, и повторное сохранение превратилось бы в обновление.
+     * </p>
+     *
+     * @param students студенты, прошедшие проверку ограничений.
+     */
+    private void saveInTransaction(List<Student> students) {
+        students.forEach(student -> {
+            student.setId(0);
+            student.setVersion(0);
+        });
+        transactionTemplate.executeWithoutResult(status -> save(students));
+    }
+
+    /**
+     * Проверяет студентов по ограничениям полей {@link Student}.
+     *
+     * @param students проверяемые студенты.
+     * @return отклонённые строки в порядке запроса.
+     */
+    private List<BulkInsertResult.RowError> validate(List<Student> students) {
+        List<BulkInsertResult.RowError> errors = new ArrayList<>();
+        for (int i = 0; i < students.size(); i++) {
+            Student student = students.get(i);
+            if (student == null) {
+                errors.add(new BulkInsertResult.RowError(i, List.of("студент не передан")));
+                continue;
+            }
+            Set<ConstraintViolation<Student>> violations = validator.validate(student);
+            if (!violations.isEmpty()) {
+                errors.add(new BulkInsertResult.RowError(i, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .toList()));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Формирует описание отклонённых строк для ответа 400 (BAD_REQUEST); перечисляет не больше
+     * {@value #MAX_DESCRIBED_ERRORS} строк.
+     */
+    private static String describe(List<BulkInsertResult.RowError> errors) {
+        StringBuilder description = new StringBuilder("Некорректные данные студентов");
+        errors.stream().limit(MAX_DESCRIBED_ERRORS).forEach(error -> description.append("; строка ")
+                .append(error.getIndex()).append(": ").append(String.join(", ", error.getMessages())));
+        if (errors.size() > MAX_DESCRIBED_ERRORS) {
+            description.append("; и ещё строк: ").append(errors.size() - MAX_DESCRIBED_ERRORS);
+        }
+        return description.toString();
+    }
+
+    /**
+     * Ищет студентов по ФИО с опечатками.
+     * <p>
+     *     Студенты подбираются по индексу триграмм в памяти {@link StudentNameIndex} без сканирования таблицы
+     *     и загружаются одним запросом {@code SELECT ... WHERE id IN (...)}. Студенты, удалённые после
+     *     обновления индекса, пропускаются.
+     * </p>
+     *
+     * @param query строка запроса: фамилия, имя или отчество полностью или частично.
+     * @param limit максимальное число результатов или {@code null} для значения по умолчанию.
+     * @return студенты по убыванию сходства с запросом.
+     * @throws ResponseStatusException если запрос или число результатов некорректны или индекс ещё не построен.
+     */
+    @Transactional(readOnly = true)
+    public List<StudentMatch> searchStudentsFuzzy(String query, Integer limit) {
+        StudentProperties.Fuzzy fuzzy = studentProperties.getFuzzy();
+        if (query == null || query.isBlank() || query.length() > fuzzy.getMaxQueryLength()) {
+            log.error("log: Передана некорректная строка нечёткого поиска");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Строка поиска должна быть непустой и не длиннее " + fuzzy.getMaxQueryLength() + " символов");
+        }
+        int resultLimit = limit == null ? fuzzy.getDefaultLimit() : limit;
+        if (resultLimit < 1 || resultLimit > fuzzy.getMaxLimit()) {
+            log.error("log: Передано некорректное число результатов нечёткого поиска {}", resultLimit);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Число результатов должно быть от 1 до " + fuzzy.getMaxLimit());
+        }
+        log.info("log: Вызван метод searchStudentsFuzzy с лимитом {}", resultLimit);
+        List<StudentNameIndex.Match> matches = studentNameIndex.search(query, resultLimit);
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Student> students = new HashMap<>();
+        studentRepository.findAllById(matches.stream().map(StudentNameIndex.Match::studentId).toList())
+                .forEach(student -> students.put(student.getId(), student));
+        List<StudentMatch> result = new ArrayList<>(matches.size());
+        for (StudentNameIndex.Match match : matches) {
+            Student student = students.get(match.studentId());
+            if (student != null) {
+                result.add(new StudentMatch(student, match.similarity()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает статистику средних оценок студентов.
+     * <p>
+     *     Статистика вычисляется по агрегату в памяти {@link StudentStatisticsAggregate} без обращения к базе.
+     * </p>
+     *
+     * @param ageBucketWidth ширина возрастной группы в годах или {@code null} для значения по умолчанию.
+     * @param percentiles    процентили, доли от 0 до 1, или {@code null} для значений по умолчанию.
+     * @return объект {@link StudentStatistics}.
+     * @throws ResponseStatusException если параметры некорректны или статистика ещё не загружена.
+     */
+    public StudentStatistics getStatistics(Integer ageBucketWidth, List<Double> percentiles) {
+        StudentProperties.Statistics settings = studentProperties.getStatistics();
+        int width = ageBucketWidth == null ? settings.getDefaultAgeBucketWidth() : ageBucketWidth;
+        List<Double> requested = percentiles == null ? settings.getDefaultPercentiles() : percentiles;
+        if (width < 1) {
+            log.error("log: Передана некорректная ширина возрастной группы {}", width);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ширина возрастной группы должна быть положительной");
+        }
+        if (requested.stream().anyMatch(p -> p == null || !(p > 0 && p <= 1))) {
+            log.error("log: Переданы некорректные процентили {}", requested);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Процентили должны быть в интервале (0, 1]");
+        }
+        return studentStatistics.statistics(width, requested);
+    }
+
+    /**
+     * Возвращает счётчики кэша студентов.
+     *
+     * @return объект {@link CacheStatistics}.
+     */
+    public CacheStatistics getCacheStatistics() {
+        return studentCache.statistics();
+    }
+
+    /**
+     * Определяет причину, по которой изменение не затронуло ни одной строки.
+     *
+     * @param id              идентификатор студента.
+     * @param expectedVersion ожидаемая версия студента или {@code null}.
+     * @param operation       название операции для журнала.
+     * @return исключение со статусом 412 (PRECONDITION_FAILED), если студент есть, но его версия другая,
+     *         иначе со статусом 404 (NOT_FOUND).
+     */
+    private ResponseStatusException notFoundOrModified(int id, Long expectedVersion, String operation) {
+        if (expectedVersion != null && studentRepository.existsById(id)) {
+            studentCache.invalidate(id);
+            log.error("log: При {} сущности: версия студента с id {} отличается от {}", operation, id, expectedVersion);
+            return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Студент изменён другим запросом");
+        }
+        log.error("log: При {} сущности: студент с id {} не найден", operation, id);
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент не найден");
+    }
+
+    /**
+     * Возвращает строки страницы из строк, запрошенных с запасом в одну строку.
+     *
+     * @param rows     строки, полученные из базы с ограничением {@code pageSize + 1}.
+     * @param pageSize размер страницы.
+     * @return не больше {@code pageSize} первых строк.
+     */
+    private static <T> List<T> pageContent(List<T> rows, int pageSize) {
+        return rows.size() <= pageSize ? rows : rows.subList(0, pageSize);
+    }
+
+    /**
+     * Формирует курсор следующей страницы по строкам, запрошенным с запасом в одну строку.
+     *
+     * @param rows     строки, полученные из базы с ограничением {@code pageSize + 1}.
+     * @param pageSize размер страницы.
+     * @param cursorOf функция, формирующая курсор по последней строке страницы.
+     * @return курсор или {@code null}, если строк не больше размера страницы.
+     */
+    private static <T, C> C nextCursor(List<T> rows, int pageSize, Function<T, C> cursorOf) {
+        return rows.size() <= pageSize ? null : cursorOf.apply(rows.get(pageSize - 1));
+    }
+
+    /**
+     * Разбирает сортировку поиска.
+     *
+     * @throws ResponseStatusException если поле сортировки не поддерживается.
+     */
+    private StudentKeyset parseKeyset(StudentSearchCriteria criteria) {
+        try {
+            return StudentKeyset.parse(criteria.getSort());
+        } catch (IllegalArgumentException e) {
+            log.error("log: Некорректная сортировка поиска студентов: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Объединяет условия поиска с условием «после курсора».
+     *
+     * @throws ResponseStatusException если курсор некорректен.
+     */
+    private Specification<Student> searchSpecification(StudentSearchCriteria criteria, StudentKeyset keyset) {
+        Specification<Student> specification = StudentSpecifications.matching(criteria);
+        if (criteria.getAfter() == null) {
+            return specification;
+        }
+        try {
+            return specification.and(keyset.after(criteria.getAfter()));
+        } catch (IllegalArgumentException e) {
+            log.error("log: Некорректный курсор поиска студентов: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Проверяет запрошенные поля студента.
+     *
+     * @param fields поля в порядке запроса.
+     * @return поля без повторов в порядке запроса.
+     * @throws ResponseStatusException если поля не переданы или среди них есть неизвестные.
+     */
+    private Set<String> resolveFields(Collection<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            log.error("log: Не переданы поля студента");
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Не переданы поля студента");
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields) {
+            if (!StudentRepository.PROJECTABLE_FIELDS.contains(field)) {
+                log.error("log: Запрошено неизвестное поле студента {}", field);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Неизвестное поле студента: " + field
+                        + ", допустимые поля: " + String.join(", ", StudentRepository.PROJECTABLE_FIELDS));
+            }
+            selected.add(field);
+        }
+        return selected;
+    }
+
+    /**
+     * Оставляет в строках только запрошенные поля, убирая поля, выбранные для курсора.
+     */
+    private static List<Map<String, Object>> retainFields(List<Map<String, Object>> rows, Set<String> fields) {
+        rows.forEach(row -> row.keySet().retainAll(fields));
+        return rows;
+    }
+
+    /**
+     * Определяет размер страницы с учётом значения по умолчанию и максимального ограничения.
+     *
+     * @param limit запрошенный размер страницы или {@code null}.
+     * @return размер страницы.
+     * @throws ResponseStatusException если размер страницы меньше единицы.
+     */
+    private int resolvePageSize(Integer limit) {
+        StudentProperties.Pagination pagination = studentProperties.getPagination();
+        if (limit == null) {
+            return pagination.getDefaultLimit();
+        }
+        if (limit < 1) {
+            log.error("log: Передан некорректный размер страницы {}", limit);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Размер страницы должен быть больше нуля");
+        }
+        return Math.min(limit, pagination.getMaxLimit());
     }
 }
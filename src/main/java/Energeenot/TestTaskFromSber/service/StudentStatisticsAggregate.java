@@ -0,0 +1,335 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.PrimaryReads;
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.dto.StudentStatistics;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import Energeenot.TestTaskFromSber.repository.StudentSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Статистика средних оценок студентов в памяти для {@code GET /students/statistics}.
+ * <p>
+ *     Средняя оценка хранится в базе как {@code NUMERIC(3, 2)} от 1.00 до 5.00 и принимает {@value #MARK_LEVELS}
+ *     значений. Агрегат — число студентов для каждой пары «возраст, оценка»: по массиву {@code long[]}
+ *     из {@value #MARK_LEVELS} элементов на каждый встречающийся возраст. Из него точно вычисляются число студентов,
+ *     среднее, минимум, максимум, процентили и гистограммы без обращения к базе и без объектов на каждого студента.
+ *     Память и время ответа зависят от числа различных возрастов, а не от числа студентов или наибольшего возраста.
+ * </p>
+ * <p>
+ *     Массив заполняется запросом {@code GROUP BY age, average_mark} при запуске и затем раз в
+ *     {@code students.statistics.reconcile-interval}. Между сверками {@link StudentService} передаёт изменения,
+ *     которые применяются после фиксации транзакции. Изменение, зафиксированное во время сверки, может быть учтено
+ *     дважды до следующей сверки.
+ * </p>
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class StudentStatisticsAggregate implements SmartLifecycle {
+
+    /**
+     * Число возможных значений средней оценки: от 1.00 до 5.00 с шагом 0.01.
+     */
+    static final int MARK_LEVELS = 401;
+
+    private static final int MARK_SCALE = 100;
+    private static final int MIN_MARK = 100;
+    private static final int HISTOGRAM_BINS = 8;
+    private static final int LEVELS_PER_BIN = 50;
+
+    private final StudentRepository studentRepository;
+    private final StudentProperties studentProperties;
+
+    /**
+     * Число студентов с возрастом {@code age} и оценкой {@code MIN_MARK + level} (в сотых)
+     * в элементе {@code counts.get(age)[level]}; возрасты упорядочены. Доступ под монитором {@code this}.
+     */
+    private NavigableMap<Integer, long[]> counts = new TreeMap<>();
+    private volatile boolean loaded;
+    private volatile ScheduledExecutorService executor;
+
+    /**
+     * Учитывает добавленных студентов после фиксации текущей транзакции.
+     *
+     * @param students добавленные студенты.
+     */
+    public void recordCreated(Collection<Student> students) {
+        int[] ages = new int[students.size()];
+        int[] levels = new int[students.size()];
+        int i = 0;
+        for (Student student : students) {
+            ages[i] = student.getAge();
+            levels[i++] = level(student.getAverageMark());
+        }
+        afterCommit(() -> add(ages, levels, 1));
+    }
+
+    /**
+     * Исключает удалённых студентов после фиксации текущей транзакции.
+     *
+     * @param students возраст и средняя оценка удалённых студентов до удаления.
+     */
+    public void recordRemoved(Collection<StudentSnapshot> students) {
+        int[] ages = new int[students.size()];
+        int[] levels = new int[students.size()];
+        int i = 0;
+        for (StudentSnapshot student : students) {
+            ages[i] = student.age();
+            levels[i++] = level(student.averageMark());
+        }
+        afterCommit(() -> add(ages, levels, -1));
+    }
+
+    /**
+     * Учитывает изменение возраста или средней оценки студента после фиксации текущей транзакции.
+     *
+     * @param before      возраст и средняя оценка студента до изменения.
+     * @param age         новый возраст или {@code null}, если не изменился.
+     * @param averageMark новая средняя оценка или {@code null}, если не изменилась.
+     */
+    public void recordUpdated(StudentSnapshot before, Integer age, Double averageMark) {
+        int oldAge = before.age();
+        int oldLevel = level(before.averageMark());
+        int newAge = age == null ? oldAge : age;
+        int newLevel = averageMark == null ? oldLevel : level(averageMark);
+        if (oldAge != newAge || oldLevel != newLevel) {
+            afterCommit(() -> move(oldAge, oldLevel, newAge, newLevel));
+        }
+    }
+
+    /**
+     * Вычисляет статистику по текущему состоянию агрегата.
+     *
+     * @param ageBucketWidth ширина возрастной группы в годах.
+     * @param percentiles    процентили средней оценки, доли от 0 до 1.
+     * @return статистика средних оценок.
+     * @throws ResponseStatusException если агрегат ещё не загружен из базы.
+     */
+    public StudentStatistics statistics(int ageBucketWidth, List<Double> percentiles) {
+        if (!loaded) {
+            log.warn("log: Запрошена статистика студентов до загрузки агрегата");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Статистика студентов ещё не загружена");
+        }
+        long[] totals = new long[MARK_LEVELS];
+        List<StudentStatistics.AgeBucket> buckets = new ArrayList<>();
+        synchronized (this) {
+            Integer from = counts.isEmpty() ? null : counts.firstKey() / ageBucketWidth * ageBucketWidth;
+            while (from != null) {
+                long count = 0;
+                long sum = 0;
+                long[] histogram = new long[HISTOGRAM_BINS];
+                long to = (long) from + ageBucketWidth - 1;
+                for (long[] levels : counts.subMap(from, true, (int) Math.min(to, Integer.MAX_VALUE), true).values()) {
+                    for (int level = 0; level < MARK_LEVELS; level++) {
+                        long students = levels[level];
+                        if (students > 0) {
+                            totals[level] += students;
+                            count += students;
+                            sum += students * (MIN_MARK + level);
+                            histogram[Math.min(level / LEVELS_PER_BIN, HISTOGRAM_BINS - 1)] += students;
+                        }
+                    }
+                }
+                if (count > 0) {
+                    buckets.add(new StudentStatistics.AgeBucket(from, (int) Math.min(to, Integer.MAX_VALUE), count,
+                            (double) sum / count / MARK_SCALE, histogram));
+                }
+                Integer next = to >= Integer.MAX_VALUE ? null : counts.ceilingKey((int) to + 1);
+                from = next == null ? null : next / ageBucketWidth * ageBucketWidth;
+            }
+        }
+
+        long count = 0;
+        long sum = 0;
+        int min = -1;
+        int max = -1;
+        for (int level = 0; level < MARK_LEVELS; level++) {
+            if (totals[level] > 0) {
+                count += totals[level];
+                sum += totals[level] * (MIN_MARK + level);
+                min = min < 0 ? level : min;
+                max = level;
+            }
+        }
+        Map<String, Double> percentileValues = new LinkedHashMap<>();
+        for (Double percentile : percentiles) {
+            percentileValues.put(String.valueOf(percentile), count == 0 ? null : mark(percentile(totals, count, percentile)));
+        }
+        return new StudentStatistics(count,
+                count == 0 ? null : (double) sum / count / MARK_SCALE,
+                count == 0 ? null : mark(min),
+                count == 0 ? null : mark(max),
+                percentileValues,
+                buckets);
+    }
+
+    /**
+     * Заменяет агрегат результатом запроса {@code GROUP BY age, average_mark} к основной базе.
+     */
+    public void reconcile() {
+        List<Object[]> rows = PrimaryReads.call(studentRepository::countByAgeAndAverageMark);
+        NavigableMap<Integer, long[]> fresh = new TreeMap<>();
+        for (Object[] row : rows) {
+            int age = ((Number) row[0]).intValue();
+            if (age >= 0 && row[1] != null) {
+                fresh.computeIfAbsent(age, key -> new long[MARK_LEVELS])[level(((Number) row[1]).doubleValue())] +=
+                        ((Number) row[2]).longValue();
+            }
+        }
+        long drift = 0;
+        synchronized (this) {
+            if (loaded) {
+                drift = drift(counts, fresh);
+            }
+            counts = fresh;
+            loaded = true;
+        }
+        if (drift > 0) {
+            log.warn("log: Статистика студентов расходилась с базой на {} студентов и исправлена сверкой", drift);
+        } else {
+            log.debug("log: Статистика студентов сверена с базой: {} групп", rows.size());
+        }
+    }
+
+    @Override
+    public void start() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("student-statistics").factory());
+        long intervalMillis = studentProperties.getStatistics().getReconcileInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::reconcileQuietly, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        executor = scheduler;
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService scheduler = executor;
+        executor = null;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return executor != null;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.error("log: Не удалось сверить статистику студентов с базой {}", e.getMessage(), e);
+        }
+    }
+
+    private synchronized void add(int[] ages, int[] levels, int delta) {
+        for (int i = 0; i < ages.length; i++) {
+            increment(ages[i], levels[i], delta);
+        }
+    }
+
+    private synchronized void move(int oldAge, int oldLevel, int newAge, int newLevel) {
+        increment(oldAge, oldLevel, -1);
+        increment(newAge, newLevel, 1);
+    }
+
+    /**
+     * Изменяет число студентов в ячейке «возраст, оценка»; вызывается под монитором {@code this}.
+     */
+    private void increment(int age, int level, int delta) {
+        if (age < 0 || level < 0) {
+            return;
+        }
+        counts.computeIfAbsent(age, key -> new long[MARK_LEVELS])[level] += delta;
+    }
+
+    /**
+     * Суммарное расхождение двух агрегатов по всем ячейкам «возраст, оценка».
+     */
+    private static long drift(Map<Integer, long[]> current, Map<Integer, long[]> fresh) {
+        long drift = 0;
+        long[] empty = new long[MARK_LEVELS];
+        for (Map.Entry<Integer, long[]> entry : current.entrySet()) {
+            long[] other = fresh.getOrDefault(entry.getKey(), empty);
+            for (int level = 0; level < MARK_LEVELS; level++) {
+                drift += Math.abs(entry.getValue()[level] - other[level]);
+            }
+        }
+        for (Map.Entry<Integer, long[]> entry : fresh.entrySet()) {
+            if (!current.containsKey(entry.getKey())) {
+                for (long students : entry.getValue()) {
+                    drift += students;
+                }
+            }
+        }
+        return drift;
+    }
+
+    /**
+     * Применяет изменение после фиксации текущей транзакции или сразу, если транзакции нет.
+     */
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    /**
+     * Возвращает номер значения средней оценки от 0 до {@code MARK_LEVELS - 1} или {@code -1}, если оценки нет.
+     */
+    private static int level(Double averageMark) {
+        if (averageMark == null) {
+            return -1;
+        }
+        long level = Math.round(averageMark * MARK_SCALE) - MIN_MARK;
+        return (int) Math.max(0, Math.min(MARK_LEVELS - 1, level));
+    }
+
+    private static double mark(int level) {
+        return (double) (MIN_MARK + level) / MARK_SCALE;
+    }
+
+    /**
+     * Возвращает наименьшее значение оценки, не больше которого оценка у доли {@code percentile} студентов.
+     */
+    private static int percentile(long[] totals, long count, double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(percentile * count));
+        long cumulative = 0;
+        for (int level = 0; level < MARK_LEVELS; level++) {
+            cumulative += totals[level];
+            if (cumulative >= rank) {
+                return level;
+            }
+        }
+        return MARK_LEVELS - 1;
+    }
+}
@@ -0,0 +1,11 @@
+-- Исходная схема таблицы студентов.
+-- На существующих базах не выполняется: они получают базовую версию 1 (spring.flyway.baseline-on-migrate).
+CREATE TABLE IF NOT EXISTS student
+(
+    id           SERIAL PRIMARY KEY,
+    surname      VARCHAR(255)  NOT NULL,
+    name         VARCHAR(255)  NOT NULL,
+    patronymic   VARCHAR(255),
+    age          INTEGER       NOT NULL,
+    average_mark NUMERIC(3, 2) NOT NULL CHECK (average_mark >= 1.00 AND average_mark <= 5.00)
+);
@@ -0,0 +1,3 @@
+-- Идентификаторы студентов выдаются Hibernate блоками по 50 (pooled-оптимизатор, allocationSize = 50).
+-- Шаг последовательности должен совпадать с allocationSize в сущности Student.
+ALTER SEQUENCE student_id_seq INCREMENT BY 50;
@@ -0,0 +1,12 @@
+-- Индексы для поиска GET /students/search, совпадают с @Table(indexes = ...) сущности Student.
+-- Последний столбец каждого индекса — id, поэтому индекс обслуживает и сортировку с курсором (поле, id).
+-- CONCURRENTLY не блокирует запись в таблицу; Flyway выполняет такие команды вне транзакции.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_student_surname_name ON student (surname, name, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_student_name ON student (name, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_student_age_average_mark ON student (age, average_mark, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_student_average_mark ON student (average_mark, id);
+
+-- При сортировке строк, отличной от C, обычный индекс не подходит для LIKE 'префикс%'.
+-- Классы операторов text_pattern_ops сравнивают строки посимвольно и позволяют искать по префиксу через индекс.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_student_surname_prefix ON student (surname text_pattern_ops, name text_pattern_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_student_name_prefix ON student (name text_pattern_ops);
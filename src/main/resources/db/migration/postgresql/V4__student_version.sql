@@ -0,0 +1,3 @@
+-- Версия записи для оптимистической блокировки (@Version в сущности Student) и заголовка ETag.
+-- Значение по умолчанию нужно для существующих строк и для загрузки через COPY, где столбец не передаётся.
+ALTER TABLE student ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
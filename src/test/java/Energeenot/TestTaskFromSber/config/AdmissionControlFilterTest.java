@@ -0,0 +1,208 @@
+package Energeenot.TestTaskFromSber.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class AdmissionControlFilterTest {
+
+    private static final int DATABASE_CONNECTIONS = 4;
+    private static final long QUERY_MILLIS = 20;
+    private static final Duration LATENCY_TARGET = Duration.ofMillis(100);
+
+    @Test
+    void requestsShouldBeClassifiedByMethodAndPath() {
+        assertEquals(AdmissionControlFilter.Endpoint.READ, classify("GET", "/students/1"));
+        assertEquals(AdmissionControlFilter.Endpoint.BULK, classify("POST", "/students"));
+        assertEquals(AdmissionControlFilter.Endpoint.BULK, classify("POST", "/students/import"));
+        assertEquals(AdmissionControlFilter.Endpoint.BULK, classify("DELETE", "/students"));
+        assertEquals(AdmissionControlFilter.Endpoint.WRITE, classify("DELETE", "/students/1"));
+        assertEquals(AdmissionControlFilter.Endpoint.WRITE, classify("PATCH", "/students/1"));
+        assertNull(classify("GET", "/students/changes"));
+        assertNull(classify("GET", "/students/export"));
+    }
+
+    @Test
+    void excessRequestsShouldBeRejectedWithRetryAfterAndBulkShouldYieldToReads() throws Exception {
+        StudentProperties.Admission settings = new StudentProperties.Admission();
+        settings.setRead(new StudentProperties.Admission.Limit(2, 1, 10, Duration.ofSeconds(10)));
+        settings.setRetryAfter(Duration.ofMillis(1500));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AdmissionControlFilter filter = new AdmissionControlFilter(settings, meterRegistry);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain blockingChain = (request, response) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Object>> reads = List.of(
+                    executor.submit(() -> filter(filter, "GET", "/students/1", blockingChain)),
+                    executor.submit(() -> filter(filter, "GET", "/students/2", blockingChain)));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            MockHttpServletResponse rejectedRead = filter(filter, "GET", "/students/3", (request, response) -> { });
+            MockHttpServletResponse rejectedBulk = filter(filter, "POST", "/students", (request, response) -> { });
+
+            assertEquals(503, rejectedRead.getStatus());
+            assertEquals("2", rejectedRead.getHeader("Retry-After"));
+            assertEquals(503, rejectedBulk.getStatus());
+            assertEquals(0, filter.getLimit(AdmissionControlFilter.Endpoint.BULK).getInFlight());
+            release.countDown();
+            for (Future<Object> read : reads) {
+                read.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        assertEquals(200, filter(filter, "POST", "/students", (request, response) -> { }).getStatus());
+        assertEquals(1, meterRegistry.counter("students.admission.rejected", "endpoint", "read").count());
+        assertEquals(1, meterRegistry.counter("students.admission.rejected", "endpoint", "bulk").count());
+    }
+
+    @Test
+    void limitShouldShrinkOncePerSlowWindowAndGrowWhenFast() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+                new StudentProperties.Admission.Limit(20, 1, 40, LATENCY_TARGET));
+        long slowStart = System.nanoTime() - LATENCY_TARGET.toNanos() * 4;
+
+        assertTrue(limit.tryAcquire());
+        limit.release(slowStart, false);
+        assertEquals(20, limit.getLimit(), "запрос, начатый до создания лимита, не уменьшает его");
+
+        long start = System.nanoTime();
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        limit.release(start, true);
+        limit.release(start, true);
+        assertEquals(18, limit.getLimit(), "за одно время ответа лимит уменьшается один раз");
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(System.nanoTime(), false);
+        }
+        assertEquals(18, limit.getLimit(), "без нагрузки лимит не растёт");
+
+        for (int round = 0; round < 4; round++) {
+            int admitted = 0;
+            while (limit.tryAcquire()) {
+                admitted++;
+            }
+            assertEquals(limit.getLimit(), admitted);
+            for (int i = 0; i < admitted; i++) {
+                limit.release(System.nanoTime(), false);
+            }
+        }
+        assertTrue(limit.getLimit() > 18, "быстрые ответы при полной загрузке увеличивают лимит");
+        assertEquals(0, limit.getInFlight());
+    }
+
+    /**
+     * Имитирует базу с {@value #DATABASE_CONNECTIONS} соединениями и запросами по {@value #QUERY_MILLIS} мс,
+     * к которой обращаются 64 клиента без пауз. Без ограничения время ответа равно длине очереди к соединениям,
+     * с ограничением лимит сокращается до числа запросов, которое база обслуживает за время {@code latency-target}.
+     */
+    @Test
+    void slowRepositoryShouldKeepGoodputAndBoundLatency() throws Exception {
+        Load unguarded = runLoad(null);
+        StudentProperties.Admission settings = new StudentProperties.Admission();
+        settings.setRead(new StudentProperties.Admission.Limit(64, 1, 256, LATENCY_TARGET));
+        Load guarded = runLoad(new AdmissionControlFilter(settings, new SimpleMeterRegistry()));
+
+        log.info("log: Без ограничения: {} ответов/с, p99 {} мс; с ограничением: {} ответов/с, p99 {} мс, отклонено {}",
+                unguarded.goodput(), unguarded.p99Millis(), guarded.goodput(), guarded.p99Millis(), guarded.rejected());
+        assertTrue(guarded.goodput() >= unguarded.goodput() * 0.8, "пропускная способность должна сохраняться");
+        assertTrue(guarded.p99Millis() < LATENCY_TARGET.toMillis() * 2, "p99 должен оставаться ограниченным");
+        assertTrue(guarded.p99Millis() < unguarded.p99Millis());
+        assertTrue(guarded.rejected() > 0);
+    }
+
+    private static Load runLoad(AdmissionControlFilter filter) throws Exception {
+        int clients = 64;
+        long warmupNanos = TimeUnit.MILLISECONDS.toNanos(500);
+        long durationNanos = TimeUnit.MILLISECONDS.toNanos(2500);
+        Semaphore connections = new Semaphore(DATABASE_CONNECTIONS, true);
+        FilterChain slowRepository = (request, response) -> {
+            try {
+                connections.acquire();
+                try {
+                    Thread.sleep(QUERY_MILLIS);
+                } finally {
+                    connections.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long begin = System.nanoTime();
+        try {
+            for (int i = 0; i < clients; i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() - begin < durationNanos) {
+                        long start = System.nanoTime();
+                        MockHttpServletResponse response = new MockHttpServletResponse();
+                        if (filter == null) {
+                            slowRepository.doFilter(new MockHttpServletRequest("GET", "/students/1"), response);
+                        } else {
+                            response = filter(filter, "GET", "/students/1", slowRepository);
+                        }
+                        if (response.getStatus() == 503) {
+                            rejected.incrementAndGet();
+                            Thread.sleep(5);
+                        } else if (start - begin > warmupNanos) {
+                            latencies.add(System.nanoTime() - start);
+                        }
+                    }
+                    return null;
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        double seconds = (durationNanos - warmupNanos) / 1e9;
+        return new Load((long) (sorted.length / seconds),
+                TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length * 99 / 100]), rejected.get());
+    }
+
+    private static MockHttpServletResponse filter(AdmissionControlFilter filter, String method, String path,
+                                                  FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(method, path), response, chain);
+        return response;
+    }
+
+    private static AdmissionControlFilter.Endpoint classify(String method, String path) {
+        return AdmissionControlFilter.classify(new MockHttpServletRequest(method, path));
+    }
+
+    private record Load(long goodput, long p99Millis, int rejected) {
+    }
+}
@@ -0,0 +1,56 @@
+package Energeenot.TestTaskFromSber.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BoundedDataSourceTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+
+    @Test
+    void connectionsOverLimitShouldWaitAndTimeOut() throws SQLException {
+        when(dataSource.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        BoundedDataSource bounded = new BoundedDataSource(dataSource, 2, Duration.ofMillis(50));
+
+        Connection first = bounded.getConnection();
+        bounded.getConnection();
+
+        assertEquals(0, bounded.getAvailable());
+        assertThrows(SQLTransientConnectionException.class, bounded::getConnection);
+        first.close();
+        assertEquals(1, bounded.getAvailable());
+        assertNotNull(bounded.getConnection());
+    }
+
+    @Test
+    void repeatedCloseShouldReleaseOnce() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        BoundedDataSource bounded = new BoundedDataSource(dataSource, 1, Duration.ofMillis(50));
+
+        Connection first = bounded.getConnection();
+        first.close();
+        first.close();
+
+        assertEquals(1, bounded.getAvailable());
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    void failedConnectionShouldReleasePermit() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("нет соединения"));
+        BoundedDataSource bounded = new BoundedDataSource(dataSource, 1, Duration.ofMillis(50));
+
+        assertThrows(SQLException.class, bounded::getConnection);
+
+        assertEquals(1, bounded.getAvailable());
+    }
+}
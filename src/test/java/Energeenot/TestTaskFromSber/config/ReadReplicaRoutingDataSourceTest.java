@@ -0,0 +1,102 @@
+package Energeenot.TestTaskFromSber.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = database("primary");
+    private final DataSource firstReplica = database("replica-1");
+    private final DataSource secondReplica = database("replica-2");
+
+    @Test
+    void readOnlyTransactionShouldUseReplica() {
+        Routing routing = new Routing(List.of(firstReplica));
+
+        assertEquals("replica-1", routing.read(true));
+        assertEquals("primary", routing.read(false));
+        assertEquals("primary", routing.jdbcTemplate.queryForObject("SELECT name FROM source", String.class));
+    }
+
+    @Test
+    void pinnedReadsShouldUsePrimary() {
+        Routing routing = new Routing(List.of(firstReplica));
+
+        assertEquals("primary", PrimaryReads.call(() -> routing.read(true)));
+        assertEquals("replica-1", routing.read(true));
+    }
+
+    @Test
+    void readsShouldAlternateBetweenReplicas() {
+        Routing routing = new Routing(List.of(firstReplica, secondReplica));
+
+        Set<String> sources = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            sources.add(routing.read(true));
+        }
+
+        assertEquals(Set.of("replica-1", "replica-2"), sources);
+    }
+
+    @Test
+    void unavailableReplicaShouldBeSkipped() {
+        DataSource unavailable = new DriverManagerDataSource("jdbc:h2:mem:missing-replica;IFEXISTS=TRUE", "sa", "");
+        Routing routing = new Routing(List.of(unavailable, firstReplica));
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("replica-1", routing.read(true));
+        }
+        assertEquals(1, routing.dataSource.getAvailableReplicas());
+    }
+
+    @Test
+    void readsShouldFallBackToPrimaryWithoutAvailableReplicas() {
+        DataSource unavailable = new DriverManagerDataSource("jdbc:h2:mem:missing-replica;IFEXISTS=TRUE", "sa", "");
+        Routing routing = new Routing(List.of(unavailable));
+
+        assertEquals("primary", routing.read(true));
+        assertEquals(0, routing.dataSource.getAvailableReplicas());
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS source (name VARCHAR(32))");
+        jdbcTemplate.execute("DELETE FROM source");
+        jdbcTemplate.update("INSERT INTO source (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    private class Routing {
+
+        private final ReadReplicaRoutingDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+
+        Routing(List<DataSource> replicas) {
+            this.dataSource = new ReadReplicaRoutingDataSource(primary, replicas, Duration.ofMinutes(1));
+            DataSource lazy = new LazyConnectionDataSourceProxy(dataSource);
+            this.jdbcTemplate = new JdbcTemplate(lazy);
+            this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(lazy));
+        }
+
+        String read(boolean readOnly) {
+            transactionTemplate.setReadOnly(readOnly);
+            return transactionTemplate.execute(status ->
+                    jdbcTemplate.queryForObject("SELECT name FROM source", String.class));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package Energeenot.TestTaskFromSber.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesFilterTest {
+
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(2));
+    private final AtomicBoolean pinned = new AtomicBoolean();
+    private final FilterChain chain = (request, response) -> pinned.set(PrimaryReads.isPinned());
+
+    @Test
+    void writeShouldUsePrimaryAndSetCookie() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("PATCH", "/students/1"), response, chain);
+
+        assertTrue(pinned.get());
+        assertFalse(PrimaryReads.isPinned());
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE);
+        assertNotNull(cookie);
+        assertEquals(2, cookie.getMaxAge());
+    }
+
+    @Test
+    void readAfterOwnWriteShouldUsePrimary() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/students/1");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, String.valueOf(System.currentTimeMillis() + 2000)));
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertTrue(pinned.get());
+    }
+
+    @Test
+    void readWithoutRecentWriteShouldUseReplica() throws Exception {
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/students/1");
+        expired.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, String.valueOf(System.currentTimeMillis() - 1)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(expired, response, chain);
+
+        assertFalse(pinned.get());
+        assertNull(response.getCookie(ReadYourWritesFilter.COOKIE));
+    }
+}
@@ -0,0 +1,102 @@
+package Energeenot.TestTaskFromSber.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestDecompressionFilterTest {
+
+    private static final String BODY = "[{\"surname\":\"Иванов\",\"name\":\"Иван\",\"age\":20,\"averageMark\":4.5}]";
+
+    private final RequestDecompressionFilter filter = new RequestDecompressionFilter(1024);
+
+    @Test
+    void gzipBodyShouldBeDecompressedAndEncodingHeadersHidden() throws Exception {
+        MockHttpServletRequest request = gzipRequest(BODY, "gzip");
+        AtomicReference<String> body = new AtomicReference<>();
+        AtomicReference<HttpServletRequest> passed = new AtomicReference<>();
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            passed.set((HttpServletRequest) req);
+            body.set(new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        });
+
+        assertEquals(BODY, body.get());
+        assertNull(passed.get().getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(-1, passed.get().getContentLengthLong());
+        assertFalse(Collections.list(passed.get().getHeaderNames()).contains(HttpHeaders.CONTENT_LENGTH));
+        assertEquals("application/json", passed.get().getHeader(HttpHeaders.CONTENT_TYPE));
+    }
+
+    @Test
+    void uncompressedBodyShouldPassUnchanged() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/students");
+        request.setContent(BODY.getBytes(StandardCharsets.UTF_8));
+        AtomicReference<Object> passed = new AtomicReference<>();
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> passed.set(req));
+
+        assertSame(request, passed.get());
+    }
+
+    @Test
+    void unsupportedEncodingShouldBeRejected() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/students");
+        request.addHeader(HttpHeaders.CONTENT_ENCODING, "br");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> fail("запрос не должен дойти до контроллера");
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(415, response.getStatus());
+        assertEquals("gzip", response.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    @Test
+    void bodyLargerThanLimitAfterDecompressionShouldBeRejected() throws Exception {
+        MockHttpServletRequest request = gzipRequest("0".repeat(10_000), "x-gzip");
+        assertTrue(request.getContentLength() < 1024, "сжатое тело меньше лимита");
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> filter.doFilter(request, new MockHttpServletResponse(),
+                        (req, res) -> req.getInputStream().readAllBytes()));
+
+        assertEquals(413, exception.getStatusCode().value());
+    }
+
+    @Test
+    void corruptedGzipShouldFailWithIoException() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/students");
+        request.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        request.setContent(BODY.getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> req.getInputStream().readAllBytes()));
+    }
+
+    private static MockHttpServletRequest gzipRequest(String body, String encoding) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/students");
+        request.setContentType("application/json");
+        request.addHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        request.addHeader(HttpHeaders.CONTENT_LENGTH, compressed.size());
+        request.setContent(compressed.toByteArray());
+        return request;
+    }
+}
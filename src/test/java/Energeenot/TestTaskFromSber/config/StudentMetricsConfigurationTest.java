@@ -0,0 +1,64 @@
+package Energeenot.TestTaskFromSber.config;
+
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(StudentMetricsConfiguration.class)
+class StudentMetricsConfigurationTest {
+
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @TestConfiguration
+    static class MetricsConfiguration {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Test
+    void sqlStatementsShouldBeCountedPerRequest() {
+        StudentMetricsConfiguration.SqlStatementMetricsInterceptor interceptor =
+                new StudentMetricsConfiguration.SqlStatementMetricsInterceptor(sqlStatementCounter, meterRegistry);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/students/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/students/{id}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, new Object());
+        studentRepository.saveAndFlush(Student.builder().surname("Иванов").name("Иван").age(20).averageMark(4.5).build());
+        studentRepository.findAllById(List.of(1, 2, 3));
+        interceptor.afterCompletion(request, response, new Object(), null);
+        interceptor.preHandle(request, response, new Object());
+        interceptor.afterCompletion(request, response, new Object(), null);
+
+        DistributionSummary statements = meterRegistry.get(StudentMetricsConfiguration.SQL_STATEMENTS_METRIC)
+                .tags("method", "GET", "uri", "/students/{id}")
+                .summary();
+        assertEquals(2, statements.count());
+        assertTrue(statements.totalAmount() >= 2, "Ожидалось не меньше двух запросов: INSERT и SELECT");
+        assertEquals(1, meterRegistry.find(StudentMetricsConfiguration.SQL_STATEMENTS_METRIC).summaries().size());
+    }
+}
@@ -0,0 +1,50 @@
+package Energeenot.TestTaskFromSber.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentPropertiesTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ValidationAutoConfiguration.class))
+            .withUserConfiguration(PropertiesConfiguration.class);
+
+    @Configuration
+    @EnableConfigurationProperties(StudentProperties.class)
+    static class PropertiesConfiguration {
+    }
+
+    @Test
+    void largestRowLimitShouldBeAccepted() {
+        contextRunner.withPropertyValues("students.pagination.unpaged-max-rows=" + StudentProperties.Pagination.MAX_ROWS)
+                .run(context -> assertEquals(StudentProperties.Pagination.MAX_ROWS,
+                        context.getBean(StudentProperties.class).getPagination().getUnpagedMaxRows()));
+    }
+
+    @Test
+    void rowLimitsThatOverflowWithLookAheadRowShouldBeRejected() {
+        contextRunner.withPropertyValues("students.pagination.unpaged-max-rows=" + Integer.MAX_VALUE)
+                .run(context -> assertNotNull(context.getStartupFailure()));
+        contextRunner.withPropertyValues("students.pagination.max-limit=" + Integer.MAX_VALUE)
+                .run(context -> assertNotNull(context.getStartupFailure()));
+        contextRunner.withPropertyValues("students.pagination.default-limit=0")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+    }
+
+    @Test
+    void batchAndChunkSizesBelowOneShouldBeRejected() {
+        for (String property : List.of("students.insert.batch-size", "students.insert.chunk-size",
+                "students.insert.import-chunk-size", "students.fetch.batch-size", "students.delete.batch-size")) {
+            contextRunner.withPropertyValues(property + "=0")
+                    .run(context -> assertNotNull(context.getStartupFailure(), property));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package Energeenot.TestTaskFromSber.config;
+
+import Energeenot.TestTaskFromSber.model.Student;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentRequestLogTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(StudentRequestLog.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final List<Student> students = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+        for (int i = 0; i < 10_000; i++) {
+            students.add(Student.builder().id(i).surname("Иванов" + i).name("Иван").age(20).averageMark(4.5).build());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void sampledRequestShouldLogCountAndLimitedItems() {
+        StudentProperties studentProperties = new StudentProperties();
+        studentProperties.getLogging().getDetailSampleRate().put("create", 1.0);
+        studentProperties.getLogging().setDetailMaxItems(2);
+        StudentRequestLog requestLog = new StudentRequestLog(studentProperties);
+
+        requestLog.items("create", students);
+        requestLog.items("update", students);
+
+        assertEquals(1, appender.list.size());
+        String message = appender.list.get(0).getFormattedMessage();
+        assertTrue(message.contains("count=10000"), message);
+        assertTrue(message.contains("shown=2"), message);
+        assertFalse(message.contains("Иванов2"), message);
+    }
+
+    @Test
+    void unsampledRequestShouldNotAllocatePerRowStrings() {
+        StudentRequestLog requestLog = new StudentRequestLog(new StudentProperties());
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        for (int i = 0; i < 10_000; i++) {
+            requestLog.items("create", students);
+            requestLog.item("update", i, students.get(0));
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1_000; i++) {
+            requestLog.items("create", students);
+            requestLog.item("update", i, students.get(0));
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(appender.list.isEmpty());
+        // Одна строка списка из 10 000 студентов заняла бы мегабайты; проверка выборки не должна зависеть от размера
+        assertTrue(allocated < 64 * 1024, "Выделено байт: " + allocated);
+    }
+}
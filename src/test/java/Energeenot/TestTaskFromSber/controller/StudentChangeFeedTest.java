@@ -0,0 +1,130 @@
+package Energeenot.TestTaskFromSber.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Журнал изменений {@code GET /students/changes} через HTTP: события изменений приходят подписчику после фиксации,
+ * а переподключение с {@code Last-Event-ID} дочитывает пропущенные события из таблицы {@code student_event}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:changes;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class StudentChangeFeedTest {
+
+    private static final String STUDENT_JSON =
+            "{\"surname\":\"Иванов\",\"name\":\"Иван\",\"patronymic\":\"Иванович\",\"age\":20,\"averageMark\":4.5}";
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void changesShouldBeStreamedAndResumedAfterLastEventId() throws Exception {
+        HttpResponse<Stream<String>> stream = subscribe(null);
+        assertEquals(200, stream.statusCode());
+        Iterator<String> lines = stream.body().iterator();
+
+        send(HttpRequest.newBuilder(uri("/students"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("[" + STUDENT_JSON + "," + STUDENT_JSON + "]")));
+        List<Event> created = read(lines, 2);
+        int firstId = created.get(0).studentId();
+        send(HttpRequest.newBuilder(uri("/students/" + firstId))
+                .header("Content-Type", "application/json")
+                .header("Prefer", "return=minimal")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"age\":21}")));
+        send(HttpRequest.newBuilder(uri("/students/" + created.get(1).studentId())).DELETE());
+        List<Event> changed = read(lines, 2);
+        stream.body().close();
+
+        assertEquals(List.of("created", "created"), created.stream().map(Event::type).toList());
+        assertEquals(List.of("updated", "deleted"), changed.stream().map(Event::type).toList());
+        assertEquals(firstId, changed.get(0).studentId());
+        long firstEvent = created.get(0).id();
+        assertEquals(List.of(firstEvent + 1, firstEvent + 2, firstEvent + 3),
+                List.of(created.get(1).id(), changed.get(0).id(), changed.get(1).id()));
+
+        HttpResponse<Stream<String>> resumed = subscribe(firstEvent);
+        List<Event> missed = read(resumed.body().iterator(), 3);
+        resumed.body().close();
+
+        assertEquals(List.of(firstEvent + 1, firstEvent + 2, firstEvent + 3), missed.stream().map(Event::id).toList());
+    }
+
+    @Test
+    void unknownLastEventIdShouldReturnGone() throws Exception {
+        HttpResponse<Stream<String>> response = subscribe(1_000_000L);
+        response.body().close();
+
+        assertEquals(410, response.statusCode());
+    }
+
+    private HttpResponse<Stream<String>> subscribe(Long lastEventId) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri("/students/changes")).header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", String.valueOf(lastEventId));
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofLines());
+    }
+
+    private void send(HttpRequest.Builder request) throws Exception {
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        assertTrue(response.statusCode() < 300, response::body);
+    }
+
+    /**
+     * Читает из потока Server-Sent Events указанное число событий, пропуская комментарии.
+     * Итератор строк создаётся один раз на подписку: поток ответа можно обойти только однажды.
+     */
+    private static List<Event> read(Iterator<String> lines, int count) throws Exception {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Event> events = new ArrayList<>();
+            long id = 0;
+            String type = null;
+            while (events.size() < count && lines.hasNext()) {
+                String line = lines.next();
+                if (line.startsWith("id:")) {
+                    id = Long.parseLong(line.substring(3));
+                } else if (line.startsWith("event:")) {
+                    type = line.substring(6);
+                } else if (line.startsWith("data:")) {
+                    String data = line.substring(5);
+                    int start = data.indexOf("\"studentId\":") + "\"studentId\":".length();
+                    int end = start;
+                    while (Character.isDigit(data.charAt(end))) {
+                        end++;
+                    }
+                    events.add(new Event(id, type, Integer.parseInt(data.substring(start, end))));
+                }
+            }
+            return events;
+        }).get(10, TimeUnit.SECONDS);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private record Event(long id, String type, int studentId) {
+    }
+}
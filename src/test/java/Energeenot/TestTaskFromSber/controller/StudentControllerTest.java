@@ -1,41 +1,212 @@
 package Energeenot.TestTaskFromSber.controller;
 
+import Energeenot.TestTaskFromSber.config.BinaryFormatConfiguration;
+import Energeenot.TestTaskFromSber.config.StudentRequestLog;
+import Energeenot.TestTaskFromSber.dto.BulkDeleteResult;
+import Energeenot.TestTaskFromSber.dto.BulkInsertResult;
+import Energeenot.TestTaskFromSber.dto.ImportResult;
+import Energeenot.TestTaskFromSber.dto.StudentBatch;
+import Energeenot.TestTaskFromSber.dto.StudentMatch;
+import Energeenot.TestTaskFromSber.dto.StudentPage;
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
+import Energeenot.TestTaskFromSber.dto.StudentSearchCriteria;
+import Energeenot.TestTaskFromSber.dto.StudentSearchPage;
+import Energeenot.TestTaskFromSber.dto.StudentStatistics;
 import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.service.StudentChangeFeed;
+import Energeenot.TestTaskFromSber.service.StudentImportService;
 import Energeenot.TestTaskFromSber.service.StudentService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(StudentController.class)
+@Import(BinaryFormatConfiguration.class)
 class StudentControllerTest {
 
     @MockBean
     private StudentService studentService;
+    @MockBean
+    private StudentImportService studentImportService;
+    @MockBean
+    private StudentChangeFeed studentChangeFeed;
+    @MockBean
+    private StudentRequestLog requestLog;
     @Autowired
     private MockMvc mockMvc;
 
     @Test
     void getAllStudentsShouldReturnAllStudent() throws Exception {
         when(studentService.getAllStudents()).thenReturn(List.of());
-        mockMvc.perform(get("/students"))
+        mockMvc.perform(get("/students").param("unpaged", "true"))
                 .andExpect(status().isOk());
         verify(studentService, times(1)).getAllStudents();
     }
 
+    @Test
+    void getAllStudentsShouldReturnSmileIfAccepted() throws Exception {
+        Student student = Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        when(studentService.getAllStudents()).thenReturn(List.of(student));
+
+        MvcResult result = mockMvc.perform(get("/students").param("unpaged", "true")
+                        .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn();
+
+        List<Student> students = new ObjectMapper(new SmileFactory())
+                .readValue(result.getResponse().getContentAsByteArray(), new TypeReference<>() {
+                });
+        assertEquals(1, students.size());
+        assertEquals("Иванов", students.get(0).getSurname());
+        assertEquals(4.5, students.get(0).getAverageMark());
+    }
+
+    @Test
+    void getStudentsPageShouldReturnPageWithNextCursor() throws Exception {
+        Student student = Student.builder()
+                .id(5)
+                .surname("Иванов")
+                .name("Иван")
+                .age(20)
+                .averageMark(4.5)
+                .build();
+        when(studentService.getStudentsPage(4, 1)).thenReturn(new StudentPage<>(List.of(student), 5));
+        mockMvc.perform(get("/students").param("after", "4").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(5))
+                .andExpect(jsonPath("$.nextCursor").value(5));
+        verify(studentService, times(1)).getStudentsPage(4, 1);
+        verify(studentService, never()).getAllStudents();
+    }
+
+    @Test
+    void searchStudentsShouldBindCriteriaFromQueryParameters() throws Exception {
+        when(studentService.searchStudents(any(StudentSearchCriteria.class))).thenReturn(new StudentSearchPage<>(List.of(), null));
+        mockMvc.perform(get("/students/search")
+                        .param("surname", "Ива")
+                        .param("minMark", "4.0")
+                        .param("sort", "-averageMark")
+                        .param("after", "QVZFUkFHRV9NQVJLfDd8NC41")
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").isEmpty());
+
+        ArgumentCaptor<StudentSearchCriteria> criteria = ArgumentCaptor.forClass(StudentSearchCriteria.class);
+        verify(studentService, times(1)).searchStudents(criteria.capture());
+        assertEquals("Ива", criteria.getValue().getSurname());
+        assertEquals(4.0, criteria.getValue().getMinMark());
+        assertEquals("-averageMark", criteria.getValue().getSort());
+        assertEquals("QVZFUkFHRV9NQVJLfDd8NC41", criteria.getValue().getAfter());
+        assertEquals(10, criteria.getValue().getLimit());
+    }
+
+    @Test
+    void getStudentsPageWithFieldsShouldReturnOnlyRequestedFields() throws Exception {
+        when(studentService.getStudentsPage(null, null, List.of("id", "surname")))
+                .thenReturn(new StudentPage<>(List.of(Map.of("id", 5, "surname", "Иванов")), null));
+        mockMvc.perform(get("/students").param("fields", "id,surname"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].surname").value("Иванов"))
+                .andExpect(jsonPath("$.content[0].name").doesNotExist());
+        verify(studentService, never()).getStudentsPage(any(), any());
+    }
+
+    @Test
+    void getStudentByIdWithFieldsShouldReturnOnlyRequestedFields() throws Exception {
+        when(studentService.getStudentById(5, List.of("averageMark"))).thenReturn(Map.of("averageMark", 4.5));
+        mockMvc.perform(get("/students/{id}", 5).param("fields", "averageMark"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.averageMark").value(4.5))
+                .andExpect(jsonPath("$.id").doesNotExist());
+        verify(studentService, never()).getStudentById(5);
+    }
+
+    @Test
+    void getStudentsByIdsShouldReturnStudentsAndMissingIds() throws Exception {
+        Student student = Student.builder().id(2).surname("Петров").name("Пётр").age(22).averageMark(4.2).build();
+        when(studentService.getStudentsByIds(List.of(2, 7))).thenReturn(new StudentBatch(List.of(student), List.of(7)));
+        mockMvc.perform(get("/students").param("ids", "2,7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.students[0].id").value(2))
+                .andExpect(jsonPath("$.missingIds[0]").value(7));
+        verify(studentService, never()).getStudentsPage(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportStudentsShouldStreamNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Student> consumer = invocation.getArgument(0);
+            consumer.accept(Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build());
+            consumer.accept(Student.builder().id(2).surname("Петров").name("Пётр").age(22).averageMark(4.2).build());
+            return null;
+        }).when(studentService).exportStudents(any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/students/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON));
+
+        String[] lines = result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        assertTrue(lines[1].startsWith("{\"id\":2,"));
+    }
+
+    @Test
+    void exportStudentsShouldRejectUnknownFormat() throws Exception {
+        mockMvc.perform(get("/students/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        verify(studentService, never()).exportStudents(any());
+    }
+
+    @Test
+    void subscribeToChangesShouldResumeAfterLastEventId() throws Exception {
+        when(studentChangeFeed.subscribe(5L)).thenReturn(new SseEmitter());
+        mockMvc.perform(get("/students/changes").header("Last-Event-ID", "5"))
+                .andExpect(request().asyncStarted());
+        verify(studentChangeFeed, times(1)).subscribe(5L);
+
+        when(studentChangeFeed.subscribe(1L)).thenThrow(new ResponseStatusException(HttpStatus.GONE));
+        mockMvc.perform(get("/students/changes").header("Last-Event-ID", "1"))
+                .andExpect(status().isGone());
+    }
+
     @Test
     void getStudentByIdShouldFindStudent() throws Exception {
         int id = 1;
@@ -49,12 +220,37 @@ class StudentControllerTest {
         when(studentService.getStudentById(id)).thenReturn(student);
         mockMvc.perform(get("/students/{id}", id))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
                 .andExpect(jsonPath("$.surname").value("Петров"))
                 .andExpect(jsonPath("$.name").value("Пётр"));
 
         verify(studentService, times(1)).getStudentById(id);
     }
 
+    @Test
+    void getStudentByIdShouldReturnNotModifiedIfVersionMatches() throws Exception {
+        int id = 1;
+        Student student = Student.builder().id(id).surname("Петров").name("Пётр").age(20).version(3).build();
+        when(studentService.getStudentById(id)).thenReturn(student);
+        mockMvc.perform(get("/students/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+        mockMvc.perform(get("/students/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getStudentsPageShouldReturnNotModifiedIfPageUnchanged() throws Exception {
+        Student student = Student.builder().id(5).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        when(studentService.getStudentsPage(null, null)).thenReturn(new StudentPage<>(List.of(student), null));
+        String eTag = mockMvc.perform(get("/students"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/students").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     void getStudentByIdShouldThrowException() throws Exception {
         int id = 1;
@@ -64,6 +260,37 @@ class StudentControllerTest {
         verify(studentService, times(1)).getStudentById(id);
     }
 
+    @Test
+    void getStatisticsShouldPassParametersAndReturnAggregate() throws Exception {
+        StudentStatistics statistics = new StudentStatistics(3, 4.0, 3.5, 4.5, Map.of("0.5", 4.0),
+                List.of(new StudentStatistics.AgeBucket(20, 29, 3, 4.0, new long[]{0, 0, 0, 0, 0, 1, 1, 1})));
+        when(studentService.getStatistics(10, List.of(0.5))).thenReturn(statistics);
+
+        mockMvc.perform(get("/students/statistics")
+                        .param("ageBucketWidth", "10")
+                        .param("percentiles", "0.5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(3))
+                .andExpect(jsonPath("$.percentiles['0.5']").value(4.0))
+                .andExpect(jsonPath("$.ageBuckets[0].fromAge").value(20))
+                .andExpect(jsonPath("$.ageBuckets[0].markHistogram[7]").value(1));
+        verify(studentService, never()).getStudentById(anyInt());
+    }
+
+    @Test
+    void searchStudentsFuzzyShouldReturnMatchesInRankOrder() throws Exception {
+        Student student = Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        when(studentService.searchStudentsFuzzy("Ивнов", 5)).thenReturn(List.of(new StudentMatch(student, 0.75)));
+
+        mockMvc.perform(get("/students/search/fuzzy")
+                        .param("q", "Ивнов")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].student.surname").value("Иванов"))
+                .andExpect(jsonPath("$[0].similarity").value(0.75));
+        verify(studentService, never()).getStudentById(anyInt());
+    }
+
     @Test
     void createStudentShouldReturnCreatedStudent() throws Exception {
         List<Student> savedStudents = Arrays.asList(
@@ -94,11 +321,27 @@ class StudentControllerTest {
                 .andExpect(jsonPath("$[0].id").value(1))
                 .andExpect(jsonPath("$[1].id").value(2));
         verify(studentService, times(1)).addStudent(anyList());
+        verify(requestLog).items(eq("create"), anyList());
+    }
+
+    @Test
+    void createStudentShouldAcceptCborBody() throws Exception {
+        Student student = Student.builder().surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        when(studentService.addStudent(anyList())).thenReturn(List.of(student));
+        byte[] body = new ObjectMapper(new CBORFactory()).writeValueAsBytes(List.of(student));
+
+        mockMvc.perform(post("/students").contentType("application/cbor").content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$[0].surname").value("Иванов"));
+
+        verify(studentService).addStudent(argThat(students -> students.size() == 1
+                && "Иванов".equals(students.get(0).getSurname())
+                && students.get(0).getAverageMark() == 4.5));
     }
 
     @Test
     void updateStudentShouldThrowException() throws Exception {
-        when(studentService.addStudent(anyList())).thenThrow(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR));
+        when(studentService.addStudent(anyList())).thenThrow(new IllegalStateException("База недоступна"));
         mockMvc.perform(post("/students")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("[{\"surname\":\"Иванов\",\"name\":\"Иван\",\"age\":20,\"averageMark\":4.5}]"))
@@ -107,12 +350,180 @@ class StudentControllerTest {
         verify(studentService, times(1)).addStudent(anyList());
     }
 
+    @Test
+    void createStudentShouldReturnBadRequestForInvalidStudents() throws Exception {
+        when(studentService.addStudent(anyList())).thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Некорректные данные студентов; строка 0: averageMark: средняя оценка больше 5.00"));
+        mockMvc.perform(post("/students")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"surname\":\"Иванов\",\"name\":\"Иван\",\"age\":20,\"averageMark\":5.5}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createStudentsPartiallyShouldReturnCreatedIdsAndRejectedRows() throws Exception {
+        when(studentService.addStudentsPartially(anyList())).thenReturn(new BulkInsertResult(2, List.of(7),
+                List.of(new BulkInsertResult.RowError(1, List.of("averageMark: средняя оценка больше 5.00")))));
+        mockMvc.perform(post("/students")
+                .param("partial", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"surname\":\"Иванов\",\"name\":\"Иван\",\"age\":20,\"averageMark\":4.5}," +
+                        "{\"surname\":\"Петров\",\"name\":\"Пётр\",\"age\":22,\"averageMark\":5.5}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(2))
+                .andExpect(jsonPath("$.createdIds[0]").value(7))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].messages[0]").value("averageMark: средняя оценка больше 5.00"));
+        verify(studentService, never()).addStudent(anyList());
+    }
+
+    @Test
+    void importStudentsShouldPassCsvBodyToImportService() throws Exception {
+        when(studentImportService.importStudents(any(InputStream.class), eq(StudentImportService.Format.CSV)))
+                .thenReturn(new ImportResult(2, 1, 15));
+        mockMvc.perform(post("/students/import")
+                .contentType("text/csv")
+                .content("surname,name,patronymic,age,averageMark\nИванов,Иван,,20,4.5\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.elapsedMillis").value(15));
+        verify(studentImportService, times(1)).importStudents(any(InputStream.class), eq(StudentImportService.Format.CSV));
+    }
+
+    @Test
+    void importStudentsShouldDetectNdjson() throws Exception {
+        when(studentImportService.importStudents(any(InputStream.class), eq(StudentImportService.Format.NDJSON)))
+                .thenReturn(new ImportResult(1, 0, 3));
+        mockMvc.perform(post("/students/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{\"surname\":\"Иванов\",\"name\":\"Иван\",\"age\":20,\"averageMark\":4.5}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1));
+    }
+
+    @Test
+    void patchStudentShouldReturnUpdatedStudent() throws Exception {
+        int id = 1;
+        Student student = Student.builder()
+                .id(id)
+                .surname("Иванов")
+                .name("Пётр")
+                .age(20)
+                .averageMark(4.5)
+                .build();
+        when(studentService.updateStudent(eq(id), any(StudentPatch.class), isNull())).thenReturn(student);
+        mockMvc.perform(patch("/students/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Пётр\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(jsonPath("$.name").value("Пётр"));
+        verify(studentService, times(1)).updateStudent(eq(id), argThat(patch -> "Пётр".equals(patch.getName())
+                && patch.getAge() == null && !patch.hasPatronymic()), isNull());
+        verify(studentService, never()).getStudentById(id);
+    }
+
+    @Test
+    void patchStudentWithNullPatronymicShouldClearIt() throws Exception {
+        int id = 1;
+        mockMvc.perform(patch("/students/{id}", id)
+                .header("Prefer", "return=minimal")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"patronymic\":null}"))
+                .andExpect(status().isNoContent());
+        verify(studentService, times(1)).updateStudent(eq(id), argThat(patch -> patch.hasPatronymic()
+                && patch.getPatronymic() == null && !patch.isEmpty()), isNull());
+    }
+
+    @Test
+    void patchStudentWithReturnMinimalShouldNotReadStudent() throws Exception {
+        int id = 1;
+        mockMvc.perform(patch("/students/{id}", id)
+                .header("Prefer", "return=minimal")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"age\":21}"))
+                .andExpect(status().isNoContent());
+        verify(studentService, times(1)).updateStudent(eq(id), any(StudentPatch.class), isNull());
+        verify(studentService, never()).getStudentById(id);
+    }
+
+    @Test
+    void patchStudentShouldPassIfMatchVersionAndRejectWeakETag() throws Exception {
+        int id = 1;
+        mockMvc.perform(patch("/students/{id}", id)
+                .header("Prefer", "return=minimal")
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"age\":21}"))
+                .andExpect(status().isNoContent());
+        verify(studentService, times(1)).updateStudent(eq(id), any(StudentPatch.class), eq(3L));
+
+        mockMvc.perform(patch("/students/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"age\":21}"))
+                .andExpect(status().isPreconditionFailed());
+        verify(studentService, times(1)).updateStudent(anyInt(), any(StudentPatch.class), any());
+    }
+
+    @Test
+    void patchStudentShouldRejectInvalidFieldsWithoutCallingService() throws Exception {
+        mockMvc.perform(patch("/students/{id}", 1)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"averageMark\":7.5}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/students/{id}", 1)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"  \"}"))
+                .andExpect(status().isBadRequest());
+        verify(studentService, never()).updateStudent(anyInt(), any(StudentPatch.class), any());
+    }
+
+    @Test
+    void patchStudentShouldReturnNotFound() throws Exception {
+        int id = 1;
+        doThrow(new ResponseStatusException(HttpStatus.NOT_FOUND)).when(studentService).updateStudent(eq(id), any(StudentPatch.class), isNull());
+        mockMvc.perform(patch("/students/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"age\":21}"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void deleteStudentShouldReturnNoContent() throws Exception {
         int id = 1;
         mockMvc.perform(delete("/students/{id}", id))
                 .andExpect(status().isNoContent());
-        verify(studentService, times(1)).deleteStudent(id);
+        verify(studentService, times(1)).deleteStudent(id, null);
+    }
+
+    @Test
+    void deleteStudentShouldReturnNotFound() throws Exception {
+        int id = 1;
+        doThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент не найден")).when(studentService).deleteStudent(id, null);
+        mockMvc.perform(delete("/students/{id}", id))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deleteStudentWithStaleVersionShouldReturnPreconditionFailed() throws Exception {
+        int id = 1;
+        doThrow(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED)).when(studentService).deleteStudent(id, 2L);
+        mockMvc.perform(delete("/students/{id}", id).header(HttpHeaders.IF_MATCH, "\"2\""))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void deleteStudentsShouldReturnDeletedCount() throws Exception {
+        when(studentService.deleteStudents(List.of(1, 2, 3))).thenReturn(new BulkDeleteResult(3, 2));
+        mockMvc.perform(delete("/students")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1,2,3]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(3))
+                .andExpect(jsonPath("$.deleted").value(2));
+        verify(studentService, times(1)).deleteStudents(List.of(1, 2, 3));
     }
 
 
@@ -0,0 +1,344 @@
+package Energeenot.TestTaskFromSber.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный тест HTTP API студентов: Tomcat, Jackson, Hibernate и пул соединений вместе.
+ * <p>
+ *     Приложение запускается на случайном порту со встроенной базой H2. Запросы отправляются
+ *     с постоянной интенсивностью {@code loadtest.rate} в секунду (открытая модель нагрузки): время ответа
+ *     отсчитывается от запланированного момента отправки, поэтому задержки сервера не скрываются тем,
+ *     что тест сам начинает отправлять запросы реже. Соотношение запросов задаётся {@code loadtest.mix}.
+ * </p>
+ * <p>
+ *     Отчёт с пропускной способностью, долей ошибок и процентилями времени ответа записывается в JSON-файл
+ *     {@code loadtest.report}, распределения времени ответа в формате HdrHistogram — в файлы {@code .hgrm} рядом.
+ *     Запуск: {@code mvn test -Ploadtest -Dloadtest.rate=500 -Dloadtest.duration=60s}.
+ * </p>
+ * <p>
+ *     Запросы обрабатываются потоками платформы из пула Tomcat; тот же тест в режиме виртуальных потоков —
+ *     {@link StudentVirtualThreadLoadTest}, в реактивном варианте API — {@link StudentReactiveLoadTest}.
+ *     Все три запускаются профилем {@code loadtest}, и их отчёты можно сравнить. Кроме времени ответа, в отчёт
+ *     записываются наибольшее число потоков JVM и занятая куча после измерения.
+ * </p>
+ */
+@Tag("loadtest")
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "logging.level.Energeenot.TestTaskFromSber=WARN"
+})
+class StudentLoadTest {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final String STUDENT_JSON =
+            "{\"surname\":\"Иванов\",\"name\":\"Иван\",\"patronymic\":\"Иванович\",\"age\":%d,\"averageMark\":4.5}";
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${loadtest.rate:200}")
+    private int rate;
+    @Value("${loadtest.duration:30s}")
+    private Duration duration;
+    @Value("${loadtest.warmup:5s}")
+    private Duration warmup;
+    @Value("${loadtest.seed-students:1000}")
+    private int seedStudents;
+    @Value("${loadtest.mix:GET=70,POST=10,PATCH=15,DELETE=5}")
+    private String mix;
+    @Value("${loadtest.report:target/loadtest-report.json}")
+    private Path report;
+    @Value("${loadtest.max-error-rate:0.01}")
+    private double maxErrorRate;
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    @Value("${spring.main.web-application-type:servlet}")
+    private String webApplicationType;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final List<Integer> ids = new ArrayList<>();
+
+    /**
+     * Тип запроса в нагрузке.
+     */
+    private enum Operation {
+        GET,
+        POST,
+        PATCH,
+        DELETE
+    }
+
+    /**
+     * Результаты одного типа запросов.
+     */
+    private static final class OperationStats {
+
+        private final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final AtomicLong clientErrors = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+
+        void record(long intendedStart, int status) {
+            latency.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS,
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart)));
+            if (status >= 500 || status < 0) {
+                errors.incrementAndGet();
+            } else if (status >= 400) {
+                clientErrors.incrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    void studentsApiUnderFixedArrivalRate() throws Exception {
+        seed();
+        Operation[] schedule = parseMix();
+
+        log.warn("log: Прогрев {} с интенсивностью {} запросов в секунду, {} потоки", warmup, rate,
+                virtualThreads ? "виртуальные" : "платформенные");
+        run(schedule, warmup);
+        log.warn("log: Измерение {} с интенсивностью {} запросов в секунду", duration, rate);
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+        long start = System.nanoTime();
+        Map<Operation, OperationStats> stats = run(schedule, duration);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        double errorRate = writeReport(stats, elapsedSeconds);
+        assertTrue(errorRate <= maxErrorRate, "Доля ошибок " + errorRate + " превышает " + maxErrorRate);
+    }
+
+    /**
+     * Добавляет студентов, с которыми будут работать запросы GET, PATCH и DELETE.
+     */
+    private void seed() throws IOException, InterruptedException {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < seedStudents; i++) {
+            body.append(i == 0 ? "" : ",").append(String.format(STUDENT_JSON, 18 + i % 10));
+        }
+        HttpResponse<String> response = httpClient.send(request("/students")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString()))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        for (JsonNode student : objectMapper.readTree(response.body())) {
+            ids.add(student.get("id").asInt());
+        }
+    }
+
+    /**
+     * Разворачивает соотношение {@code GET=70,POST=10,...} в перемешанное расписание, где каждый тип запроса
+     * встречается столько раз, каков его вес.
+     */
+    private Operation[] parseMix() {
+        List<Operation> schedule = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] weight = part.trim().split("=");
+            Operation operation = Operation.valueOf(weight[0].trim());
+            for (int i = 0; i < Integer.parseInt(weight[1].trim()); i++) {
+                schedule.add(operation);
+            }
+        }
+        Collections.shuffle(schedule, new Random(42));
+        return schedule.toArray(new Operation[0]);
+    }
+
+    /**
+     * Отправляет запросы с постоянной интенсивностью в течение заданного времени и дожидается ответов.
+     */
+    private Map<Operation, OperationStats> run(Operation[] schedule, Duration period) throws Exception {
+        Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long requests = period.toNanos() / interval;
+        long start = System.nanoTime();
+        List<CompletableFuture<?>> inFlight = new ArrayList<>((int) requests);
+        for (long i = 0; i < requests; i++) {
+            long intendedStart = start + i * interval;
+            long delay = intendedStart - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Operation operation = schedule[(int) (i % schedule.length)];
+            OperationStats operationStats = stats.get(operation);
+            inFlight.add(send(operation).handle((response, error) -> {
+                operationStats.record(intendedStart, error == null ? response.statusCode() : -1);
+                if (error == null) {
+                    onResponse(operation, response);
+                }
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).get(1, TimeUnit.MINUTES);
+        return stats;
+    }
+
+    /**
+     * Запоминает идентификаторы добавленных студентов, чтобы следующие запросы работали и с ними.
+     */
+    private void onResponse(Operation operation, HttpResponse<String> response) {
+        if (operation != Operation.POST || response.statusCode() != 201) {
+            return;
+        }
+        try {
+            for (JsonNode student : objectMapper.readTree(response.body())) {
+                synchronized (ids) {
+                    ids.add(student.get("id").asInt());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("log: Не удалось разобрать ответ на добавление студента: {}", e.getMessage());
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(Operation operation) {
+        HttpRequest httpRequest = switch (operation) {
+            case GET -> request("/students/" + randomId()).GET().build();
+            case POST -> request("/students")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "[" + String.format(STUDENT_JSON, ThreadLocalRandom.current().nextInt(18, 28)) + "]"))
+                    .build();
+            case PATCH -> request("/students/" + randomId())
+                    .header("Content-Type", "application/json")
+                    .header("Prefer", "return=minimal")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                            "{\"age\":" + ThreadLocalRandom.current().nextInt(18, 28) + "}"))
+                    .build();
+            case DELETE -> request("/students/" + takeId()).DELETE().build();
+        };
+        return httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).timeout(Duration.ofSeconds(30));
+    }
+
+    private int randomId() {
+        synchronized (ids) {
+            return ids.isEmpty() ? 0 : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        }
+    }
+
+    private int takeId() {
+        synchronized (ids) {
+            return ids.isEmpty() ? 0 : ids.remove(ThreadLocalRandom.current().nextInt(ids.size()));
+        }
+    }
+
+    /**
+     * Записывает отчёт и распределения времени ответа.
+     *
+     * @return доля ответов 5xx и сетевых ошибок.
+     */
+    private double writeReport(Map<Operation, OperationStats> stats, double elapsedSeconds) throws IOException {
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+        long totalClientErrors = 0;
+        Map<String, Object> operations = new LinkedHashMap<>();
+        Path directory = report.toAbsolutePath().getParent();
+        String histogramPrefix = report.getFileName().toString().replaceFirst("-report\\.json$|\\.json$", "");
+        Files.createDirectories(directory);
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats operationStats = entry.getValue();
+            total.add(operationStats.latency);
+            totalErrors += operationStats.errors.get();
+            totalClientErrors += operationStats.clientErrors.get();
+            operations.put(entry.getKey().name(), summary(operationStats.latency, operationStats.errors.get(),
+                    operationStats.clientErrors.get(), elapsedSeconds));
+            writeHistogram(directory.resolve(histogramPrefix + "-" + entry.getKey().name().toLowerCase() + ".hgrm"),
+                    operationStats.latency);
+        }
+        writeHistogram(directory.resolve(histogramPrefix + "-total.hgrm"), total);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("stack", webApplicationType.toLowerCase());
+        result.put("threads", virtualThreads ? "virtual" : "platform");
+        result.put("targetRate", rate);
+        result.put("durationSeconds", elapsedSeconds);
+        result.put("mix", mix);
+        result.put("total", summary(total, totalErrors, totalClientErrors, elapsedSeconds));
+        result.put("jvm", jvmSummary());
+        result.put("operations", operations);
+        objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), result);
+        log.warn("log: Отчёт нагрузочного теста записан в {}", report.toAbsolutePath());
+        return total.getTotalCount() == 0 ? 0 : (double) totalErrors / total.getTotalCount();
+    }
+
+    private static Map<String, Object> summary(Histogram latency, long errors, long clientErrors, double seconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", latency.getTotalCount());
+        summary.put("throughput", latency.getTotalCount() / seconds);
+        summary.put("errors", errors);
+        summary.put("errorRate", latency.getTotalCount() == 0 ? 0 : (double) errors / latency.getTotalCount());
+        summary.put("clientErrors", clientErrors);
+        summary.put("p50Millis", latency.getValueAtPercentile(50) / 1000.0);
+        summary.put("p90Millis", latency.getValueAtPercentile(90) / 1000.0);
+        summary.put("p99Millis", latency.getValueAtPercentile(99) / 1000.0);
+        summary.put("p999Millis", latency.getValueAtPercentile(99.9) / 1000.0);
+        summary.put("maxMillis", latency.getMaxValue() / 1000.0);
+        return summary;
+    }
+
+    /**
+     * Наибольшее число потоков JVM за время теста и занятая куча. Клиент и сервер работают в одной JVM,
+     * поэтому значения сравнимы только между отчётами, полученными при одинаковых параметрах нагрузки.
+     */
+    private static Map<String, Object> jvmSummary() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("peakThreads", ManagementFactory.getThreadMXBean().getPeakThreadCount());
+        summary.put("heapUsedMegabytes", memory.getHeapMemoryUsage().getUsed() / (1024.0 * 1024.0));
+        return summary;
+    }
+
+    private static void writeHistogram(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), true, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+}
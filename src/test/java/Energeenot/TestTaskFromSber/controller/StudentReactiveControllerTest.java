@@ -0,0 +1,128 @@
+package Energeenot.TestTaskFromSber.controller;
+
+import Energeenot.TestTaskFromSber.config.StudentRequestLog;
+import Energeenot.TestTaskFromSber.dto.StudentPage;
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.service.StudentReactiveService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(StudentReactiveController.class)
+@ActiveProfiles("reactive")
+class StudentReactiveControllerTest {
+
+    @MockBean
+    private StudentReactiveService studentService;
+    @MockBean
+    private StudentRequestLog requestLog;
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private final Student student = Student.builder()
+            .id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).version(3).build();
+
+    @Test
+    void getStudentByIdShouldReturnETagAndNotModified() {
+        when(studentService.getStudentById(1)).thenReturn(Mono.just(student));
+
+        webTestClient.get().uri("/students/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody().jsonPath("$.surname").isEqualTo("Иванов");
+        webTestClient.get().uri("/students/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void getStudentByIdShouldReturnNotFound() {
+        when(studentService.getStudentById(2))
+                .thenReturn(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Студент не найден")));
+
+        webTestClient.get().uri("/students/2")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void getStudentsPageShouldReturnNextCursor() {
+        when(studentService.getStudentsPage(null, 1)).thenReturn(Mono.just(new StudentPage<>(List.of(student), 1)));
+
+        webTestClient.get().uri("/students?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.nextCursor").isEqualTo(1);
+    }
+
+    @Test
+    void exportStudentsShouldStreamNdjson() {
+        when(studentService.exportStudents()).thenReturn(Flux.just(student, student));
+
+        Flux<Student> body = webTestClient.get().uri("/students/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Student.class)
+                .getResponseBody();
+
+        StepVerifier.create(body).expectNextCount(2).verifyComplete();
+    }
+
+    @Test
+    void createStudentShouldReturnCreated() {
+        when(studentService.addStudent(any())).thenReturn(Flux.just(student));
+
+        webTestClient.post().uri("/students")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"surname\":\"Иванов\",\"name\":\"Иван\",\"age\":20,\"averageMark\":4.5}]")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$[0].id").isEqualTo(1);
+    }
+
+    @Test
+    void updateStudentShouldPassIfMatchVersion() {
+        when(studentService.updateStudent(eq(1), any(StudentPatch.class), eq(3L))).thenReturn(Mono.empty());
+
+        webTestClient.patch().uri("/students/1")
+                .header("Prefer", "return=minimal")
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"age\":21}")
+                .exchange()
+                .expectStatus().isNoContent();
+        verify(studentService).updateStudent(eq(1), any(StudentPatch.class), eq(3L));
+    }
+
+    @Test
+    void deleteStudentShouldReturnPreconditionFailed() {
+        when(studentService.deleteStudent(1, 2L)).thenReturn(Mono.error(
+                new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Студент изменён другим запросом")));
+
+        webTestClient.delete().uri("/students/1")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+}
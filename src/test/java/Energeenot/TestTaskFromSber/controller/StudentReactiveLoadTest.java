@@ -0,0 +1,24 @@
+package Energeenot.TestTaskFromSber.controller;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * {@link StudentLoadTest} для реактивного варианта API: WebFlux на Netty и R2DBC.
+ * <p>
+ *     Нагрузка и параметры те же, отчёт записывается в {@code target/loadtest-reactive-report.json},
+ *     распределения времени ответа — в файлы {@code loadtest-reactive-*.hgrm}; путь меняется параметром
+ *     {@code -Dloadtest.reactive-report}. Число потоков и занятая память в отчёте сравниваются с отчётами
+ *     {@link StudentLoadTest} и {@link StudentVirtualThreadLoadTest} при одной и той же интенсивности.
+ * </p>
+ */
+@ActiveProfiles("reactive")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive-loadtest;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive-loadtest;DB_CLOSE_DELAY=-1",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:db/reactive/schema-h2.sql",
+        "loadtest.report=${loadtest.reactive-report:target/loadtest-reactive-report.json}"
+})
+class StudentReactiveLoadTest extends StudentLoadTest {
+}
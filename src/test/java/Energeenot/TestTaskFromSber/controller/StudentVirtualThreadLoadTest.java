@@ -0,0 +1,20 @@
+package Energeenot.TestTaskFromSber.controller;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * {@link StudentLoadTest} в режиме обработки запросов виртуальными потоками.
+ * <p>
+ *     Нагрузка и параметры те же, отчёт записывается в {@code target/loadtest-virtual-report.json},
+ *     распределения времени ответа — в файлы {@code loadtest-virtual-*.hgrm}; путь меняется параметром
+ *     {@code -Dloadtest.virtual-report}. Встроенная H2 синхронизирует доступ к базе мониторами и не ждёт сети,
+ *     поэтому на ней сравнение показывает в основном издержки Tomcat и планировщика, а выигрыш виртуальных потоков
+ *     на медленных ответах базы виден слабее, чем на PostgreSQL.
+ * </p>
+ */
+@TestPropertySource(properties = {
+        "spring.threads.virtual.enabled=true",
+        "loadtest.report=${loadtest.virtual-report:target/loadtest-virtual-report.json}"
+})
+class StudentVirtualThreadLoadTest extends StudentLoadTest {
+}
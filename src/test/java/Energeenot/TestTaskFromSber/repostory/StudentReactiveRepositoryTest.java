@@ -0,0 +1,110 @@
+package Energeenot.TestTaskFromSber.repostory;
+
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentReactiveRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.util.StreamUtils;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataR2dbcTest
+@ActiveProfiles("reactive")
+@Import(StudentReactiveRepository.class)
+@TestPropertySource(properties = "spring.r2dbc.url=r2dbc:h2:mem:///reactive-repository;DB_CLOSE_DELAY=-1")
+class StudentReactiveRepositoryTest {
+
+    @Autowired
+    private StudentReactiveRepository studentRepository;
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        String schema = StreamUtils.copyToString(
+                new ClassPathResource("db/reactive/schema-h2.sql").getInputStream(), StandardCharsets.UTF_8);
+        databaseClient.sql(schema).then()
+                .then(databaseClient.sql("DELETE FROM student").then())
+                .block();
+    }
+
+    @Test
+    void insertShouldAssignIdAndInitialVersion() {
+        Student saved = studentRepository.insert(student("Иванов", null)).block();
+
+        assertNotNull(saved);
+        assertTrue(saved.getId() > 0);
+        assertEquals(0, saved.getVersion());
+        StepVerifier.create(studentRepository.findById(saved.getId()))
+                .assertNext(found -> {
+                    assertEquals("Иванов", found.getSurname());
+                    assertNull(found.getPatronymic());
+                    assertEquals(4.5, found.getAverageMark());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void findByIdGreaterThanShouldReturnNextPageInIdOrder() {
+        List<Integer> ids = insert("Иванов", "Петров", "Сидоров");
+
+        StepVerifier.create(studentRepository.findByIdGreaterThan(ids.get(0), 10).map(Student::getId))
+                .expectNext(ids.get(1), ids.get(2))
+                .verifyComplete();
+        StepVerifier.create(studentRepository.findAllOrderById(2).map(Student::getId))
+                .expectNext(ids.get(0), ids.get(1))
+                .verifyComplete();
+    }
+
+    @Test
+    void updatePartiallyShouldIncrementVersionAndCheckExpectedVersion() {
+        int id = insert("Иванов").get(0);
+        StudentPatch patch = StudentPatch.builder().age(30).build();
+
+        StepVerifier.create(studentRepository.updatePartially(id, 0L, patch)).expectNext(1L).verifyComplete();
+        StepVerifier.create(studentRepository.updatePartially(id, 0L, patch)).expectNext(0L).verifyComplete();
+        StepVerifier.create(studentRepository.findById(id))
+                .assertNext(found -> {
+                    assertEquals(30, found.getAge());
+                    assertEquals(1, found.getVersion());
+                    assertEquals("Иванов", found.getSurname());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void deleteShouldRespectExpectedVersion() {
+        List<Integer> ids = insert("Иванов", "Петров", "Сидоров");
+
+        StepVerifier.create(studentRepository.deleteById(ids.get(0), 5L)).expectNext(0L).verifyComplete();
+        StepVerifier.create(studentRepository.deleteById(ids.get(0), 0L)).expectNext(1L).verifyComplete();
+        StepVerifier.create(studentRepository.deleteByIds(List.of(ids.get(1), ids.get(2), -1))).expectNext(2L).verifyComplete();
+        StepVerifier.create(studentRepository.streamAll()).verifyComplete();
+    }
+
+    private List<Integer> insert(String... surnames) {
+        return Flux.fromArray(surnames)
+                .concatMap(surname -> studentRepository.insert(student(surname, "Иванович")))
+                .map(Student::getId)
+                .collectList()
+                .block();
+    }
+
+    private static Student student(String surname, String patronymic) {
+        return Student.builder().surname(surname).name("Иван").patronymic(patronymic).age(20).averageMark(4.5).build();
+    }
+}
@@ -1,15 +1,25 @@
 package Energeenot.TestTaskFromSber.repostory;
 
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
 import Energeenot.TestTaskFromSber.model.Student;
 import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import Energeenot.TestTaskFromSber.repository.StudentSnapshot;
+import Energeenot.TestTaskFromSber.repository.StudentUpdate;
+import org.hibernate.Session;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,6 +29,8 @@ class StudentRepositoryTest {
 
     @Autowired
     private StudentRepository studentRepository;
+    @Autowired
+    private TestEntityManager testEntityManager;
     private Student testStudent;
 
     @BeforeEach
@@ -66,6 +78,64 @@ class StudentRepositoryTest {
         assertEquals(List.of(testStudent).size(), studentRepository.findAll().size());
     }
 
+    @Test
+    void keysetQueriesShouldReturnStudentsAfterCursorInIdOrder() {
+        Student secondStudent = studentRepository.save(Student.builder()
+                .surname("Петров")
+                .name("Пётр")
+                .age(22)
+                .averageMark(4.2)
+                .build());
+        Student thirdStudent = studentRepository.save(Student.builder()
+                .surname("Сидоров")
+                .name("Алексей")
+                .age(23)
+                .averageMark(3.9)
+                .build());
+
+        List<Student> firstPage = studentRepository.findAllByOrderByIdAsc(Limit.of(2));
+        assertEquals(List.of(testStudent.getId(), secondStudent.getId()),
+                firstPage.stream().map(Student::getId).toList());
+
+        List<Student> nextPage = studentRepository.findByIdGreaterThanOrderByIdAsc(secondStudent.getId(), Limit.of(2));
+        assertEquals(List.of(thirdStudent.getId()), nextPage.stream().map(Student::getId).toList());
+    }
+
+    @Test
+    void streamAllShouldReturnAllStudentsInIdOrder() {
+        Student secondStudent = studentRepository.save(Student.builder()
+                .surname("Петров")
+                .name("Пётр")
+                .age(22)
+                .averageMark(4.2)
+                .build());
+
+        try (Stream<Student> students = studentRepository.streamAllByOrderByIdAsc()) {
+            assertEquals(List.of(testStudent.getId(), secondStudent.getId()),
+                    students.map(Student::getId).toList());
+        }
+    }
+
+    @Test
+    void findFieldsShouldReturnOnlyRequestedAndSortFieldsWithoutManagedEntities() {
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<Map<String, Object>> rows = studentRepository.findFields(List.of("surname", "averageMark"), null,
+                Sort.by("id"), 10);
+
+        assertEquals(List.of(Map.of("surname", "Иванов", "averageMark", 4.50, "id", testStudent.getId())), rows);
+        assertEquals(List.of("surname", "averageMark", "id"), List.copyOf(rows.get(0).keySet()));
+        assertEquals(0, testEntityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void findFieldsShouldRejectUnknownField() {
+        InvalidDataAccessApiUsageException exception = assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> studentRepository.findFields(List.of("password"), null, Sort.unsorted(), 10));
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+    }
+
     @Test
     void findByIdShouldReturnStudent() {
         Optional<Student> student = studentRepository.findById(testStudent.getId());
@@ -86,6 +156,113 @@ class StudentRepositoryTest {
         assertEquals(23, updatedStudent.getAge());
     }
 
+    @Test
+    void updatePartiallyShouldUpdateOnlyPassedFields() {
+        testEntityManager.flush();
+        StudentUpdate update = studentRepository.updatePartially(testStudent.getId(), null, StudentPatch.builder()
+                .name("Пётр")
+                .averageMark(3.5)
+                .build()).orElseThrow();
+        testEntityManager.clear();
+
+        Student updated = update.student();
+        assertEquals(new StudentSnapshot(testStudent.getId(), 21, testStudent.getAverageMark()), update.before());
+
+        Student updatedStudent = studentRepository.findById(testStudent.getId()).orElseThrow();
+        assertEquals("Пётр", updated.getName());
+        assertEquals(updatedStudent.getVersion(), updated.getVersion());
+        assertEquals(updatedStudent.getPatronymic(), updated.getPatronymic());
+        assertEquals("Пётр", updatedStudent.getName());
+        assertEquals(3.5, updatedStudent.getAverageMark());
+        assertEquals("Иванов", updatedStudent.getSurname());
+        assertEquals(21, updatedStudent.getAge());
+    }
+
+    @Test
+    void updatePartiallyShouldIncrementVersionAndCheckExpectedVersion() {
+        testEntityManager.flush();
+        long version = testStudent.getVersion();
+
+        assertTrue(studentRepository.updatePartially(testStudent.getId(), version + 1,
+                StudentPatch.builder().age(30).build()).isEmpty());
+        assertEquals(version + 1, studentRepository.updatePartially(testStudent.getId(), version,
+                StudentPatch.builder().age(30).build()).orElseThrow().student().getVersion());
+        testEntityManager.clear();
+
+        assertEquals(version + 1, studentRepository.findById(testStudent.getId()).orElseThrow().getVersion());
+        assertTrue(studentRepository.deleteStudent(testStudent.getId(), version).isEmpty());
+        assertEquals(new StudentSnapshot(testStudent.getId(), 30, testStudent.getAverageMark()),
+                studentRepository.deleteStudent(testStudent.getId(), version + 1).orElseThrow());
+    }
+
+    @Test
+    void updatePartiallyShouldReturnEmptyIfStudentNotExist() {
+        assertTrue(studentRepository.updatePartially(testStudent.getId() + 1000, null, StudentPatch.builder()
+                .age(30)
+                .build()).isEmpty());
+    }
+
+    @Test
+    void updatePartiallyShouldClearPatronymicOnlyWhenPassed() {
+        testEntityManager.flush();
+        StudentPatch namePatch = StudentPatch.builder().name("Пётр").build();
+        StudentPatch clearPatronymic = new StudentPatch();
+        clearPatronymic.setPatronymic(null);
+
+        assertNotNull(studentRepository.updatePartially(testStudent.getId(), null, namePatch).orElseThrow().student().getPatronymic());
+        assertNull(studentRepository.updatePartially(testStudent.getId(), null, clearPatronymic).orElseThrow().student().getPatronymic());
+        testEntityManager.clear();
+
+        assertNull(studentRepository.findById(testStudent.getId()).orElseThrow().getPatronymic());
+    }
+
+    @Test
+    void deleteStudentShouldReturnDeletedRow() {
+        testEntityManager.flush();
+        assertEquals(new StudentSnapshot(testStudent.getId(), 21, testStudent.getAverageMark()),
+                studentRepository.deleteStudent(testStudent.getId(), null).orElseThrow());
+        assertTrue(studentRepository.deleteStudent(testStudent.getId(), null).isEmpty());
+        assertFalse(studentRepository.existsById(testStudent.getId()));
+    }
+
+    @Test
+    void deleteStudentsShouldReturnOnlyDeletedStudents() {
+        Student secondStudent = studentRepository.save(Student.builder()
+                .surname("Петров")
+                .name("Пётр")
+                .age(22)
+                .averageMark(4.2)
+                .build());
+        testEntityManager.flush();
+
+        List<StudentSnapshot> deleted =
+                studentRepository.deleteStudents(List.of(testStudent.getId(), secondStudent.getId(), -1));
+        testEntityManager.clear();
+
+        assertEquals(List.of(testStudent.getId(), secondStudent.getId()),
+                deleted.stream().map(StudentSnapshot::id).sorted().toList());
+        assertTrue(deleted.contains(new StudentSnapshot(secondStudent.getId(), 22, 4.2)));
+        assertEquals(0, studentRepository.count());
+    }
+
+    @Test
+    void countByAgeAndAverageMarkShouldReturnGroupCounts() {
+        studentRepository.save(Student.builder().surname("Петров").name("Пётр").age(21).averageMark(4.5).build());
+        studentRepository.save(Student.builder()
+                .surname("Сидоров")
+                .name("Алексей")
+                .age(22)
+                .averageMark(3.9)
+                .build());
+        testEntityManager.flush();
+
+        List<Object[]> groups = studentRepository.countByAgeAndAverageMark();
+
+        assertEquals(2, groups.size());
+        assertTrue(groups.stream().anyMatch(group -> ((Number) group[0]).intValue() == 21
+                && ((Number) group[1]).doubleValue() == 4.5 && ((Number) group[2]).longValue() == 2));
+    }
+
     @Test
     void deleteShouldDeleteStudent() {
         assertTrue(studentRepository.existsById(testStudent.getId()));
@@ -0,0 +1,162 @@
+package Energeenot.TestTaskFromSber.repostory;
+
+import Energeenot.TestTaskFromSber.dto.StudentSearchCriteria;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentKeyset;
+import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import Energeenot.TestTaskFromSber.repository.StudentSpecifications;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Поиск студентов по условиям {@link StudentSpecifications} и keyset-курсору {@link StudentKeyset}.
+ * Использование индексов проверяется по плану H2 для того SQL, который Hibernate формирует из спецификаций.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "Energeenot.TestTaskFromSber.repostory.StudentSearchTest$RecordingStatementInspector")
+class StudentSearchTest {
+
+    /**
+     * Запоминает SQL, отправляемый Hibernate в базу.
+     */
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @BeforeEach
+    void setUp() {
+        studentRepository.saveAll(List.of(
+                student("Иванов", "Иван", 21, 4.50),
+                student("Иванова", "Мария", 20, 4.80),
+                student("Петров", "Пётр", 22, 3.40),
+                student("Сидоров", "Алексей", 22, 4.00),
+                student("Ива_нов", "Олег", 23, 3.90)));
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void matchingShouldFilterBySurnamePrefixAndEscapeWildcards() {
+        List<Student> byPrefix = search(StudentSearchCriteria.builder().surname("Иванов").build(), "surname");
+        List<Student> byWildcard = search(StudentSearchCriteria.builder().surname("Ива_").build(), "surname");
+
+        assertEquals(List.of("Иванов", "Иванова"), byPrefix.stream().map(Student::getSurname).toList());
+        assertEquals(List.of("Ива_нов"), byWildcard.stream().map(Student::getSurname).toList());
+    }
+
+    @Test
+    void matchingShouldFilterByAgeAndMarkRanges() {
+        StudentSearchCriteria criteria = StudentSearchCriteria.builder()
+                .minAge(21).maxAge(22).minMark(4.0).build();
+
+        List<Student> students = search(criteria, "-averageMark");
+
+        assertEquals(List.of(4.50, 4.00), students.stream().map(Student::getAverageMark).toList());
+    }
+
+    @Test
+    void keysetShouldWalkAllPagesWithoutGapsOrDuplicates() {
+        StudentKeyset keyset = StudentKeyset.parse("age");
+        List<Integer> ages = new ArrayList<>();
+        String cursor = null;
+        do {
+            Specification<Student> specification = StudentSpecifications.matching(new StudentSearchCriteria());
+            if (cursor != null) {
+                specification = specification.and(keyset.after(cursor));
+            }
+            List<Student> page = studentRepository.findBy(specification,
+                    query -> query.sortBy(keyset.toSort()).limit(2).all());
+            page.forEach(student -> ages.add(student.getAge()));
+            cursor = page.size() < 2 ? null : keyset.cursorOf(page.get(1));
+        } while (cursor != null);
+
+        assertEquals(List.of(20, 21, 22, 22, 23), ages);
+    }
+
+    @Test
+    void keysetShouldRejectCursorOfAnotherSort() {
+        Student student = studentRepository.findAll().get(0);
+        String cursor = StudentKeyset.parse("name").cursorOf(student);
+
+        assertThrows(IllegalArgumentException.class, () -> StudentKeyset.parse("surname").after(cursor));
+        assertThrows(IllegalArgumentException.class, () -> StudentKeyset.parse("patronymic"));
+    }
+
+    @Test
+    void searchByPrefixShouldUseIndex() {
+        assertUsesIndex(StudentSearchCriteria.builder().surname("Иван").build(), "surname");
+    }
+
+    @Test
+    void searchByAgeAndMarkShouldUseIndex() {
+        assertUsesIndex(StudentSearchCriteria.builder().minAge(20).maxAge(22).minMark(4.0).build(), "age");
+    }
+
+    @Test
+    void searchByMarkShouldUseIndex() {
+        assertUsesIndex(StudentSearchCriteria.builder().minMark(4.0).build(), "averageMark");
+    }
+
+    private List<Student> search(StudentSearchCriteria criteria, String sort) {
+        return studentRepository.findBy(StudentSpecifications.matching(criteria),
+                query -> query.sortBy(StudentKeyset.parse(sort).toSort()).all());
+    }
+
+    /**
+     * Выполняет поиск так же, как {@code StudentService.searchStudents}, и проверяет план запроса,
+     * который Hibernate отправил в базу.
+     */
+    private void assertUsesIndex(StudentSearchCriteria criteria, String sort) {
+        RecordingStatementInspector.STATEMENTS.clear();
+        studentRepository.findBy(StudentSpecifications.matching(criteria),
+                query -> query.sortBy(StudentKeyset.parse(sort).toSort()).limit(3).all());
+        List<String> statements = RecordingStatementInspector.STATEMENTS;
+        assertEquals(1, statements.size(), statements::toString);
+
+        String plan = testEntityManager.getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("EXPLAIN " + statements.get(0))) {
+                resultSet.next();
+                return resultSet.getString(1);
+            }
+        });
+
+        assertTrue(plan.contains("IDX_STUDENT_"), plan);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+
+    private static Student student(String surname, String name, int age, double averageMark) {
+        return Student.builder()
+                .surname(surname)
+                .name(name)
+                .age(age)
+                .averageMark(averageMark)
+                .build();
+    }
+}
@@ -0,0 +1,114 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сравнение скорости массового добавления студентов в H2.
+ * <p>
+ *     "До" — построчная вставка с отдельным обращением к базе на каждого студента, как при стратегии
+ *     {@code IDENTITY}. "После" — {@link StudentService#addStudent(List)} с пакетной отправкой INSERT.
+ *     Запуск: {@code mvn test -Pbenchmark}.
+ * </p>
+ */
+@Tag("benchmark")
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class StudentBulkInsertBenchmarkTest {
+
+    @Autowired
+    private StudentService studentService;
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private EntityManager entityManager;
+    private Statistics statistics;
+
+    @TestConfiguration
+    @EnableConfigurationProperties(StudentProperties.class)
+    @ImportAutoConfiguration(ValidationAutoConfiguration.class)
+    @Import({StudentService.class, StudentCache.class, StudentEventOutbox.class, StudentChangeFeed.class,
+            StudentStatisticsAggregate.class, StudentNameIndex.class,
+            StudentRequestCoalescer.class})
+    static class BenchmarkConfiguration {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000, 10_000, 100_000})
+    void compareRowByRowAndBatchedInserts(int rows) {
+        statistics.clear();
+        long start = System.nanoTime();
+        for (Student student : generateStudents(rows)) {
+            studentRepository.saveAndFlush(student);
+            entityManager.detach(student);
+        }
+        long rowByRowNanos = System.nanoTime() - start;
+        long rowByRowStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        start = System.nanoTime();
+        List<Student> saved = studentService.addStudent(generateStudents(rows));
+        long batchedNanos = System.nanoTime() - start;
+        long batchedStatements = statistics.getPrepareStatementCount();
+
+        log.info("log: {} строк: построчно {} строк/с ({} запросов), пакетно {} строк/с ({} запросов)",
+                rows, rowsPerSecond(rows, rowByRowNanos), rowByRowStatements,
+                rowsPerSecond(rows, batchedNanos), batchedStatements);
+
+        assertEquals(rows, saved.size());
+        assertTrue(batchedStatements * 10 < rows, "вставки должны отправляться пакетами");
+    }
+
+    private static List<Student> generateStudents(int rows) {
+        List<Student> students = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            students.add(Student.builder()
+                    .surname("Фамилия" + i)
+                    .name("Имя" + i)
+                    .patronymic("Отчество" + i)
+                    .age(18 + i % 10)
+                    .averageMark(1.0 + (i % 401) / 100.0)
+                    .build());
+        }
+        return students;
+    }
+
+    private static long rowsPerSecond(int rows, long nanos) {
+        return rows * 1_000_000_000L / Math.max(nanos, 1);
+    }
+}
@@ -0,0 +1,110 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.model.Student;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentCacheTest {
+
+    private final Student student = Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+
+    @Test
+    void getShouldLoadOnceAndCountHitsAndMisses() {
+        StudentCache studentCache = new StudentCache(new StudentProperties());
+        AtomicInteger loads = new AtomicInteger();
+
+        studentCache.get(1, id -> {
+            loads.incrementAndGet();
+            return Optional.of(student);
+        });
+        Optional<Student> cached = studentCache.get(1, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertEquals(Optional.of(student), cached);
+        assertEquals(1, loads.get());
+        assertEquals(1, studentCache.statistics().getHits());
+        assertEquals(1, studentCache.statistics().getMisses());
+    }
+
+    @Test
+    void bindToShouldPublishCacheMeters() {
+        StudentCache studentCache = new StudentCache(new StudentProperties());
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        studentCache.bindTo(meterRegistry);
+
+        studentCache.get(1, id -> Optional.of(student));
+        studentCache.get(1, id -> Optional.of(student));
+
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", "students", "result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", "students", "result", "miss").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.size").tags("cache", "students").gauge().value());
+    }
+
+    @Test
+    void invalidateInTransactionShouldRemoveEntryOnlyAfterCommit() {
+        StudentCache studentCache = new StudentCache(new StudentProperties());
+        AtomicInteger loads = new AtomicInteger();
+        studentCache.get(1, id -> Optional.of(student));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            studentCache.invalidate(1);
+            studentCache.get(1, id -> {
+                loads.incrementAndGet();
+                return Optional.of(student);
+            });
+            assertEquals(0, loads.get());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        studentCache.get(1, id -> {
+            loads.incrementAndGet();
+            return Optional.of(student);
+        });
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void failedLoadShouldNotBeCached() {
+        StudentCache studentCache = new StudentCache(new StudentProperties());
+
+        assertThrows(IllegalStateException.class, () -> studentCache.get(1, id -> {
+            throw new IllegalStateException("база недоступна");
+        }));
+        Optional<Student> loaded = studentCache.get(1, id -> Optional.of(student));
+
+        assertEquals(Optional.of(student), loaded);
+    }
+
+    @Test
+    void disabledCacheShouldAlwaysCallLoader() {
+        StudentProperties studentProperties = new StudentProperties();
+        studentProperties.getCache().setEnabled(false);
+        StudentCache studentCache = new StudentCache(studentProperties);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            studentCache.get(1, id -> {
+                loads.incrementAndGet();
+                return Optional.of(student);
+            });
+        }
+
+        assertEquals(3, loads.get());
+        assertFalse(studentCache.statistics().isEnabled());
+    }
+}
@@ -0,0 +1,109 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.dto.ImportResult;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "students.insert.import-chunk-size=2")
+class StudentImportServiceTest {
+
+    @Autowired
+    private StudentImportService studentImportService;
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TestConfiguration
+    @EnableConfigurationProperties(StudentProperties.class)
+    @ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+    @Import({StudentService.class, StudentImportService.class, StudentCache.class, StudentEventOutbox.class,
+            StudentChangeFeed.class, StudentStatisticsAggregate.class, StudentNameIndex.class,
+            StudentRequestCoalescer.class})
+    static class ImportConfiguration {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Test
+    void importCsvShouldInsertValidRowsAndRejectInvalidOnes() throws Exception {
+        String csv = """
+                surname,name,patronymic,age,averageMark
+                Иванов,Иван,Иванович,20,4.5
+                "Петров, младший",Пётр,,22,4.2
+
+                Сидоров,Алексей,Александрович,21,7.5
+                Смирнов,,Сергеевич,23,3.3
+                Кузнецов,Кузьма,Кузьмич,двадцать,4.0
+                "Орлов,Олег,Олегович,24,4.1
+                Попов,Павел,Павлович,19,3.8
+                """;
+
+        ImportResult result = studentImportService.importStudents(toStream(csv), StudentImportService.Format.CSV);
+
+        assertEquals(3, result.getImported());
+        assertEquals(4, result.getRejected());
+        List<Student> students = studentRepository.findAll();
+        assertEquals(3, students.size());
+        assertTrue(students.stream().anyMatch(student -> "Петров, младший".equals(student.getSurname())
+                && student.getPatronymic() == null));
+    }
+
+    @Test
+    void importNdjsonShouldInsertValidRowsAndRejectInvalidOnes() throws Exception {
+        String ndjson = """
+                {"surname":"Иванов","name":"Иван","patronymic":"Иванович","age":20,"averageMark":4.5}
+                {"surname":"Петров","name":"Пётр","age":22,"averageMark":0.5}
+                не json
+                {"id":100,"surname":"Сидоров","name":"Алексей","age":21,"averageMark":3.9}
+                """;
+
+        ImportResult result = studentImportService.importStudents(toStream(ndjson), StudentImportService.Format.NDJSON);
+
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals(2, studentRepository.count());
+    }
+
+    @Test
+    void allocateIdsShouldTakeOneSequenceValuePerBlock() {
+        long before = jdbcTemplate.queryForObject("SELECT nextval('student_id_seq')", Long.class);
+
+        List<Integer> ids = studentImportService.allocateIds(2 * StudentImportService.ID_BLOCK_SIZE + 20);
+        long after = jdbcTemplate.queryForObject("SELECT nextval('student_id_seq')", Long.class);
+
+        assertEquals(2 * StudentImportService.ID_BLOCK_SIZE + 20, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(before + 1 + i, ids.get(i).longValue());
+        }
+        assertEquals(before + 4 * StudentImportService.ID_BLOCK_SIZE, after);
+    }
+
+    private static InputStream toStream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
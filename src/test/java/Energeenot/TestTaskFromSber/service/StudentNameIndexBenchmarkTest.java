@@ -0,0 +1,93 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Задержка нечёткого поиска по индексу {@link StudentNameIndex} на миллионе студентов.
+ * <p>
+ *     ФИО составляются из наборов реальных фамилий, имён и отчеств с числовым суффиксом фамилии, запросы —
+ *     фамилии с одной пропущенной буквой. Для сравнения измеряется полный перебор ФИО с {@code contains},
+ *     аналог {@code LIKE '%...%'} без опечаток. Запуск: {@code mvn test -Pbenchmark}.
+ * </p>
+ */
+@Tag("benchmark")
+@Slf4j
+class StudentNameIndexBenchmarkTest {
+
+    private static final int STUDENTS = 1_000_000;
+    private static final int QUERIES = 500;
+    private static final String[] SURNAMES = {"Иванов", "Петров", "Сидоров", "Кузнецов", "Смирнов", "Попов",
+            "Васильев", "Соколов", "Михайлов", "Новиков", "Фёдоров", "Морозов", "Волков", "Алексеев", "Лебедев"};
+    private static final String[] NAMES = {"Иван", "Пётр", "Алексей", "Сергей", "Дмитрий", "Андрей", "Мария",
+            "Анна", "Елена", "Ольга"};
+    private static final String[] PATRONYMICS = {"Иванович", "Петрович", "Сергеевич", "Андреевич", "Дмитриевич"};
+
+    @Test
+    void searchLatencyOnMillionStudents() {
+        StudentRepository studentRepository = mock(StudentRepository.class);
+        when(studentRepository.streamNames()).thenReturn(IntStream.range(0, STUDENTS)
+                .mapToObj(i -> new Object[]{i + 1, surname(i), NAMES[i % NAMES.length],
+                        PATRONYMICS[i % PATRONYMICS.length]}));
+        StudentNameIndex index = new StudentNameIndex(studentRepository, mock(PlatformTransactionManager.class),
+                new StudentProperties());
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        index.rebuild();
+        long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.gc();
+        long heapMegabytes = (runtime.totalMemory() - runtime.freeMemory() - heapBefore) >> 20;
+
+        Random random = new Random(42);
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String surname = surname(random.nextInt(STUDENTS));
+            int typo = 1 + random.nextInt(surname.length() - 1);
+            queries[i] = surname.substring(0, typo) + surname.substring(typo + 1);
+        }
+        for (int i = 0; i < 50; i++) {
+            index.search(queries[i], 20);
+        }
+        long[] latencies = new long[QUERIES];
+        List<StudentNameIndex.Match> last = List.of();
+        for (int i = 0; i < QUERIES; i++) {
+            long queryStart = System.nanoTime();
+            last = index.search(queries[i], 20);
+            latencies[i] = System.nanoTime() - queryStart;
+        }
+        Arrays.sort(latencies);
+
+        long scanStart = System.nanoTime();
+        long scanned = IntStream.range(0, STUDENTS).filter(i -> surname(i).contains(queries[0])).count();
+        long scanMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scanStart);
+
+        log.info("log: Индекс ФИО на {} студентов: построение {} мс, около {} МБ; поиск p50 {} мкс, p99 {} мкс; "
+                        + "перебор с contains {} мкс ({} совпадений)",
+                STUDENTS, buildMillis, heapMegabytes,
+                TimeUnit.NANOSECONDS.toMicros(latencies[QUERIES / 2]),
+                TimeUnit.NANOSECONDS.toMicros(latencies[QUERIES * 99 / 100]),
+                scanMicros, scanned);
+        assertFalse(last.isEmpty(), "фамилия с опечаткой должна находиться");
+    }
+
+    private static String surname(int i) {
+        return SURNAMES[i % SURNAMES.length] + (i / SURNAMES.length);
+    }
+}
@@ -0,0 +1,103 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StudentNameIndexTest {
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final StudentNameIndex index = new StudentNameIndex(studentRepository,
+            mock(PlatformTransactionManager.class), new StudentProperties());
+
+    @Test
+    void searchShouldRankStudentsBySharedTrigramsAndTolerateTypos() {
+        when(studentRepository.streamNames()).thenReturn(Stream.of(
+                new Object[]{1, "Иванов", "Иван", "Иванович"},
+                new Object[]{2, "Петров", "Пётр", null},
+                new Object[]{3, "Иванова", "Мария", "Ивановна"}));
+        index.rebuild();
+
+        List<StudentNameIndex.Match> matches = index.search("Ивнов", 10);
+
+        assertEquals(List.of(1, 3), matches.stream().map(StudentNameIndex.Match::studentId).toList());
+        assertEquals(4.0 / 6, matches.get(0).similarity(), 1e-9);
+        assertEquals(2, index.search("петр", 10).get(0).studentId());
+        assertEquals(1, index.search("Ивнов", 1).size());
+        assertTrue(index.search("Сидоров", 10).isEmpty());
+    }
+
+    @Test
+    void trigramsShouldIgnoreCaseAndYo() {
+        assertArrayEquals(StudentNameIndex.trigrams("Пётр"), StudentNameIndex.trigrams("ПЕТР"));
+        assertEquals(5, StudentNameIndex.trigrams("Пётр").length);
+        assertEquals(0, StudentNameIndex.trigrams(" - ").length);
+    }
+
+    @Test
+    void changesShouldBeAppliedOnlyAfterCommit() {
+        when(studentRepository.streamNames()).thenReturn(Stream.empty());
+        index.rebuild();
+        Student student = Student.builder().id(1).surname("Петров").name("Иван").age(20).averageMark(4.5).build();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.recordCreated(List.of(student));
+            assertTrue(index.search("Петров", 10).isEmpty());
+            List<TransactionSynchronization> synchronizations =
+                    new ArrayList<>(TransactionSynchronizationManager.getSynchronizations());
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(1, index.search("Петров", 10).size());
+
+        index.recordUpdated(Student.builder().id(1).surname("Сидоров").name("Иван").age(20).averageMark(4.5).build());
+        // С прежней фамилией совпадают только «ров» и «ов », 2 из 7 триграмм запроса: ниже min-similarity
+        assertTrue(index.search("Петров", 10).isEmpty());
+        assertEquals(1, index.search("Сидоров Иван", 10).get(0).studentId());
+
+        index.recordRemoved(List.of(1));
+        assertTrue(index.search("Сидоров", 10).isEmpty());
+    }
+
+    @Test
+    void compactionShouldKeepSearchResults() {
+        when(studentRepository.streamNames()).thenReturn(IntStream.rangeClosed(1, 100)
+                .mapToObj(id -> new Object[]{id, "Фамилия" + id, "Имя", null}));
+        index.rebuild();
+
+        for (int round = 0; round < 3; round++) {
+            for (int id = 1; id <= 100; id++) {
+                index.recordUpdated(Student.builder().id(id).surname("Фамилия" + id).name("Имя" + round)
+                        .age(20).averageMark(4.0).build());
+            }
+        }
+        index.recordRemoved(IntStream.rangeClosed(1, 90).boxed().toList());
+
+        List<StudentNameIndex.Match> matches = index.search("Фамилия95 Имя2", 100);
+        assertEquals(95, matches.get(0).studentId());
+        assertEquals(1.0, matches.get(0).similarity());
+        assertEquals(10, index.search("Фамилия", 100).size());
+    }
+
+    @Test
+    void searchShouldBeUnavailableBeforeFirstBuild() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> index.search("Иванов", 10));
+        assertEquals(503, exception.getStatusCode().value());
+    }
+}
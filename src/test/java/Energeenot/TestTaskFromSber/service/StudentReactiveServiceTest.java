@@ -0,0 +1,131 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentReactiveRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StudentReactiveServiceTest {
+
+    @InjectMocks
+    private StudentReactiveService studentService;
+    @Mock
+    private StudentReactiveRepository studentRepository;
+    @Spy
+    private StudentProperties studentProperties = new StudentProperties();
+    @Mock
+    private TransactionalOperator transactionalOperator;
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void getStudentsPageShouldReturnCursorWhenMoreRowsExist() {
+        when(studentRepository.findByIdGreaterThan(10, 3))
+                .thenReturn(Flux.just(student(11), student(12), student(13)));
+
+        StepVerifier.create(studentService.getStudentsPage(10, 2))
+                .assertNext(page -> {
+                    assertEquals(2, page.getContent().size());
+                    assertEquals(12, page.getNextCursor());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void getAllStudentsShouldFailWhenRowLimitExceeded() {
+        studentProperties.getPagination().setUnpagedMaxRows(1);
+        when(studentRepository.findAllOrderById(2)).thenReturn(Flux.just(student(1), student(2)));
+
+        StepVerifier.create(studentService.getAllStudents())
+                .expectErrorSatisfies(e -> assertEquals(HttpStatus.BAD_REQUEST, ((ResponseStatusException) e).getStatusCode()))
+                .verify();
+    }
+
+    @Test
+    void getStudentByIdShouldFailWithNotFound() {
+        when(studentRepository.findById(1)).thenReturn(Mono.empty());
+
+        StepVerifier.create(studentService.getStudentById(1))
+                .expectErrorSatisfies(e -> assertEquals(HttpStatus.NOT_FOUND, ((ResponseStatusException) e).getStatusCode()))
+                .verify();
+    }
+
+    @Test
+    void updateStudentShouldFailWithPreconditionFailedWhenVersionDiffers() {
+        StudentPatch patch = StudentPatch.builder().age(25).build();
+        when(studentRepository.updatePartially(1, 3L, patch)).thenReturn(Mono.just(0L));
+        when(studentRepository.existsById(1)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(studentService.updateStudent(1, patch, 3L))
+                .expectErrorSatisfies(e -> assertEquals(HttpStatus.PRECONDITION_FAILED,
+                        ((ResponseStatusException) e).getStatusCode()))
+                .verify();
+    }
+
+    @Test
+    void deleteStudentShouldFailWithNotFoundWithoutVersion() {
+        when(studentRepository.deleteById(1, null)).thenReturn(Mono.just(0L));
+
+        StepVerifier.create(studentService.deleteStudent(1, null))
+                .expectErrorSatisfies(e -> assertEquals(HttpStatus.NOT_FOUND, ((ResponseStatusException) e).getStatusCode()))
+                .verify();
+        verify(studentRepository, never()).existsById(anyInt());
+    }
+
+    @Test
+    void addStudentShouldInsertInsideTransaction() {
+        when(studentRepository.insert(any())).thenAnswer(invocation -> {
+            Student student = invocation.getArgument(0);
+            student.setId(7);
+            return Mono.just(student);
+        });
+        when(transactionalOperator.transactional(ArgumentMatchers.<Flux<Student>>any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        StepVerifier.create(studentService.addStudent(List.of(Student.builder().surname("Иванов").build())))
+                .assertNext(student -> assertEquals(7, student.getId()))
+                .verifyComplete();
+        verify(transactionalOperator).transactional(ArgumentMatchers.<Flux<Student>>any());
+        assertEquals(1, meterRegistry.get("students.insert.size").summary().count());
+    }
+
+    @Test
+    void deleteStudentsShouldDeleteUniqueIdsInBatches() {
+        studentProperties.getDelete().setBatchSize(2);
+        when(studentRepository.deleteByIds(List.of(1, 2))).thenReturn(Mono.just(2L));
+        when(studentRepository.deleteByIds(List.of(3))).thenReturn(Mono.just(0L));
+
+        StepVerifier.create(studentService.deleteStudents(List.of(1, 2, 2, 3)))
+                .assertNext(result -> {
+                    assertEquals(3, result.getRequested());
+                    assertEquals(2, result.getDeleted());
+                })
+                .verifyComplete();
+    }
+
+    private static Student student(int id) {
+        return Student.builder().id(id).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+    }
+}
@@ -0,0 +1,122 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentRequestCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void failureShouldReachAllWaitersAndNotBeRemembered() throws Exception {
+        StudentRequestCoalescer coalescer = coalescer(Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        Future<Object> leader = executor.submit(() -> coalescer.execute("get", 1, () -> {
+            queries.incrementAndGet();
+            await(release);
+            throw new IllegalStateException("база недоступна");
+        }));
+        waitForQueries(queries, 1);
+        Future<Object> follower = executor.submit(() -> coalescer.execute("get", 1, queries::incrementAndGet));
+        waitForCount("coalesced", 1);
+        release.countDown();
+
+        assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, leader::get).getCause());
+        assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, follower::get).getCause());
+        assertEquals(2, (int) coalescer.execute("get", 1, queries::incrementAndGet));
+        assertEquals(2, count("executed"));
+    }
+
+    @Test
+    void waitersShouldTimeOutAndNextCallShouldQueryAgain() throws Exception {
+        StudentRequestCoalescer coalescer = coalescer(Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        executor.submit(() -> coalescer.execute("get", 1, () -> {
+            queries.incrementAndGet();
+            await(release);
+            return "зависший";
+        }));
+        waitForQueries(queries, 1);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> coalescer.execute("get", 1, () -> "не выполняется"));
+        assertEquals(503, exception.getStatusCode().value());
+        assertEquals("новый", coalescer.execute("get", 1, () -> "новый"));
+        assertEquals(1, count("timed-out"));
+        release.countDown();
+    }
+
+    @Test
+    void differentKeysAndInvalidatedQueriesShouldNotBeShared() throws Exception {
+        StudentRequestCoalescer coalescer = coalescer(Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        Future<Object> leader = executor.submit(() -> coalescer.execute("get", 1, () -> {
+            queries.incrementAndGet();
+            await(release);
+            return "до изменения";
+        }));
+        waitForQueries(queries, 1);
+
+        assertEquals("другой", coalescer.execute("get", 2, () -> "другой"));
+        coalescer.invalidate();
+        assertEquals("после изменения", coalescer.execute("get", 1, () -> "после изменения"));
+        release.countDown();
+        assertEquals("до изменения", leader.get(10, TimeUnit.SECONDS));
+        assertEquals(0, count("coalesced"));
+    }
+
+    private StudentRequestCoalescer coalescer(Duration timeout) {
+        StudentProperties properties = new StudentProperties();
+        properties.getCoalescing().setTimeout(timeout);
+        return new StudentRequestCoalescer(properties, meterRegistry);
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter("students.coalescing.calls", "operation", "get", "outcome", outcome).count();
+    }
+
+    private void waitForCount(String outcome, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (count(outcome) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void waitForQueries(AtomicInteger queries, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (queries.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверяет, что объединённые чтения {@link StudentService} берут из пула одно соединение на общий запрос,
+ * а не по одному на каждый ожидающий вызов.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StudentServiceCoalescingTest {
+
+    private static final int CALLERS = 20;
+    private static final String CALLER_THREAD = "coalesced-caller-";
+
+    @Autowired
+    private StudentService studentService;
+    @Autowired
+    private StudentRepository studentRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private DataSource pool;
+    private CountingDataSource dataSource;
+
+    @TestConfiguration
+    @EnableConfigurationProperties(StudentProperties.class)
+    @ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+    @Import({StudentService.class, StudentCache.class, StudentEventOutbox.class, StudentChangeFeed.class,
+            StudentStatisticsAggregate.class, StudentNameIndex.class, StudentRequestCoalescer.class})
+    static class CoalescingConfiguration {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource && !(bean instanceof CountingDataSource)
+                            ? new CountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = pool.unwrap(CountingDataSource.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        studentRepository.deleteAll();
+    }
+
+    @Test
+    void coalescedGetAllStudentsCallsShouldAcquireOneConnection() throws Exception {
+        studentRepository.save(Student.builder().surname("Иванов").name("Иван").age(20).averageMark(4.5).build());
+
+        List<List<Student>> results = callConcurrently("getAllStudents", () -> studentService.getAllStudents());
+
+        results.forEach(students -> assertEquals(1, students.size()));
+        assertEquals(1, dataSource.callerConnections.get());
+    }
+
+    @Test
+    void coalescedGetAllStudentFieldsCallsShouldAcquireOneConnection() throws Exception {
+        studentRepository.save(Student.builder().surname("Иванов").name("Иван").age(20).averageMark(4.5).build());
+
+        List<List<Map<String, Object>>> results = callConcurrently("getAllStudentFields",
+                () -> studentService.getAllStudents(List.of("surname")));
+
+        results.forEach(rows -> assertEquals(List.of(Map.of("surname", "Иванов")), rows));
+        assertEquals(1, dataSource.callerConnections.get());
+    }
+
+    /**
+     * Вызывает чтение из {@value #CALLERS} потоков. Взявший соединение вызов ждёт, пока остальные присоединятся
+     * к его запросу, чтобы все вызовы точно пришли во время выполнения запроса.
+     */
+    private <T> List<T> callConcurrently(String operation, Supplier<T> read) throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        dataSource.callerConnections.set(0);
+        dataSource.gate = release;
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS,
+                task -> new Thread(task, CALLER_THREAD + threads.incrementAndGet()));
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(executor.submit(read::get));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (coalescedCalls(operation) < CALLERS - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(CALLERS - 1, coalescedCalls(operation));
+            return results;
+        } finally {
+            dataSource.gate = null;
+            executor.shutdownNow();
+        }
+    }
+
+    private double coalescedCalls(String operation) {
+        return meterRegistry.counter("students.coalescing.calls",
+                "operation", operation, "outcome", "coalesced").count();
+    }
+
+    /**
+     * Считает соединения, взятые потоками вызывающих, и задерживает их до открытия {@link #gate}.
+     */
+    static class CountingDataSource extends DelegatingDataSource {
+
+        private final AtomicInteger callerConnections = new AtomicInteger();
+        private volatile CountDownLatch gate;
+
+        CountingDataSource(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (Thread.currentThread().getName().startsWith(CALLER_THREAD)) {
+                callerConnections.incrementAndGet();
+                CountDownLatch current = gate;
+                if (current != null) {
+                    try {
+                        current.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+            return super.getConnection();
+        }
+    }
+}
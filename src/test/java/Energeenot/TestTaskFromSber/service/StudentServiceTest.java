@@ -1,18 +1,55 @@
 package Energeenot.TestTaskFromSber.service;
 
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.dto.BulkDeleteResult;
+import Energeenot.TestTaskFromSber.dto.BulkInsertResult;
+import Energeenot.TestTaskFromSber.dto.StudentBatch;
+import Energeenot.TestTaskFromSber.dto.StudentMatch;
+import Energeenot.TestTaskFromSber.dto.StudentPage;
+import Energeenot.TestTaskFromSber.dto.StudentPatch;
+import Energeenot.TestTaskFromSber.dto.StudentSearchCriteria;
+import Energeenot.TestTaskFromSber.dto.StudentSearchPage;
 import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.model.StudentEvent;
+import Energeenot.TestTaskFromSber.repository.StudentKeyset;
 import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import Energeenot.TestTaskFromSber.repository.StudentSnapshot;
+import Energeenot.TestTaskFromSber.repository.StudentUpdate;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,6 +61,28 @@ class StudentServiceTest {
     private StudentService studentService;
     @Mock
     private StudentRepository studentRepository;
+    @Spy
+    private StudentProperties studentProperties = new StudentProperties();
+    @Mock
+    private EntityManager entityManager;
+    @Spy
+    private StudentCache studentCache = new StudentCache(new StudentProperties());
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Mock
+    private StudentEventOutbox studentEventOutbox;
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    @Mock
+    private StudentStatisticsAggregate studentStatistics;
+    @Mock
+    private StudentNameIndex studentNameIndex;
+    private final SimpleMeterRegistry coalescingMetrics = new SimpleMeterRegistry();
+    @Spy
+    private StudentRequestCoalescer requestCoalescer =
+            new StudentRequestCoalescer(new StudentProperties(), coalescingMetrics);
 
     @AfterEach
     void tearDown() {
@@ -50,12 +109,165 @@ class StudentServiceTest {
                         .averageMark(4.2)
                         .build()
         );
-        when(studentRepository.findAll()).thenReturn(students);
+        when(studentRepository.findAllByOrderByIdAsc(any(Limit.class))).thenReturn(students);
 
         List<Student> result = studentService.getAllStudents();
         assertEquals(2, result.size());
         assertEquals("Иванов", result.get(0).getSurname());
-        verify(studentRepository, times(1)).findAll();
+        verify(studentRepository, times(1)).findAllByOrderByIdAsc(any(Limit.class));
+    }
+
+    @Test
+    void concurrentGetAllStudentsCallsShouldShareOneQuery() throws Exception {
+        int callers = 50;
+        List<Student> students = List.of(
+                Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build());
+        CountDownLatch release = new CountDownLatch(1);
+        when(studentRepository.findAllByOrderByIdAsc(any(Limit.class))).thenAnswer(invocation -> {
+            release.await();
+            return students;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<List<Student>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> studentService.getAllStudents()));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (coalescedCalls("getAllStudents") < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<List<Student>> result : results) {
+                assertSame(students, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(callers - 1, coalescedCalls("getAllStudents"));
+        verify(studentRepository, times(1)).findAllByOrderByIdAsc(any(Limit.class));
+    }
+
+    @Test
+    void getAllStudentsShouldThrowExceptionIfRowCapExceeded() {
+        studentProperties.getPagination().setUnpagedMaxRows(1);
+        List<Student> students = Arrays.asList(
+                Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build(),
+                Student.builder().id(2).surname("Петров").name("Пётр").age(22).averageMark(4.2).build()
+        );
+        when(studentRepository.findAllByOrderByIdAsc(Limit.of(2))).thenReturn(students);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> studentService.getAllStudents());
+        assertEquals(400, exception.getStatusCode().value());
+    }
+
+    @Test
+    void getStudentsPageShouldReturnNextCursorIfMoreRowsExist() {
+        List<Student> students = Arrays.asList(
+                Student.builder().id(3).surname("Иванов").name("Иван").age(20).averageMark(4.5).build(),
+                Student.builder().id(4).surname("Петров").name("Пётр").age(22).averageMark(4.2).build(),
+                Student.builder().id(7).surname("Сидоров").name("Алексей").age(21).averageMark(3.9).build()
+        );
+        when(studentRepository.findByIdGreaterThanOrderByIdAsc(2, Limit.of(3))).thenReturn(students);
+
+        StudentPage<Student> page = studentService.getStudentsPage(2, 2);
+        assertEquals(2, page.getContent().size());
+        assertEquals(4, page.getNextCursor());
+        verify(studentRepository, never()).findAllByOrderByIdAsc(any(Limit.class));
+    }
+
+    @Test
+    void getStudentsPageShouldReturnNullCursorOnLastPage() {
+        List<Student> students = List.of(
+                Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build()
+        );
+        when(studentRepository.findAllByOrderByIdAsc(Limit.of(101))).thenReturn(students);
+
+        StudentPage<Student> page = studentService.getStudentsPage(null, null);
+        assertEquals(1, page.getContent().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getStudentsPageShouldCapLimitAndRejectNonPositiveLimit() {
+        when(studentRepository.findAllByOrderByIdAsc(Limit.of(1001))).thenReturn(List.of());
+        studentService.getStudentsPage(null, 5000);
+        verify(studentRepository, times(1)).findAllByOrderByIdAsc(Limit.of(1001));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> studentService.getStudentsPage(null, 0));
+        assertEquals(400, exception.getStatusCode().value());
+    }
+
+    @Test
+    void getStudentsPageWithFieldsShouldReturnOnlyRequestedFields() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int id = 3; id <= 5; id++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("surname", "Иванов");
+            row.put("id", id);
+            rows.add(row);
+        }
+        when(studentRepository.findFields(eq(Set.of("surname")), any(Specification.class), eq(Sort.by("id")), eq(3)))
+                .thenReturn(rows);
+
+        StudentPage<Map<String, Object>> page = studentService.getStudentsPage(2, 2, List.of("surname"));
+        assertEquals(List.of(Map.of("surname", "Иванов"), Map.of("surname", "Иванов")), page.getContent());
+        assertEquals(4, page.getNextCursor());
+    }
+
+    @Test
+    void getStudentByIdWithFieldsShouldRejectUnknownFieldAndMissingStudent() {
+        ResponseStatusException unknownField = assertThrows(ResponseStatusException.class,
+                () -> studentService.getStudentById(1, List.of("surname", "password")));
+        when(studentRepository.findFields(eq(Set.of("id")), any(Specification.class), eq(Sort.unsorted()), eq(1)))
+                .thenReturn(List.of());
+        ResponseStatusException missingStudent = assertThrows(ResponseStatusException.class,
+                () -> studentService.getStudentById(1, List.of("id")));
+
+        assertEquals(400, unknownField.getStatusCode().value());
+        assertEquals(404, missingStudent.getStatusCode().value());
+    }
+
+    @Test
+    void searchStudentsShouldReturnKeysetCursorOfLastRow() {
+        List<Student> students = Arrays.asList(
+                Student.builder().id(3).surname("Иванов").name("Иван").age(20).averageMark(4.5).build(),
+                Student.builder().id(4).surname("Иванова").name("Мария").age(22).averageMark(4.2).build(),
+                Student.builder().id(7).surname("Ивашов").name("Алексей").age(21).averageMark(3.9).build()
+        );
+        when(studentRepository.findBy(any(Specification.class), any())).thenReturn(students);
+
+        StudentSearchCriteria criteria = StudentSearchCriteria.builder().surname("Ива").sort("surname").limit(2).build();
+        StudentSearchPage<Student> page = studentService.searchStudents(criteria);
+        assertEquals(2, page.getContent().size());
+        assertEquals(StudentKeyset.parse("surname").cursorOf(students.get(1)), page.getNextCursor());
+    }
+
+    @Test
+    void searchStudentsShouldRejectUnknownSortAndBrokenCursor() {
+        ResponseStatusException unknownSort = assertThrows(ResponseStatusException.class,
+                () -> studentService.searchStudents(StudentSearchCriteria.builder().sort("patronymic").build()));
+        ResponseStatusException brokenCursor = assertThrows(ResponseStatusException.class,
+                () -> studentService.searchStudents(StudentSearchCriteria.builder().after("не курсор").build()));
+
+        assertEquals(400, unknownSort.getStatusCode().value());
+        assertEquals(400, brokenCursor.getStatusCode().value());
+        verify(studentRepository, never()).findBy(any(Specification.class), any());
+    }
+
+    @Test
+    void exportStudentsShouldPassStudentsToConsumerAndDetachThem() {
+        Student firstStudent = Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        Student secondStudent = Student.builder().id(2).surname("Петров").name("Пётр").age(22).averageMark(4.2).build();
+        when(studentRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(firstStudent, secondStudent));
+
+        List<Student> exported = new ArrayList<>();
+        studentService.exportStudents(exported::add);
+
+        assertEquals(List.of(firstStudent, secondStudent), exported);
+        verify(entityManager, times(1)).detach(firstStudent);
+        verify(entityManager, times(1)).detach(secondStudent);
     }
 
     @Test
@@ -76,6 +288,153 @@ class StudentServiceTest {
         verify(studentRepository, times(1)).findById(student.getId());
     }
 
+    @Test
+    void getStudentShouldUseCacheForRepeatedLookups() {
+        Student student = Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        when(studentRepository.findById(1)).thenReturn(Optional.of(student));
+        when(studentRepository.findById(2)).thenReturn(Optional.empty());
+
+        studentService.getStudentById(1);
+        studentService.getStudentById(1);
+        assertThrows(ResponseStatusException.class, () -> studentService.getStudentById(2));
+        assertThrows(ResponseStatusException.class, () -> studentService.getStudentById(2));
+
+        verify(studentRepository, times(1)).findById(1);
+        verify(studentRepository, times(1)).findById(2);
+        assertEquals(2, studentService.getCacheStatistics().getHits());
+    }
+
+    @Test
+    void writesShouldInvalidateCachedStudent() {
+        Student student = Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        StudentPatch patch = StudentPatch.builder().name("Пётр").build();
+        when(studentRepository.findById(1)).thenReturn(Optional.of(student));
+        when(studentRepository.updatePartially(1, null, patch)).thenReturn(Optional.of(updateOf(student)));
+        when(studentRepository.deleteStudent(1, null)).thenReturn(Optional.of(snapshotOf(student)));
+
+        studentService.getStudentById(1);
+        studentService.updateStudent(1, patch);
+        studentService.getStudentById(1);
+        studentService.deleteStudent(1);
+
+        verify(studentCache, times(2)).invalidate(1);
+        verify(studentRepository, times(2)).findById(1);
+    }
+
+    @Test
+    void writesShouldRecordChangeEvents() {
+        Student student = Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        StudentPatch patch = StudentPatch.builder().name("Пётр").build();
+        when(studentRepository.saveAll(List.of(student))).thenReturn(List.of(student));
+        when(studentRepository.updatePartially(1, null, patch)).thenReturn(Optional.of(updateOf(student)));
+        when(studentRepository.findById(1)).thenReturn(Optional.of(student));
+        when(studentRepository.deleteStudent(1, null)).thenReturn(Optional.of(snapshotOf(student)));
+
+        studentService.addStudent(List.of(student));
+        studentService.updateStudent(1, patch);
+        studentService.updateStudent(1, new StudentPatch());
+        studentService.deleteStudent(1);
+
+        verify(studentEventOutbox).record(StudentEvent.Type.CREATED, List.of(1));
+        verify(studentEventOutbox, times(1)).record(StudentEvent.Type.UPDATED, List.of(1));
+        verify(studentEventOutbox).record(StudentEvent.Type.DELETED, List.of(1));
+    }
+
+    @Test
+    void writesShouldUpdateStatisticsAndNameIndexWithPreviousValues() {
+        Student student = Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        StudentSnapshot before = new StudentSnapshot(1, 20, 4.5);
+        StudentPatch markPatch = StudentPatch.builder().averageMark(3.5).build();
+        StudentPatch namePatch = StudentPatch.builder().name("Пётр").build();
+        Student renamed = Student.builder().id(1).surname("Иванов").name("Пётр").age(20).averageMark(3.5).version(2).build();
+        when(studentRepository.saveAll(List.of(student))).thenReturn(List.of(student));
+        when(studentRepository.updatePartially(1, null, markPatch))
+                .thenReturn(Optional.of(new StudentUpdate(student, before)));
+        when(studentRepository.updatePartially(1, null, namePatch))
+                .thenReturn(Optional.of(new StudentUpdate(renamed, new StudentSnapshot(1, 20, 3.5))));
+        when(studentRepository.deleteStudent(1, null)).thenReturn(Optional.of(before));
+
+        studentService.addStudent(List.of(student));
+        studentService.updateStudent(1, markPatch);
+        studentService.updateStudent(1, namePatch);
+        studentService.deleteStudent(1);
+
+        verify(studentStatistics).recordCreated(List.of(student));
+        verify(studentStatistics, times(1)).recordUpdated(before, null, 3.5);
+        verify(studentStatistics).recordRemoved(List.of(before));
+        verify(studentNameIndex).recordCreated(List.of(student));
+        verify(studentNameIndex, times(1)).recordUpdated(any(Student.class));
+        verify(studentNameIndex).recordUpdated(renamed);
+        verify(studentNameIndex).recordRemoved(List.of(1));
+        verify(studentStatistics, never()).recordUpdated(any(), isNull(), isNull());
+    }
+
+    @Test
+    void searchStudentsFuzzyShouldKeepRankOrderAndSkipDeletedStudents() {
+        Student ivanov = Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        Student ivanova = Student.builder().id(3).surname("Иванова").name("Мария").age(21).averageMark(4.8).build();
+        when(studentNameIndex.search("Ивнов", 20)).thenReturn(List.of(
+                new StudentNameIndex.Match(3, 0.8),
+                new StudentNameIndex.Match(2, 0.7),
+                new StudentNameIndex.Match(1, 0.6)));
+        when(studentRepository.findAllById(List.of(3, 2, 1))).thenReturn(List.of(ivanov, ivanova));
+
+        List<StudentMatch> result = studentService.searchStudentsFuzzy("Ивнов", null);
+
+        assertEquals(2, result.size());
+        assertEquals(3, result.get(0).getStudent().getId());
+        assertEquals(0.8, result.get(0).getSimilarity());
+        assertEquals(1, result.get(1).getStudent().getId());
+    }
+
+    @Test
+    void searchStudentsFuzzyShouldRejectBlankQueryAndInvalidLimit() {
+        assertThrows(ResponseStatusException.class, () -> studentService.searchStudentsFuzzy(" ", null));
+        assertThrows(ResponseStatusException.class, () -> studentService.searchStudentsFuzzy("а".repeat(201), null));
+        assertThrows(ResponseStatusException.class, () -> studentService.searchStudentsFuzzy("Иванов", 0));
+        assertThrows(ResponseStatusException.class, () -> studentService.searchStudentsFuzzy("Иванов", 101));
+        verifyNoInteractions(studentNameIndex);
+    }
+
+    @Test
+    void getStatisticsShouldApplyDefaultsAndRejectInvalidParameters() {
+        studentService.getStatistics(null, null);
+        verify(studentStatistics).statistics(5, List.of(0.5, 0.9, 0.99));
+
+        assertThrows(ResponseStatusException.class, () -> studentService.getStatistics(0, null));
+        assertThrows(ResponseStatusException.class, () -> studentService.getStatistics(5, List.of(1.5)));
+        verify(studentStatistics, times(1)).statistics(anyInt(), anyList());
+    }
+
+    @Test
+    void getStudentsByIdsShouldKeepRequestOrderAndQueryOnlyUncachedIds() {
+        Student firstStudent = Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        Student thirdStudent = Student.builder().id(3).surname("Сидоров").name("Алексей").age(21).averageMark(3.9).build();
+        when(studentRepository.findById(1)).thenReturn(Optional.of(firstStudent));
+        when(studentRepository.findAllById(List.of(3, 2))).thenReturn(List.of(thirdStudent));
+        studentService.getStudentById(1);
+
+        StudentBatch batch = studentService.getStudentsByIds(List.of(3, 1, 2, 3));
+
+        assertEquals(List.of(thirdStudent, firstStudent), batch.getStudents());
+        assertEquals(List.of(2), batch.getMissingIds());
+        verify(studentRepository, times(1)).findAllById(List.of(3, 2));
+
+        StudentBatch cachedBatch = studentService.getStudentsByIds(List.of(2, 3));
+        assertEquals(List.of(thirdStudent), cachedBatch.getStudents());
+        assertEquals(List.of(2), cachedBatch.getMissingIds());
+        verify(studentRepository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    void getStudentsByIdsShouldRejectTooManyIds() {
+        studentProperties.getFetch().setMaxIds(2);
+        assertThrows(ResponseStatusException.class, () -> studentService.getStudentsByIds(List.of(1, 2, 3)));
+        assertThrows(ResponseStatusException.class, () -> studentService.getStudentsByIds(List.of()));
+        assertThrows(ResponseStatusException.class, () -> studentService.getStudentsByIds(Arrays.asList(1, null)));
+        verify(studentRepository, never()).findAllById(anyIterable());
+    }
+
     @Test
     void getStudentShouldThrowsExceptionIfStudentNotExist() {
         int id = 1;
@@ -109,52 +468,220 @@ class StudentServiceTest {
         List<Student> result = studentService.addStudent(students);
         assertEquals(2, result.size());
         verify(studentRepository, times(1)).saveAll(students);
+        verify(entityManager, times(1)).flush();
+        verify(entityManager, times(1)).clear();
     }
 
     @Test
-    void updateStudentShouldReturnUpdatedStudent() {
-        Student existingStudent = Student.builder()
-                .id(1)
-                .surname("Иванов")
-                .name("Иван")
-                .patronymic("Иванович")
-                .age(20)
-                .averageMark(4.5)
-                .build();
-        Student updatedStudent = Student.builder()
+    void addStudentShouldSaveStudentsInBatches() {
+        studentProperties.getInsert().setBatchSize(2);
+        Student firstStudent = Student.builder().surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        Student secondStudent = Student.builder().surname("Петров").name("Пётр").age(22).averageMark(4.2).build();
+        Student thirdStudent = Student.builder().surname("Сидоров").name("Алексей").age(21).averageMark(3.9).build();
+        when(studentRepository.saveAll(List.of(firstStudent, secondStudent))).thenReturn(List.of(firstStudent, secondStudent));
+        when(studentRepository.saveAll(List.of(thirdStudent))).thenReturn(List.of(thirdStudent));
+
+        List<Student> result = studentService.addStudent(List.of(firstStudent, secondStudent, thirdStudent));
+
+        assertEquals(List.of(firstStudent, secondStudent, thirdStudent), result);
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+        DistributionSummary insertSize = meterRegistry.get("students.insert.size").summary();
+        assertEquals(1, insertSize.count());
+        assertEquals(3, insertSize.totalAmount());
+    }
+
+    @Test
+    void addStudentShouldRejectInvalidStudentsBeforeSaving() {
+        List<Student> students = Arrays.asList(
+                Student.builder().surname("Иванов").name("Иван").age(20).averageMark(4.5).build(),
+                Student.builder().surname("Петров").name(" ").age(22).averageMark(5.5).build()
+        );
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> studentService.addStudent(students));
+
+        assertEquals(400, exception.getStatusCode().value());
+        assertEquals("Некорректные данные студентов; строка 1: averageMark: средняя оценка больше 5.00, name: имя обязательно",
+                exception.getReason());
+        verify(studentRepository, never()).saveAll(anyList());
+        verify(studentEventOutbox, never()).record(any(), anyCollection());
+    }
+
+    @Test
+    void addStudentsPartiallyShouldSaveValidStudentsInChunksAndReportInvalidOnes() {
+        studentProperties.getInsert().setChunkSize(2);
+        Student firstStudent = Student.builder().id(100).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        Student invalidStudent = Student.builder().surname("Петров").name("").age(22).averageMark(5.5).build();
+        Student secondStudent = Student.builder().surname("Сидоров").name("Алексей").age(21).averageMark(3.9).build();
+        Student thirdStudent = Student.builder().surname("Смирнов").name("Сергей").age(23).averageMark(3.3).build();
+        AtomicInteger nextId = new AtomicInteger(1);
+        when(studentRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Student> batch = invocation.getArgument(0);
+            batch.forEach(student -> student.setId(nextId.getAndIncrement()));
+            return batch;
+        });
+
+        BulkInsertResult result = studentService.addStudentsPartially(
+                Arrays.asList(firstStudent, invalidStudent, secondStudent, thirdStudent));
+
+        assertEquals(4, result.getRequested());
+        assertEquals(List.of(1, 2, 3), result.getCreatedIds());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(1, result.getErrors().get(0).getIndex());
+        assertEquals(List.of("averageMark: средняя оценка больше 5.00", "name: имя обязательно"),
+                result.getErrors().get(0).getMessages());
+        verify(studentRepository, times(2)).saveAll(anyList());
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+        verify(studentEventOutbox).record(StudentEvent.Type.CREATED, List.of(1, 2));
+        verify(studentEventOutbox).record(StudentEvent.Type.CREATED, List.of(3));
+    }
+
+    @Test
+    void addStudentsPartiallyShouldSaveOneByOneIfDatabaseRejectsChunk() {
+        Student firstStudent = Student.builder().surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        Student rejectedStudent = Student.builder().surname("Петров").name("Пётр").age(22).averageMark(4.2).build();
+        Student secondStudent = Student.builder().surname("Сидоров").name("Алексей").age(21).averageMark(3.9).build();
+        AtomicInteger nextId = new AtomicInteger(1);
+        when(studentRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Student> batch = invocation.getArgument(0);
+            batch.forEach(student -> student.setId(nextId.getAndIncrement()));
+            if (batch.contains(rejectedStudent)) {
+                throw new DataIntegrityViolationException("student_average_mark_check");
+            }
+            return batch;
+        });
+
+        BulkInsertResult result = studentService.addStudentsPartially(List.of(firstStudent, rejectedStudent, secondStudent));
+
+        assertEquals(List.of(4, 6), result.getCreatedIds());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(1, result.getErrors().get(0).getIndex());
+        assertEquals(List.of("отклонено базой данных"), result.getErrors().get(0).getMessages());
+        verify(studentRepository, times(4)).saveAll(anyList());
+        verify(studentEventOutbox).record(StudentEvent.Type.CREATED, List.of(4));
+        verify(studentEventOutbox).record(StudentEvent.Type.CREATED, List.of(6));
+    }
+
+    @Test
+    void updateStudentShouldUpdateOnlyPassedFieldsInOneStatement() {
+        StudentPatch patch = StudentPatch.builder()
                 .patronymic("Петрович")
                 .age(21)
                 .build();
+        Student updated = Student.builder().id(1).surname("Иванов").name("Иван").patronymic("Петрович").age(21)
+                .averageMark(4.5).version(1).build();
+        when(studentRepository.updatePartially(1, null, patch))
+                .thenReturn(Optional.of(new StudentUpdate(updated, new StudentSnapshot(1, 20, 4.5))));
 
-        when(studentRepository.findById(existingStudent.getId())).thenReturn(Optional.of(existingStudent));
-        when(studentRepository.save(existingStudent)).thenReturn(existingStudent);
-
-        Student result = studentService.updateStudent(existingStudent.getId(), updatedStudent);
+        assertSame(updated, studentService.updateStudent(1, patch));
 
-        assertEquals("Петрович", result.getPatronymic());
-        assertEquals(21, result.getAge());
-        assertEquals(4.5, result.getAverageMark());
-        verify(studentRepository, times(1)).findById(existingStudent.getId());
-        verify(studentRepository, times(1)).save(existingStudent);
+        verify(studentRepository, times(1)).updatePartially(1, null, patch);
+        verify(studentRepository, never()).findById(anyInt());
+        verify(studentRepository, never()).save(any());
     }
 
     @Test
     void updateStudentShouldThrowsExceptionIfStudentNotExist() {
         int id = 1;
-        Student updatedStudent = Student.builder()
+        StudentPatch patch = StudentPatch.builder()
                 .patronymic("Петрович")
                 .age(21)
                 .build();
-        when(studentRepository.findById(id)).thenReturn(Optional.empty());
-        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> studentService.updateStudent(id, updatedStudent));
+        when(studentRepository.updatePartially(id, null, patch)).thenReturn(Optional.empty());
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> studentService.updateStudent(id, patch));
         assertEquals("404 NOT_FOUND \"Студент не найден\"", exception.getMessage());
-        verify(studentRepository, times(1)).findById(id);
+        verify(studentRepository, times(1)).updatePartially(id, null, patch);
+    }
+
+    @Test
+    void updateStudentShouldFailPreconditionIfVersionChanged() {
+        StudentPatch patch = StudentPatch.builder().age(22).build();
+        when(studentRepository.updatePartially(1, 3L, patch)).thenReturn(Optional.empty());
+        when(studentRepository.existsById(1)).thenReturn(true);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> studentService.updateStudent(1, patch, 3L));
+        assertEquals(412, exception.getStatusCode().value());
+    }
+
+    @Test
+    void deleteStudentShouldCheckVersionInDeleteStatement() {
+        when(studentRepository.deleteStudent(1, 3L)).thenReturn(Optional.of(new StudentSnapshot(1, 20, 4.5)));
+        when(studentRepository.deleteStudent(2, 3L)).thenReturn(Optional.empty());
+        when(studentRepository.existsById(2)).thenReturn(false);
+
+        studentService.deleteStudent(1, 3L);
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> studentService.deleteStudent(2, 3L));
+
+        assertEquals(404, exception.getStatusCode().value());
+        verify(studentRepository, never()).deleteStudent(anyInt(), isNull());
+    }
+
+    @Test
+    void updateStudentWithoutFieldsShouldOnlyReadStudent() {
+        Student student = Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+        when(studentRepository.findById(1)).thenReturn(Optional.of(student));
+        when(studentRepository.findById(2)).thenReturn(Optional.empty());
+
+        assertSame(student, studentService.updateStudent(1, new StudentPatch()));
+        assertThrows(ResponseStatusException.class, () -> studentService.updateStudent(2, new StudentPatch()));
+
+        verify(studentRepository, never()).updatePartially(anyInt(), any(), any());
     }
 
     @Test
     void deleteStudentShouldDeleteStudent() {
         int id = 1;
+        when(studentRepository.deleteStudent(id, null)).thenReturn(Optional.of(new StudentSnapshot(id, 20, 4.5)));
         studentService.deleteStudent(id);
-        verify(studentRepository, times(1)).deleteById(id);
+        verify(studentRepository, times(1)).deleteStudent(id, null);
+        verify(studentRepository, never()).deleteById(anyInt());
+    }
+
+    @Test
+    void deleteStudentShouldThrowsExceptionIfStudentNotExist() {
+        int id = 1;
+        when(studentRepository.deleteStudent(id, null)).thenReturn(Optional.empty());
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> studentService.deleteStudent(id));
+        assertEquals("404 NOT_FOUND \"Студент не найден\"", exception.getMessage());
+    }
+
+    @Test
+    void deleteStudentsShouldDeleteUniqueIdsInBatches() {
+        studentProperties.getDelete().setBatchSize(2);
+        List<StudentSnapshot> marks = List.of(
+                new StudentSnapshot(1, 20, 4.5),
+                new StudentSnapshot(2, 22, 4.2));
+        when(studentRepository.deleteStudents(List.of(1, 2))).thenReturn(marks);
+        when(studentRepository.deleteStudents(List.of(3))).thenReturn(List.of());
+
+        BulkDeleteResult result = studentService.deleteStudents(List.of(1, 2, 2, 3));
+
+        assertEquals(3, result.getRequested());
+        assertEquals(2, result.getDeleted());
+        verify(studentRepository, times(2)).deleteStudents(anyCollection());
+        verify(studentEventOutbox, times(1)).record(StudentEvent.Type.DELETED, List.of(1, 2));
+        verify(studentStatistics, times(1)).recordRemoved(marks);
+        verify(studentCache, times(1)).invalidate(3);
+    }
+
+    @Test
+    void deleteStudentsShouldRejectEmptyList() {
+        assertThrows(ResponseStatusException.class, () -> studentService.deleteStudents(List.of()));
+        verify(studentRepository, never()).deleteStudents(anyCollection());
+    }
+
+    private static StudentSnapshot snapshotOf(Student student) {
+        return new StudentSnapshot(student.getId(), student.getAge(), student.getAverageMark());
+    }
+
+    private static StudentUpdate updateOf(Student student) {
+        return new StudentUpdate(student, snapshotOf(student));
+    }
+
+    private double coalescedCalls(String operation) {
+        return coalescingMetrics.counter("students.coalescing.calls",
+                "operation", operation, "outcome", "coalesced").count();
     }
 }
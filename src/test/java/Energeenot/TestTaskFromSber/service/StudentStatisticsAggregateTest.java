@@ -0,0 +1,121 @@
+package Energeenot.TestTaskFromSber.service;
+
+import Energeenot.TestTaskFromSber.config.StudentProperties;
+import Energeenot.TestTaskFromSber.dto.StudentStatistics;
+import Energeenot.TestTaskFromSber.model.Student;
+import Energeenot.TestTaskFromSber.repository.StudentRepository;
+import Energeenot.TestTaskFromSber.repository.StudentSnapshot;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StudentStatisticsAggregateTest {
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+    private final StudentStatisticsAggregate aggregate =
+            new StudentStatisticsAggregate(studentRepository, new StudentProperties());
+
+    @Test
+    void statisticsShouldBeComputedFromGroupCounts() {
+        when(studentRepository.countByAgeAndAverageMark()).thenReturn(List.of(
+                new Object[]{18, 3.0, 2L},
+                new Object[]{19, 5.0, 1L},
+                new Object[]{23, 4.25, 1L}));
+        aggregate.reconcile();
+
+        StudentStatistics statistics = aggregate.statistics(5, List.of(0.5, 1.0));
+
+        assertEquals(4, statistics.getCount());
+        assertEquals(3.8125, statistics.getMean(), 1e-9);
+        assertEquals(3.0, statistics.getMin());
+        assertEquals(5.0, statistics.getMax());
+        assertEquals(3.0, statistics.getPercentiles().get("0.5"));
+        assertEquals(5.0, statistics.getPercentiles().get("1.0"));
+        assertEquals(2, statistics.getAgeBuckets().size());
+        StudentStatistics.AgeBucket first = statistics.getAgeBuckets().get(0);
+        assertEquals(15, first.getFromAge());
+        assertEquals(19, first.getToAge());
+        assertEquals(3, first.getCount());
+        assertArrayEquals(new long[]{0, 0, 0, 0, 2, 0, 0, 1}, first.getMarkHistogram());
+        assertEquals(20, statistics.getAgeBuckets().get(1).getFromAge());
+    }
+
+    @Test
+    void changesShouldBeAppliedOnlyAfterCommit() {
+        when(studentRepository.countByAgeAndAverageMark()).thenReturn(List.of());
+        aggregate.reconcile();
+        Student student = Student.builder().id(1).surname("Иванов").name("Иван").age(20).averageMark(4.5).build();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            aggregate.recordCreated(List.of(student));
+            assertEquals(0, aggregate.statistics(1, List.of()).getCount());
+            List<TransactionSynchronization> synchronizations =
+                    new ArrayList<>(TransactionSynchronizationManager.getSynchronizations());
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(1, aggregate.statistics(1, List.of()).getCount());
+
+        aggregate.recordUpdated(new StudentSnapshot(1, 20, 4.5), 30, null);
+        StudentStatistics updated = aggregate.statistics(1, List.of());
+        assertEquals(30, updated.getAgeBuckets().get(0).getFromAge());
+        assertEquals(4.5, updated.getMean());
+
+        aggregate.recordRemoved(List.of(new StudentSnapshot(1, 30, 4.5)));
+        StudentStatistics removed = aggregate.statistics(1, List.of(0.5));
+        assertEquals(0, removed.getCount());
+        assertNull(removed.getMean());
+        assertNull(removed.getPercentiles().get("0.5"));
+        assertTrue(removed.getAgeBuckets().isEmpty());
+    }
+
+    @Test
+    void reconcileShouldReplaceDriftedCounts() {
+        when(studentRepository.countByAgeAndAverageMark())
+                .thenReturn(List.of())
+                .thenReturn(List.<Object[]>of(new Object[]{20, 4.0, 3L}));
+        aggregate.reconcile();
+        aggregate.recordCreated(List.of(Student.builder().age(40).averageMark(2.0).build()));
+
+        aggregate.reconcile();
+
+        StudentStatistics statistics = aggregate.statistics(100, List.of());
+        assertEquals(3, statistics.getCount());
+        assertEquals(4.0, statistics.getMax());
+    }
+
+    @Test
+    void largeAgesShouldNotAllocateCountsUpToMaxAge() {
+        when(studentRepository.countByAgeAndAverageMark())
+                .thenReturn(List.<Object[]>of(new Object[]{Integer.MAX_VALUE, 4.0, 1L}));
+        aggregate.reconcile();
+        aggregate.recordCreated(List.of(Student.builder().age(Integer.MAX_VALUE - 1).averageMark(3.0).build(),
+                Student.builder().age(20).averageMark(5.0).build()));
+
+        StudentStatistics statistics = aggregate.statistics(10, List.of());
+
+        assertEquals(3, statistics.getCount());
+        assertEquals(2, statistics.getAgeBuckets().size());
+        StudentStatistics.AgeBucket last = statistics.getAgeBuckets().get(1);
+        assertEquals(Integer.MAX_VALUE, last.getToAge());
+        assertEquals(2, last.getCount());
+        assertDoesNotThrow(aggregate::reconcile);
+        assertEquals(1, aggregate.statistics(10, List.of()).getCount());
+    }
+
+    @Test
+    void statisticsShouldBeUnavailableBeforeFirstLoad() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> aggregate.statistics(5, List.of()));
+        assertEquals(503, exception.getStatusCode().value());
+    }
+}
@@ -0,0 +1,12 @@
+-- Схема таблицы студентов для встроенной базы H2 в тестах, повторяет db/migration/postgresql.
+-- Последовательность student_id_seq в PostgreSQL создаёт тип SERIAL, в H2 она создаётся явно.
+CREATE SEQUENCE IF NOT EXISTS student_id_seq;
+CREATE TABLE IF NOT EXISTS student
+(
+    id           INTEGER DEFAULT NEXT VALUE FOR student_id_seq PRIMARY KEY,
+    surname      VARCHAR(255)  NOT NULL,
+    name         VARCHAR(255)  NOT NULL,
+    patronymic   VARCHAR(255),
+    age          INTEGER       NOT NULL,
+    average_mark NUMERIC(3, 2) NOT NULL CHECK (average_mark >= 1.00 AND average_mark <= 5.00)
+);
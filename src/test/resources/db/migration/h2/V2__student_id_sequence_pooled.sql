@@ -0,0 +1,2 @@
+-- Шаг последовательности совпадает с allocationSize = 50 в сущности Student.
+ALTER SEQUENCE student_id_seq INCREMENT BY 50;
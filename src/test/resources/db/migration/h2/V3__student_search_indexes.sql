@@ -0,0 +1,5 @@
+-- Индексы для поиска GET /students/search. Индексы text_pattern_ops есть только в PostgreSQL.
+CREATE INDEX IF NOT EXISTS idx_student_surname_name ON student (surname, name, id);
+CREATE INDEX IF NOT EXISTS idx_student_name ON student (name, id);
+CREATE INDEX IF NOT EXISTS idx_student_age_average_mark ON student (age, average_mark, id);
+CREATE INDEX IF NOT EXISTS idx_student_average_mark ON student (average_mark, id);
@@ -0,0 +1,2 @@
+-- Версия записи для оптимистической блокировки (@Version в сущности Student).
+ALTER TABLE student ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
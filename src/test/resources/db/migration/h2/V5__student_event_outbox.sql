@@ -0,0 +1,16 @@
+-- Журнал изменений студентов для GET /students/changes (сущность StudentEvent).
+CREATE TABLE IF NOT EXISTS student_event
+(
+    id         BIGINT PRIMARY KEY,
+    type       VARCHAR(16)              NOT NULL,
+    student_id INTEGER                  NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_student_event_created_at ON student_event (created_at);
+
+CREATE TABLE IF NOT EXISTS student_event_counter
+(
+    id      INTEGER PRIMARY KEY,
+    last_id BIGINT NOT NULL
+);
+MERGE INTO student_event_counter (id, last_id) KEY (id) VALUES (1, 0);
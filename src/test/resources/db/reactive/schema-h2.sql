@@ -0,0 +1,12 @@
+-- Таблица студентов для тестов реактивного варианта API на H2.
+-- В отличие от схемы, которую создаёт Hibernate, идентификатор выдаётся базой при вставке, как SERIAL в PostgreSQL.
+CREATE TABLE IF NOT EXISTS student
+(
+    id           INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    surname      VARCHAR(255)  NOT NULL,
+    name         VARCHAR(255)  NOT NULL,
+    patronymic   VARCHAR(255),
+    age          INTEGER       NOT NULL,
+    average_mark NUMERIC(3, 2) NOT NULL CHECK (average_mark >= 1.00 AND average_mark <= 5.00),
+    version      BIGINT        NOT NULL DEFAULT 0
+);